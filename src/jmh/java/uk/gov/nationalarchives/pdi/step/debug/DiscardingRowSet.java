@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.BaseRowSet;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An output row set which discards every row, so that a step can be driven without a downstream step thread.
+ *
+ * The last row is kept, so that the JIT cannot eliminate the work of producing it.
+ */
+final class DiscardingRowSet extends BaseRowSet {
+
+    private Object[] last;
+
+    DiscardingRowSet() {
+        super();
+    }
+
+    @Override
+    public boolean putRow(final RowMetaInterface rowMeta, final Object[] rowData) {
+        this.rowMeta = rowMeta;
+        this.last = rowData;
+        return true;
+    }
+
+    @Override
+    public boolean putRowWait(final RowMetaInterface rowMeta, final Object[] rowData, final long time, final TimeUnit tu) {
+        return putRow(rowMeta, rowData);
+    }
+
+    @Override
+    public Object[] getRow() {
+        return null;
+    }
+
+    @Override
+    public Object[] getRowImmediate() {
+        return null;
+    }
+
+    @Override
+    public Object[] getRowWait(final long timeout, final TimeUnit tu) {
+        return null;
+    }
+
+    /**
+     * Always reports an empty buffer, so that the step never waits for output.
+     */
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+        last = null;
+    }
+
+    Object[] getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.openjdk.jmh.annotations.*;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.*;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link LogRowStep#processRow} for each combination of
+ * {@link ErrorLogCase} and {@link NonErrorLogDetail}, over synthetic rows of varying width.
+ *
+ * The step is driven directly by the benchmark thread: its input is a {@link RepeatingRowSet}
+ * and its output a {@link DiscardingRowSet}, so only the work of the step itself is measured.
+ *
+ * Run with {@code mvn -Pbenchmarks test}, which also enables the gc profiler to report the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogRowStepBenchmark {
+
+    /**
+     * The number of distinct rows that are repeated as the input.
+     */
+    private static final int DISTINCT_ROWS = 1024;
+
+    @Param
+    public ErrorLogCase errorLogCase;
+
+    @Param
+    public NonErrorLogDetail nonErrorLogDetail;
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    /**
+     * As the input always has rows waiting, each operation processes this many rows
+     * when it is greater than 1.
+     */
+    @Param({"1"})
+    public int batchSize;
+
+    /**
+     * When greater than 0, rows logged in detail only log the values that changed,
+     * with all of the values every this many rows.
+     */
+    @Param({"0"})
+    public int deltaKeyframeInterval;
+
+    private LogRowMeta meta;
+    private LogRowData data;
+    private LogRowStep step;
+
+    @Setup(Level.Trial)
+    public void setUp() throws KettleException {
+        KettleEnvironment.init(false);
+
+        final RowMetaInterface rowMeta = rowMeta(width);
+        final Object[][] rows = rows(rowMeta, DISTINCT_ROWS);
+
+        meta = new LogRowMeta();
+        meta.setDefault();
+        meta.setErrorLogCase(errorLogCase);
+        meta.setNonErrorLogDetail(nonErrorLogDetail);
+        meta.setBatchSize(batchSize);
+        meta.setDeltaKeyframeInterval(deltaKeyframeInterval);
+
+        final TransMeta transMeta = new TransMeta();
+        transMeta.setName(getClass().getSimpleName());
+        transMeta.setUsingThreadPriorityManagment(false);
+        final StepMeta stepMeta = new StepMeta("Log Row", meta);
+        transMeta.addStep(stepMeta);
+
+        final Trans trans = new Trans(transMeta);
+        trans.setRunning(true);
+
+        data = (LogRowData) meta.getStepData();
+        step = new LogRowStep(stepMeta, data, 0, transMeta, trans);
+        step.addRowSetToInputRowSets(new RepeatingRowSet(rowMeta, rows, transMeta.getSizeRowset()));
+        step.addRowSetToOutputRowSets(new DiscardingRowSet());
+
+        if (!step.init(meta, data)) {
+            throw new IllegalStateException("Unable to initialise the Log Row step");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        step.dispose(meta, data);
+    }
+
+    @Benchmark
+    public boolean processRow() throws KettleException {
+        return step.processRow(meta, data);
+    }
+
+    /**
+     * Creates row metadata with fields of each of the common types in turn.
+     */
+    private static RowMetaInterface rowMeta(final int width) {
+        final RowMetaInterface rowMeta = new RowMeta();
+        for (int i = 0; i < width; i++) {
+            final String name = "field" + i;
+            switch (i % 6) {
+                case 0:
+                    rowMeta.addValueMeta(new ValueMetaString(name));
+                    break;
+                case 1:
+                    rowMeta.addValueMeta(new ValueMetaInteger(name));
+                    break;
+                case 2:
+                    rowMeta.addValueMeta(new ValueMetaNumber(name));
+                    break;
+                case 3:
+                    rowMeta.addValueMeta(new ValueMetaDate(name));
+                    break;
+                case 4:
+                    rowMeta.addValueMeta(new ValueMetaBoolean(name));
+                    break;
+                default:
+                    rowMeta.addValueMeta(new ValueMetaBigNumber(name));
+                    break;
+            }
+        }
+        return rowMeta;
+    }
+
+    /**
+     * Creates rows of random values, from a fixed seed so that every run sees the same rows.
+     */
+    private static Object[][] rows(final RowMetaInterface rowMeta, final int count) {
+        final Random random = new Random(42);
+        final Object[][] rows = new Object[count][];
+        for (int r = 0; r < count; r++) {
+            final Object[] row = new Object[rowMeta.size()];
+            for (int i = 0; i < row.length; i++) {
+                switch (i % 6) {
+                    case 0:
+                        final char[] chars = new char[8 + random.nextInt(24)];
+                        for (int c = 0; c < chars.length; c++) {
+                            chars[c] = (char) ('a' + random.nextInt(26));
+                        }
+                        row[i] = new String(chars);
+                        break;
+                    case 1:
+                        row[i] = random.nextLong();
+                        break;
+                    case 2:
+                        row[i] = random.nextDouble();
+                        break;
+                    case 3:
+                        row[i] = new Date((random.nextInt() & 0x7fffffffL) * 1000);
+                        break;
+                    case 4:
+                        row[i] = random.nextBoolean();
+                        break;
+                    default:
+                        row[i] = BigDecimal.valueOf(random.nextLong(), 4);
+                        break;
+                }
+            }
+            rows[r] = row;
+        }
+        return rows;
+    }
+}
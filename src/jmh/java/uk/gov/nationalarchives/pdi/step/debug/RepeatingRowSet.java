@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.BaseRowSet;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An input row set which endlessly repeats a fixed set of rows,
+ * so that a step can be driven without an upstream step thread.
+ */
+final class RepeatingRowSet extends BaseRowSet {
+
+    private final Object[][] rows;
+    private final int capacity;
+    private int next;
+
+    RepeatingRowSet(final RowMetaInterface rowMeta, final Object[][] rows, final int capacity) {
+        super();
+        setRowMeta(rowMeta);
+        this.rows = rows;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean putRow(final RowMetaInterface rowMeta, final Object[] rowData) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putRowWait(final RowMetaInterface rowMeta, final Object[] rowData, final long time, final TimeUnit tu) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object[] getRow() {
+        final Object[] row = rows[next];
+        next = (next + 1) % rows.length;
+        return row;
+    }
+
+    @Override
+    public Object[] getRowImmediate() {
+        return getRow();
+    }
+
+    @Override
+    public Object[] getRowWait(final long timeout, final TimeUnit tu) {
+        return getRow();
+    }
+
+    /**
+     * Always reports a full buffer, so that the step never waits for input.
+     */
+    @Override
+    public int size() {
+        return capacity;
+    }
+
+    @Override
+    public void clear() {
+        next = 0;
+    }
+}
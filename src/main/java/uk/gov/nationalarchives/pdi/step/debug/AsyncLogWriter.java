@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log messages to a Kettle log channel from a background thread,
+ * so that a slow log channel or appender does not hold up the step thread.
+ *
+ * Messages are passed from the step thread through a {@link LogRingBuffer},
+ * and written in batches.
+ */
+final class AsyncLogWriter implements Runnable, LogRingBuffer.MessageHandler {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000;  // 1 ms
+    private static final long FULL_PARK_NANOS = 50_000;  // 50 µs
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final LogChannelInterface log;
+    private final LogRingBuffer buffer;
+    private final LogOverflowPolicy overflowPolicy;
+    private final Thread thread;
+
+    private volatile boolean running;
+
+    /**
+     * The number of dropped messages, only written by the step thread.
+     */
+    private volatile long dropped;
+
+    /**
+     * The number of dropped messages that the log has been told about, only used by the writer thread.
+     */
+    private long reportedDropped;
+
+    AsyncLogWriter(final String name, final LogChannelInterface log, final int bufferSize,
+            final LogOverflowPolicy overflowPolicy) {
+        this.log = log;
+        this.buffer = new LogRingBuffer(bufferSize);
+        this.overflowPolicy = overflowPolicy;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Queues a message to be written to the log. Must only be called from the step thread.
+     *
+     * @param error true if the message should be logged as an error.
+     * @param message the message.
+     */
+    void write(final boolean error, final String message) {
+        if (buffer.offer(error, message)) {
+            return;
+        }
+
+        if (LogOverflowPolicy.BLOCK == overflowPolicy) {
+            while (running) {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                if (buffer.offer(error, message)) {
+                    return;
+                }
+            }
+        }
+
+        dropped++;
+    }
+
+    /**
+     * Get the number of messages that were dropped because the buffer was full.
+     *
+     * @return the number of dropped messages.
+     */
+    long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int drainBatch() {
+        int drained = 0;
+        try {
+            drained = buffer.drain(this, BATCH_SIZE);
+        } catch (final RuntimeException e) {
+            log.logError("Unable to write log message", e);
+        }
+
+        if (LogOverflowPolicy.DROP == overflowPolicy) {
+            final long currentDropped = dropped;
+            if (currentDropped > reportedDropped) {
+                log.logError((currentDropped - reportedDropped) + " log messages were dropped as the log buffer was full");
+                reportedDropped = currentDropped;
+            }
+        }
+
+        return drained;
+    }
+
+    @Override
+    public void handle(final boolean error, final String message) {
+        if (error) {
+            log.logError(message);
+        } else {
+            log.logBasic(message);
+        }
+    }
+
+    /**
+     * Stops the writer thread, and then writes any messages remaining in the buffer.
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!thread.isAlive()) {
+            // the writer thread has finished, so this thread can now safely act as the consumer;
+            // each drain removes at least one message, so this is bounded by the messages remaining now
+            for (long remaining = buffer.size(); remaining > 0 && !buffer.isEmpty(); remaining--) {
+                drainBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A Bloom filter of 64 bit hashes, sized for an expected number of keys and false positive rate.
+ *
+ * The bits can be held off the Java heap, so that a filter for hundreds of millions of keys
+ * neither needs a larger heap nor has to be scanned by the garbage collector.
+ *
+ * Instances are not thread-safe.
+ */
+final class BloomFilter {
+
+    /**
+     * The most 64 bit words that a filter may have, so that its size in bytes fits in an int.
+     */
+    private static final long MAX_WORDS = Integer.MAX_VALUE / Long.BYTES;
+
+    private final LongBuffer words;
+    private final long bits;
+    private final int hashes;
+    private long added;
+
+    /**
+     * @param expectedKeys the number of distinct keys that are expected to be added.
+     * @param falsePositiveRate the rate of false positives once the expected number of keys have been added.
+     * @param offHeap true to hold the bits off the Java heap.
+     */
+    BloomFilter(final long expectedKeys, final double falsePositiveRate, final boolean offHeap) {
+        final long n = Math.max(1, expectedKeys);
+        final double optimalBits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final long wordCount = Math.min(MAX_WORDS, Math.max(1, (long) Math.ceil(optimalBits / Long.SIZE)));
+        this.bits = wordCount * Long.SIZE;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        this.words = offHeap
+                ? ByteBuffer.allocateDirect((int) wordCount * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                : LongBuffer.allocate((int) wordCount);
+    }
+
+    /**
+     * Adds a key to the filter.
+     *
+     * @param hash a well mixed 64 bit hash of the key, see {@link Hashing}.
+     *
+     * @return true if the key may have been added before, false if it certainly has not.
+     */
+    boolean put(final long hash) {
+        // the bits are chosen by double hashing (Kirsch-Mitzenmacher), from two 64 bit hashes of the key
+        final long h2 = Hashing.mix64(hash) | 1;
+        boolean present = true;
+        long combined = hash;
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (combined >>> 1) % bits;
+            final int wordIdx = (int) (bit >>> 6);
+            final long word = words.get(wordIdx);
+            final long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                present = false;
+                words.put(wordIdx, word | mask);
+            }
+            combined += h2;
+        }
+        if (!present) {
+            added++;
+        }
+        return present;
+    }
+
+    /**
+     * Get the current probability of a false positive, given the number of keys added so far.
+     *
+     * @return the probability.
+     */
+    double getFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * added / bits), hashes);
+    }
+
+    /**
+     * Get the size of the filter.
+     *
+     * @return the size in bytes.
+     */
+    long getSize() {
+        return bits / Byte.SIZE;
+    }
+
+    int getHashes() {
+        return hashes;
+    }
+}
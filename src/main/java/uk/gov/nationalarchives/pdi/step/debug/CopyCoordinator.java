@@ -0,0 +1,251 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinates the copies of a Log Row step within a single run of a transformation.
+ *
+ * Each copy acquires the coordinator for its step from a registry keyed by the
+ * log channel id of the transformation and the name of the step, and releases it
+ * when it is disposed.
+ *
+ * The first N rows are claimed from a shared atomic counter, so that the FIRST
+ * log modes log N rows across all copies rather than N rows per copy. Once the
+ * claims are exhausted a volatile flag is set, after which claiming is a single
+ * read of that flag, so the counter is only contended for the first few rows.
+ *
+ * All other counters and summaries are kept by each copy in its own unshared
+ * state, and are only merged, under the lock of the coordinator, once by each
+ * copy when it is disposed, whether or not it reached the end of its stream,
+ * so that the last copy to do so always reports the merged results, including
+ * which copies did not finish normally.
+ *
+ * Instances are shared by the copies of a step, and so are thread-safe.
+ */
+final class CopyCoordinator {
+
+    private static final ConcurrentMap<String, CopyCoordinator> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final long firstRows;
+
+    private final AtomicLong firstClaims = new AtomicLong();
+    private volatile boolean firstExhausted;
+
+    // guarded by this
+    private int references;
+    private int pending;
+    private int contributed;
+    private final Set<Integer> unfinishedCopies = new TreeSet<>();
+    private long rows;
+    private long rowsLogged;
+    private RowMetrics metrics;
+    private RowProfiler profiler;
+    private boolean profilesMismatched;
+    private RowDriftDetector driftDetector;
+    private RowDigest digest;
+
+    private CopyCoordinator(final String key, final long firstRows) {
+        this.key = key;
+        this.firstRows = firstRows;
+        this.firstExhausted = firstRows <= 0;
+    }
+
+    /**
+     * Acquires the coordinator for the copies of a step,
+     * creating it if this is the first copy to acquire it.
+     *
+     * @param transId the log channel id of the transformation.
+     * @param stepName the name of the step.
+     * @param firstRows the number of rows to log across all copies for the FIRST log modes.
+     *
+     * @return the coordinator, which must be released when the copy is disposed.
+     */
+    static CopyCoordinator acquire(final String transId, final String stepName, final long firstRows) {
+        return REGISTRY.compute(transId + '/' + stepName, (registryKey, coordinator) -> {
+            final CopyCoordinator acquired = coordinator != null ? coordinator : new CopyCoordinator(registryKey, firstRows);
+            acquired.retain();
+            return acquired;
+        });
+    }
+
+    private synchronized void retain() {
+        references++;
+        pending++;
+    }
+
+    /**
+     * Releases the coordinator, removing it from the registry once it has been released by all copies.
+     */
+    void release() {
+        REGISTRY.computeIfPresent(key, (registryKey, coordinator) -> coordinator.unretain() ? null : coordinator);
+    }
+
+    private synchronized boolean unretain() {
+        return --references == 0;
+    }
+
+    /**
+     * Claims one of the first rows.
+     *
+     * @return true if one of the first rows was claimed,
+     *     false if all of the first rows have already been claimed.
+     */
+    boolean claimFirst() {
+        if (firstExhausted) {
+            return false;
+        }
+        final long claim = firstClaims.incrementAndGet();
+        if (claim >= firstRows) {
+            firstExhausted = true;
+        }
+        return claim <= firstRows;
+    }
+
+    /**
+     * Determines whether all of the first rows have been claimed.
+     *
+     * @return true if all of the first rows have been claimed.
+     */
+    boolean isFirstExhausted() {
+        return firstExhausted;
+    }
+
+    /**
+     * Merges the counters and summaries of a copy that is being disposed.
+     *
+     * The summaries are taken over by the coordinator, and so must not be used by the copy afterwards.
+     *
+     * @param copy the number of the copy.
+     * @param finished true if the copy reached the end of its stream without error, false if it
+     *     failed or was stopped, in which case its counters and summaries only cover the rows it processed.
+     * @param rows the number of rows read by the copy.
+     * @param rowsLogged the number of rows logged by the copy.
+     * @param metrics the metrics of the copy, or null.
+     * @param profiler the profiler of the copy, or null.
+     * @param driftDetector the drift detector of the copy, or null.
+     * @param digest the digest of the copy, or null.
+     *
+     * @return true if this was the last copy to contribute, in which case it should report the merged results.
+     */
+    synchronized boolean contribute(final int copy, final boolean finished, final long rows, final long rowsLogged,
+            final RowMetrics metrics, final RowProfiler profiler, final RowDriftDetector driftDetector,
+            final RowDigest digest) {
+        if (!finished) {
+            unfinishedCopies.add(copy);
+        }
+        this.rows += rows;
+        this.rowsLogged += rowsLogged;
+
+        if (metrics != null) {
+            if (this.metrics == null) {
+                this.metrics = metrics;
+            } else {
+                this.metrics.merge(metrics);
+            }
+        }
+
+        if (profiler != null) {
+            if (this.profiler == null) {
+                this.profiler = profiler;
+            } else if (this.profiler.isMergeable(profiler)) {
+                this.profiler.merge(profiler);
+            } else {
+                profilesMismatched = true;
+            }
+        }
+
+        if (driftDetector != null) {
+            if (this.driftDetector == null) {
+                this.driftDetector = driftDetector;
+            } else {
+                this.driftDetector.merge(driftDetector);
+            }
+        }
+
+        if (digest != null) {
+            if (this.digest == null) {
+                this.digest = digest;
+            } else {
+                this.digest.merge(digest);
+            }
+        }
+
+        contributed++;
+        return --pending == 0;
+    }
+
+    synchronized int getContributed() {
+        return contributed;
+    }
+
+    /**
+     * Get the copies that failed or were stopped before they reached the end of their stream.
+     *
+     * @return the numbers of the copies.
+     */
+    synchronized Set<Integer> getUnfinishedCopies() {
+        return Collections.unmodifiableSet(new TreeSet<>(unfinishedCopies));
+    }
+
+    synchronized long getRows() {
+        return rows;
+    }
+
+    synchronized long getRowsLogged() {
+        return rowsLogged;
+    }
+
+    synchronized RowMetrics getMetrics() {
+        return metrics;
+    }
+
+    synchronized RowProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Determines whether the profiles of some copies could not be merged,
+     * as the copies received rows with different metadata.
+     *
+     * @return true if some profiles were not merged.
+     */
+    synchronized boolean isProfilesMismatched() {
+        return profilesMismatched;
+    }
+
+    synchronized RowDriftDetector getDriftDetector() {
+        return driftDetector;
+    }
+
+    synchronized RowDigest getDigest() {
+        return digest;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+/**
+ * A Count-Min Sketch estimator of the number of times each value occurs in a stream.
+ *
+ * Uses {@link #DEPTH} rows of 2^{@link #WIDTH_BITS} counters, so that memory use is a fixed
+ * 64 KB regardless of the number of values added. An estimate is never less than the true count,
+ * and with a probability of 1 - e^-{@link #DEPTH} (about 98%) exceeds it by no more than
+ * e / 2^{@link #WIDTH_BITS} (about 0.13%) of the number of values added.
+ *
+ * Counters are updated conservatively, i.e. only those counters of a value that hold its
+ * current estimate are incremented, which reduces the over-estimation for infrequent values.
+ *
+ * Instances are not thread-safe.
+ */
+final class CountMinSketch {
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH_BITS = 11;
+    private static final int WIDTH = 1 << WIDTH_BITS;
+    private static final int WIDTH_MASK = WIDTH - 1;
+
+    private final long[] counters = new long[DEPTH * WIDTH];
+    private long total;
+
+    /**
+     * Adds a value to the estimator.
+     *
+     * @param hash a well mixed 64 bit hash of the value, see {@link Hashing}.
+     *
+     * @return the estimated number of times that the value has been added, including this time.
+     */
+    long add(final long hash) {
+        total++;
+
+        // the counter of each row is chosen by a separate slice of the bits of the hash,
+        // so that values which collide in one row are no more likely to collide in the others
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            final long count = counters[(i * WIDTH) + ((int) (hash >>> (i * WIDTH_BITS)) & WIDTH_MASK)];
+            if (count < estimate) {
+                estimate = count;
+            }
+        }
+
+        for (int i = 0; i < DEPTH; i++) {
+            final int idx = (i * WIDTH) + ((int) (hash >>> (i * WIDTH_BITS)) & WIDTH_MASK);
+            if (counters[idx] == estimate) {
+                counters[idx] = estimate + 1;
+            }
+        }
+
+        return estimate + 1;
+    }
+
+    /**
+     * Get the number of values that have been added.
+     *
+     * @return the number of values.
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the bound on the over-estimation of a count, which holds with a probability of about 98%.
+     *
+     * @return the maximum number of times by which an estimate may exceed the true count.
+     */
+    long getErrorBound() {
+        return (long) Math.ceil(Math.E * total / WIDTH);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Detects rows whose key fields have the same values as those of an earlier row.
+ *
+ * The key of each row is encoded into a reused buffer by a {@link RowEncoder} and hashed,
+ * so that no String or other object is created for it. Most keys are new, and are
+ * identified as such by a {@link BloomFilter}. A key that the Bloom filter may have seen
+ * before is confirmed as a duplicate against an {@link ExactKeySet} of the keys seen so far.
+ * While every key has fitted in the exact set, a key that is not in it is a false positive of
+ * the Bloom filter, but once the exact set is full, such a key can only be counted as a
+ * possible duplicate.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class DuplicateDetector {
+
+    static final int UNIQUE = 0;
+    static final int DUPLICATE = 1;
+    static final int POSSIBLE_DUPLICATE = 2;
+
+    private final String[] fieldNames;
+    private final List<String> unknownFields = new ArrayList<>();
+    private final RowEncoder encoder;
+    private final BloomFilter bloomFilter;
+    private final ExactKeySet exactKeys;
+
+    /**
+     * True while every key so far is in the exact set.
+     */
+    private boolean exact = true;
+
+    private long rows;
+    private long duplicates;
+    private long possibleDuplicates;
+
+    /**
+     * The number of rows checked since the exact set became full.
+     */
+    private long inexactRows;
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param fieldNames the names of the key fields.
+     * @param expectedKeys the number of distinct keys that are expected.
+     * @param falsePositiveRate the false positive rate of the Bloom filter at the expected number of keys.
+     * @param exactSetSize the maximum size in bytes of the set of keys used to confirm duplicates.
+     * @param offHeap true to hold the Bloom filter off the Java heap.
+     */
+    DuplicateDetector(final RowMetaInterface rowMeta, final String[] fieldNames, final long expectedKeys,
+            final double falsePositiveRate, final long exactSetSize, final boolean offHeap) {
+        final List<String> knownFields = new ArrayList<>(fieldNames.length);
+        final int[] fieldIdxs = new int[fieldNames.length];
+        for (final String fieldName : fieldNames) {
+            final int fieldIdx = rowMeta.indexOfValue(fieldName);
+            if (fieldIdx < 0) {
+                unknownFields.add(fieldName);
+            } else {
+                fieldIdxs[knownFields.size()] = fieldIdx;
+                knownFields.add(fieldName);
+            }
+        }
+
+        this.fieldNames = knownFields.toArray(new String[0]);
+        final int[] knownFieldIdxs = new int[knownFields.size()];
+        System.arraycopy(fieldIdxs, 0, knownFieldIdxs, 0, knownFieldIdxs.length);
+        this.encoder = new RowEncoder(rowMeta, knownFieldIdxs);
+        this.bloomFilter = new BloomFilter(expectedKeys, falsePositiveRate, offHeap);
+        this.exactKeys = new ExactKeySet(exactSetSize);
+    }
+
+    /**
+     * Get the names of the key fields that are not in the row metadata.
+     *
+     * @return the names of the fields.
+     */
+    List<String> getUnknownFields() {
+        return unknownFields;
+    }
+
+    /**
+     * Checks whether the key of a row has been seen before.
+     *
+     * @param row the row.
+     *
+     * @return {@link #UNIQUE}, {@link #DUPLICATE}, or {@link #POSSIBLE_DUPLICATE}
+     *     if the row may be a duplicate but could not be confirmed as one.
+     *
+     * @throws KettleValueException if a lazily converted value cannot be converted to its native type.
+     */
+    int check(final Object[] row) throws KettleValueException {
+        rows++;
+        if (!exact) {
+            inexactRows++;
+        }
+
+        final int length = encoder.encode(row);
+        final byte[] key = encoder.getBuffer();
+        final long hash = Hashing.xxHash64(key, 0, length, 0);
+
+        if (!bloomFilter.put(hash)) {
+            addExact(hash, key, length);
+            return UNIQUE;
+        }
+
+        if (exactKeys.contains(hash, key, length)) {
+            duplicates++;
+            return DUPLICATE;
+        }
+
+        if (exact) {
+            // a false positive of the Bloom filter, as every earlier key is in the exact set
+            addExact(hash, key, length);
+            return UNIQUE;
+        }
+
+        possibleDuplicates++;
+        return POSSIBLE_DUPLICATE;
+    }
+
+    private void addExact(final long hash, final byte[] key, final int length) {
+        if (exact && !exactKeys.add(hash, key, length)) {
+            exact = false;
+        }
+    }
+
+    long getDuplicates() {
+        return duplicates;
+    }
+
+    long getPossibleDuplicates() {
+        return possibleDuplicates;
+    }
+
+    /**
+     * Summarises the duplicates found.
+     *
+     * @return the summary.
+     */
+    String summary() {
+        final StringBuilder buf = new StringBuilder(256);
+        buf.append("Duplicate keys of (").append(String.join(", ", fieldNames)).append(") in ")
+                .append(rows).append(" rows: ").append(duplicates).append(" duplicates");
+        if (possibleDuplicates > 0) {
+            buf.append(", and ").append(possibleDuplicates)
+                    .append(" possible duplicates that could not be confirmed, as the exact key set was full after ")
+                    .append(exactKeys.size()).append(" keys")
+                    .append(String.format(Locale.ROOT, " (up to about %.0f of them may be false positives)",
+                            Math.min(possibleDuplicates, inexactRows * bloomFilter.getFalsePositiveRate())));
+        }
+        buf.append(String.format(Locale.ROOT, "; Bloom filter of %.1f MB with %d hashes, current false positive rate %.4f%%",
+                bloomFilter.getSize() / (1024d * 1024d), bloomFilter.getHashes(), bloomFilter.getFalsePositiveRate() * 100));
+        return buf.toString();
+    }
+}
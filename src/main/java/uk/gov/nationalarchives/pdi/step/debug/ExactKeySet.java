@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+/**
+ * A set of encoded keys, bounded by a maximum size in bytes.
+ *
+ * The keys are copied one after another into a single byte array, and found through an
+ * open addressing hash table of their hashes and offsets, so that adding a key does not
+ * create an object for it. Both arrays grow as keys are added, until the maximum size
+ * is reached, after which no more keys can be added.
+ *
+ * Instances are not thread-safe.
+ */
+final class ExactKeySet {
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_KEY_BYTES = 64 * 1024;
+
+    /**
+     * The size in bytes of a slot of the hash table: the hash of the key and its offset.
+     */
+    private static final int SLOT_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final long maxSize;
+
+    private byte[] keyBytes = new byte[INITIAL_KEY_BYTES];
+    private int keyBytesUsed;
+
+    private long[] slotHashes = new long[INITIAL_SLOTS];
+
+    /**
+     * The offset of each key in {@link #keyBytes} plus 1, or 0 for an empty slot.
+     */
+    private int[] slotOffsets = new int[INITIAL_SLOTS];
+    private int size;
+
+    /**
+     * @param maxSize the maximum size of the set in bytes.
+     */
+    ExactKeySet(final long maxSize) {
+        this.maxSize = Math.min(maxSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determines whether the set contains a key.
+     *
+     * @param hash the hash of the key.
+     * @param key the buffer holding the key.
+     * @param length the length of the key at the start of the buffer.
+     *
+     * @return true if the set contains the key.
+     */
+    boolean contains(final long hash, final byte[] key, final int length) {
+        final int mask = slotOffsets.length - 1;
+        for (int slot = (int) hash & mask; slotOffsets[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotHashes[slot] == hash && equalsKey(slotOffsets[slot] - 1, key, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean equalsKey(final int offset, final byte[] key, final int length) {
+        if (getInt(offset) != length) {
+            return false;
+        }
+        final int start = offset + Integer.BYTES;
+        for (int i = 0; i < length; i++) {
+            if (keyBytes[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a key that is not already in the set.
+     *
+     * @param hash the hash of the key.
+     * @param key the buffer holding the key.
+     * @param length the length of the key at the start of the buffer.
+     *
+     * @return true if the key was added, false if the set has reached its maximum size.
+     */
+    boolean add(final long hash, final byte[] key, final int length) {
+        if ((size + 1) * 2 > slotOffsets.length && !growSlots()) {
+            return false;
+        }
+        final int required = keyBytesUsed + Integer.BYTES + length;
+        if (required > keyBytes.length && !growKeyBytes(required)) {
+            return false;
+        }
+
+        final int offset = keyBytesUsed;
+        putInt(offset, length);
+        System.arraycopy(key, 0, keyBytes, offset + Integer.BYTES, length);
+        keyBytesUsed = required;
+
+        final int mask = slotOffsets.length - 1;
+        int slot = (int) hash & mask;
+        while (slotOffsets[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slotHashes[slot] = hash;
+        slotOffsets[slot] = offset + 1;
+        size++;
+        return true;
+    }
+
+    private boolean growSlots() {
+        final int slots = slotOffsets.length * 2;
+        if (keyBytes.length + ((long) slots * SLOT_BYTES) > maxSize) {
+            return false;
+        }
+
+        final long[] oldHashes = slotHashes;
+        final int[] oldOffsets = slotOffsets;
+        slotHashes = new long[slots];
+        slotOffsets = new int[slots];
+        final int mask = slots - 1;
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (oldOffsets[i] != 0) {
+                int slot = (int) oldHashes[i] & mask;
+                while (slotOffsets[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slotHashes[slot] = oldHashes[i];
+                slotOffsets[slot] = oldOffsets[i];
+            }
+        }
+        return true;
+    }
+
+    private boolean growKeyBytes(final int required) {
+        final long available = maxSize - ((long) slotOffsets.length * SLOT_BYTES);
+        final long length = Math.min(Math.max(required, keyBytes.length * 2L), available);
+        if (length < required) {
+            return false;
+        }
+
+        final byte[] newKeyBytes = new byte[(int) length];
+        System.arraycopy(keyBytes, 0, newKeyBytes, 0, keyBytesUsed);
+        keyBytes = newKeyBytes;
+        return true;
+    }
+
+    private int getInt(final int offset) {
+        return (keyBytes[offset] & 0xff)
+                | ((keyBytes[offset + 1] & 0xff) << 8)
+                | ((keyBytes[offset + 2] & 0xff) << 16)
+                | ((keyBytes[offset + 3] & 0xff) << 24);
+    }
+
+    private void putInt(final int offset, final int value) {
+        keyBytes[offset] = (byte) value;
+        keyBytes[offset + 1] = (byte) (value >>> 8);
+        keyBytes[offset + 2] = (byte) (value >>> 16);
+        keyBytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    int size() {
+        return size;
+    }
+}
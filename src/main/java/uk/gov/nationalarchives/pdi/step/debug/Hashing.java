@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+/**
+ * Fast, non-cryptographic 64 bit hash functions
+ * for use by the probabilistic data structures.
+ */
+final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long XXH_PRIME_1 = 0x9e3779b185ebca87L;
+    private static final long XXH_PRIME_2 = 0xc2b2ae3d27d4eb4fL;
+    private static final long XXH_PRIME_3 = 0x165667b19e3779f9L;
+    private static final long XXH_PRIME_4 = 0x85ebca77c2b2ae63L;
+    private static final long XXH_PRIME_5 = 0x27d4eb2f165667c5L;
+
+    private Hashing() {
+    }
+
+    /**
+     * The finalisation mix of MurmurHash3, which spreads
+     * the bits of the value across the whole of the hash.
+     *
+     * @param value the value to hash.
+     *
+     * @return the hash.
+     */
+    static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Hashes the characters of a string.
+     *
+     * @param str the string.
+     *
+     * @return the hash.
+     */
+    static long hash(final CharSequence str) {
+        long h = FNV_OFFSET_BASIS;
+        final int len = str.length();
+        for (int i = 0; i < len; i++) {
+            h ^= str.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return mix64(h);
+    }
+
+    /**
+     * Hashes an array of bytes.
+     *
+     * @param bytes the bytes.
+     *
+     * @return the hash.
+     */
+    static long hash(final byte[] bytes) {
+        long h = FNV_OFFSET_BASIS;
+        for (final byte b : bytes) {
+            h ^= b & 0xff;
+            h *= FNV_PRIME;
+        }
+        return mix64(h);
+    }
+
+    /**
+     * Hashes a range of bytes with XXH64, which processes
+     * 32 bytes at a time, and so is much faster than FNV-1a for long inputs.
+     *
+     * @param buf the buffer holding the bytes.
+     * @param offset the offset of the first byte in the buffer.
+     * @param length the number of bytes.
+     * @param seed the seed.
+     *
+     * @return the hash.
+     */
+    static long xxHash64(final byte[] buf, int offset, final int length, final long seed) {
+        final int end = offset + length;
+        long h;
+
+        if (length >= 32) {
+            long v1 = seed + XXH_PRIME_1 + XXH_PRIME_2;
+            long v2 = seed + XXH_PRIME_2;
+            long v3 = seed;
+            long v4 = seed - XXH_PRIME_1;
+            final int limit = end - 32;
+            do {
+                v1 = xxRound(v1, getLongLE(buf, offset));
+                v2 = xxRound(v2, getLongLE(buf, offset + 8));
+                v3 = xxRound(v3, getLongLE(buf, offset + 16));
+                v4 = xxRound(v4, getLongLE(buf, offset + 24));
+                offset += 32;
+            } while (offset <= limit);
+
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = xxMergeRound(h, v1);
+            h = xxMergeRound(h, v2);
+            h = xxMergeRound(h, v3);
+            h = xxMergeRound(h, v4);
+        } else {
+            h = seed + XXH_PRIME_5;
+        }
+
+        h += length;
+
+        while (offset + 8 <= end) {
+            h ^= xxRound(0, getLongLE(buf, offset));
+            h = Long.rotateLeft(h, 27) * XXH_PRIME_1 + XXH_PRIME_4;
+            offset += 8;
+        }
+        if (offset + 4 <= end) {
+            h ^= (getIntLE(buf, offset) & 0xffffffffL) * XXH_PRIME_1;
+            h = Long.rotateLeft(h, 23) * XXH_PRIME_2 + XXH_PRIME_3;
+            offset += 4;
+        }
+        while (offset < end) {
+            h ^= (buf[offset] & 0xff) * XXH_PRIME_5;
+            h = Long.rotateLeft(h, 11) * XXH_PRIME_1;
+            offset++;
+        }
+
+        h ^= h >>> 33;
+        h *= XXH_PRIME_2;
+        h ^= h >>> 29;
+        h *= XXH_PRIME_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long xxRound(long acc, final long input) {
+        acc += input * XXH_PRIME_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * XXH_PRIME_1;
+    }
+
+    private static long xxMergeRound(final long acc, final long value) {
+        return (acc ^ xxRound(0, value)) * XXH_PRIME_1 + XXH_PRIME_4;
+    }
+
+    private static long getLongLE(final byte[] buf, final int offset) {
+        return (buf[offset] & 0xffL)
+                | (buf[offset + 1] & 0xffL) << 8
+                | (buf[offset + 2] & 0xffL) << 16
+                | (buf[offset + 3] & 0xffL) << 24
+                | (buf[offset + 4] & 0xffL) << 32
+                | (buf[offset + 5] & 0xffL) << 40
+                | (buf[offset + 6] & 0xffL) << 48
+                | (buf[offset + 7] & 0xffL) << 56;
+    }
+
+    private static int getIntLE(final byte[] buf, final int offset) {
+        return (buf[offset] & 0xff)
+                | (buf[offset + 1] & 0xff) << 8
+                | (buf[offset + 2] & 0xff) << 16
+                | (buf[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tracks the most frequent values of selected fields of a stream of rows,
+ * to find the key values that would dominate a partitioning of the stream.
+ *
+ * For each field, the number of occurrences of every value is estimated by a
+ * {@link CountMinSketch}, and the K values with the highest estimates are kept
+ * in a min-heap. A value only needs to be looked up in the heap when its estimate
+ * exceeds the smallest count in the heap, so the long tail of infrequent values
+ * costs just the sketch update. Memory use is fixed by the number of fields and K,
+ * regardless of the number of rows or distinct values.
+ *
+ * The values of redacted fields are reported as their salted hashes.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class HeavyHitters {
+
+    private static final String EOL = System.getProperty("line.separator");
+
+    private static final String NULL_LABEL = "<null>";
+    private static final int MAX_LABEL_LENGTH = 100;
+    private static final long NULL_HASH = Hashing.mix64(0x6e756c6cL);
+
+    /**
+     * Whether a periodic report is due is only checked once every this many rows.
+     */
+    private static final int REPORT_CHECK_INTERVAL = 1024;
+
+    private final String[] fieldNames;
+    private final int[] fieldIdxs;
+    private final ValueMetaInterface[] valueMetas;
+    private final boolean[] redacted;
+
+    /**
+     * For each field, whether lazily converted values can be hashed from their bytes,
+     * as equal values always have equal bytes.
+     */
+    private final boolean[] binaryStrings;
+
+    private final TopK[] topKs;
+    private final List<String> unknownFields = new ArrayList<>();
+
+    private final long intervalNanos;
+    private long nextReportNanos;
+    private long rows;
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param fieldNames the names of the fields whose values are tracked.
+     * @param k the number of most frequent values to report for each field.
+     * @param intervalSeconds the interval between reports, or 0 to only report at the end of the stream.
+     * @param redactions the redactions of the fields, or null if no fields are redacted.
+     */
+    HeavyHitters(final RowMetaInterface rowMeta, final String[] fieldNames, final int k, final int intervalSeconds,
+            final Redactions redactions) {
+        final List<String> knownFields = new ArrayList<>(fieldNames.length);
+        final int[] fieldIdxs = new int[fieldNames.length];
+        for (final String fieldName : fieldNames) {
+            final int fieldIdx = rowMeta.indexOfValue(fieldName);
+            if (fieldIdx < 0) {
+                unknownFields.add(fieldName);
+            } else {
+                fieldIdxs[knownFields.size()] = fieldIdx;
+                knownFields.add(fieldName);
+            }
+        }
+
+        final int fields = knownFields.size();
+        this.fieldNames = knownFields.toArray(new String[0]);
+        this.fieldIdxs = new int[fields];
+        this.valueMetas = new ValueMetaInterface[fields];
+        this.redacted = new boolean[fields];
+        this.binaryStrings = new boolean[fields];
+        this.topKs = new TopK[fields];
+        for (int i = 0; i < fields; i++) {
+            final int fieldIdx = fieldIdxs[i];
+            final ValueMetaInterface valueMeta = rowMeta.getValueMeta(fieldIdx);
+            this.fieldIdxs[i] = fieldIdx;
+            valueMetas[i] = valueMeta;
+            redacted[i] = redactions != null && redactions.get(fieldIdx) != null;
+            binaryStrings[i] = valueMeta.isStorageBinaryString()
+                    && ValueMetaInterface.TYPE_STRING == valueMeta.getType()
+                    && ValueMetaInterface.TRIM_TYPE_NONE == valueMeta.getTrimType();
+            topKs[i] = new TopK(Math.max(1, k));
+        }
+
+        this.intervalNanos = intervalSeconds > 0 ? intervalSeconds * 1_000_000_000L : Long.MAX_VALUE;
+        this.nextReportNanos = intervalSeconds > 0 ? System.nanoTime() + intervalNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the names of the selected fields that are not in the row metadata.
+     *
+     * @return the names of the fields.
+     */
+    List<String> getUnknownFields() {
+        return unknownFields;
+    }
+
+    /**
+     * Records the values of the selected fields of a row.
+     *
+     * @param row the row.
+     *
+     * @return true if a periodic report is due.
+     *
+     * @throws KettleValueException if a lazily converted value cannot be converted to its native type.
+     */
+    boolean record(final Object[] row) throws KettleValueException {
+        rows++;
+
+        for (int i = 0; i < fieldIdxs.length; i++) {
+            final int fieldIdx = fieldIdxs[i];
+            // values missing from the end of an under-run row are counted as nulls
+            Object value = fieldIdx < row.length ? row[fieldIdx] : null;
+
+            final ValueMetaInterface valueMeta = valueMetas[i];
+            if (value != null && valueMeta.isStorageIndexed() && value instanceof Integer) {
+                final Object[] index = valueMeta.getIndex();
+                final int idx = (Integer) value;
+                value = index != null && idx >= 0 && idx < index.length ? index[idx] : null;
+            }
+
+            final long hash;
+            if (value == null) {
+                hash = NULL_HASH;
+            } else if (valueMeta.isStorageBinaryString() && value instanceof byte[]) {
+                if (binaryStrings[i]) {
+                    hash = Hashing.hash((byte[]) value);
+                } else {
+                    value = valueMeta.convertBinaryStringToNativeType((byte[]) value);
+                    hash = value == null ? NULL_HASH : hash(value);
+                }
+            } else {
+                hash = hash(value);
+            }
+
+            final int slot = topKs[i].add(hash);
+            if (slot >= 0) {
+                // the value has just entered the top K, so it is only formatted now
+                topKs[i].labels[slot] = label(i, value);
+            }
+        }
+
+        return (rows & (REPORT_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() >= nextReportNanos;
+    }
+
+    private static long hash(final Object value) {
+        if (value instanceof String) {
+            return Hashing.hash((String) value);
+        } else if (value instanceof Long) {
+            return Hashing.mix64((Long) value);
+        } else if (value instanceof Double) {
+            final double d = (Double) value;
+            // -0.0 and 0.0 are equal, and doubleToLongBits collapses all NaNs to one value
+            return Hashing.mix64(d == 0.0 ? 0L : Double.doubleToLongBits(d));
+        } else if (value instanceof Timestamp) {
+            return Hashing.mix64(((Timestamp) value).getTime() ^ ((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            return Hashing.mix64(((Date) value).getTime());
+        } else if (value instanceof Boolean) {
+            return Hashing.mix64((Boolean) value ? 1 : 2);
+        } else if (value instanceof BigDecimal) {
+            // normalised so that equal values with different scales, e.g. 1.0 and 1.00, are counted together
+            return Hashing.hash(((BigDecimal) value).stripTrailingZeros().toString());
+        } else if (value instanceof byte[]) {
+            return Hashing.hash((byte[]) value);
+        } else {
+            return Hashing.hash(value.toString());
+        }
+    }
+
+    private String label(final int fieldIdx, final Object value) throws KettleValueException {
+        if (value == null) {
+            return NULL_LABEL;
+        }
+
+        final ValueMetaInterface valueMeta = valueMetas[fieldIdx];
+        final boolean lazy = valueMeta.isStorageBinaryString() && value instanceof byte[];
+        if (redacted[fieldIdx]) {
+            return Redactions.appendHash(new StringBuilder(), lazy ? valueMeta.getString(value) : value).toString();
+        }
+
+        // indexed and converted lazy values have already been resolved to their native values
+        final String str = lazy || valueMeta.isStorageNormal() ? valueMeta.getString(value) : value.toString();
+        if (str == null) {
+            return NULL_LABEL;
+        }
+        if (str.length() > MAX_LABEL_LENGTH) {
+            return "'" + str.substring(0, MAX_LABEL_LENGTH) + "...'";
+        }
+        return "'" + str + "'";
+    }
+
+    /**
+     * Reports the most frequent values of each of the selected fields.
+     *
+     * @return the report.
+     */
+    String report() {
+        nextReportNanos = intervalNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + intervalNanos;
+
+        final StringBuilder buf = new StringBuilder(256);
+        buf.append("Most frequent values in ").append(rows).append(" rows");
+        if (topKs.length > 0) {
+            buf.append(" (estimated counts, which may exceed the true counts by up to ")
+                    .append(topKs[0].sketch.getErrorBound())
+                    .append(")");
+        }
+        buf.append(":");
+
+        for (int i = 0; i < topKs.length; i++) {
+            final TopK topK = topKs[i];
+            buf.append(EOL).append(fieldNames[i]).append(":");
+
+            // the heap is only partially ordered, so sort its slots by descending count
+            final Integer[] slots = new Integer[topK.size];
+            for (int j = 0; j < slots.length; j++) {
+                slots[j] = j;
+            }
+            Arrays.sort(slots, (a, b) -> Long.compare(topK.counts[b], topK.counts[a]));
+
+            for (int j = 0; j < slots.length; j++) {
+                final long count = topK.counts[slots[j]];
+                buf.append(EOL).append("  ").append(j + 1).append(". ")
+                        .append(topK.labels[slots[j]])
+                        .append(" = ").append(count)
+                        .append(String.format(Locale.ROOT, " (%.1f%%)", rows == 0 ? 0.0 : 100.0 * count / rows));
+            }
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * The count estimator of a field, and a min-heap of the K values with the highest estimated counts.
+     */
+    private static final class TopK {
+        final CountMinSketch sketch = new CountMinSketch();
+        final long[] hashes;
+        final long[] counts;
+        final String[] labels;
+        int size;
+
+        TopK(final int k) {
+            this.hashes = new long[k];
+            this.counts = new long[k];
+            this.labels = new String[k];
+        }
+
+        /**
+         * Adds a value.
+         *
+         * @param hash the hash of the value.
+         *
+         * @return the slot of the value in the heap if it has just entered the heap, and so needs a label,
+         *     otherwise -1.
+         */
+        int add(final long hash) {
+            final long estimate = sketch.add(hash);
+
+            // an estimate grows by exactly 1 per add, so a value in the heap always has an estimate
+            // greater than the smallest count in the heap
+            if (size == hashes.length && estimate <= counts[0]) {
+                return -1;
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == hash) {
+                    counts[i] = estimate;
+                    siftDown(i);
+                    return -1;
+                }
+            }
+
+            if (size < hashes.length) {
+                final int slot = size++;
+                hashes[slot] = hash;
+                counts[slot] = estimate;
+                return siftUp(slot);
+            }
+
+            // replace the value with the smallest count
+            hashes[0] = hash;
+            counts[0] = estimate;
+            return siftDown(0);
+        }
+
+        private int siftUp(int slot) {
+            while (slot > 0) {
+                final int parent = (slot - 1) >>> 1;
+                if (counts[parent] <= counts[slot]) {
+                    break;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+            return slot;
+        }
+
+        private int siftDown(int slot) {
+            while (true) {
+                final int left = (slot << 1) + 1;
+                if (left >= size) {
+                    return slot;
+                }
+                final int right = left + 1;
+                final int smallest = right < size && counts[right] < counts[left] ? right : left;
+                if (counts[slot] <= counts[smallest]) {
+                    return slot;
+                }
+                swap(slot, smallest);
+                slot = smallest;
+            }
+        }
+
+        private void swap(final int i, final int j) {
+            final long hash = hashes[i];
+            hashes[i] = hashes[j];
+            hashes[j] = hash;
+            final long count = counts[i];
+            counts[i] = counts[j];
+            counts[j] = count;
+            final String label = labels[i];
+            labels[i] = labels[j];
+            labels[j] = label;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes rows as JSON Lines, one JSON object per row with a member per field.
+ *
+ * Values are written with the JSON type that corresponds to their {@link ValueMetaInterface}:
+ * Integer, Number and BigNumber as numbers, Boolean as booleans, Date and Timestamp as
+ * ISO-8601 strings in UTC, Binary as Base64 strings, and everything else as strings.
+ * Redacted fields are left out, or written as strings of their masked, hashed or prefixed value.
+ *
+ * Rows are encoded into a reusable buffer that is written sequentially to a {@link FileChannel},
+ * optionally gzip compressed. When a maximum file size is set, a new file is started once
+ * the current file reaches that size.
+ */
+final class JsonLinesRowWriter implements RowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ValueMetaInterface[] valueMetas;
+    private final String[] memberPrefixes;
+    private final Redactions redactions;
+
+    private final Path path;
+    private final long maxFileSize;
+    private final boolean gzip;
+
+    private final StringBuilder line = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private int fileSequence;
+    private FileChannel channel;
+    private OutputStream gzipStream;
+
+    /**
+     * @param rowMeta the metadata of the rows to write.
+     * @param path the file to write to.
+     * @param maxFileSize the size in bytes at which to start a new file, or 0 to never start a new file.
+     * @param gzip true to gzip compress the file.
+     * @param redactions the redactions to apply to the values, or null if no fields are redacted.
+     *
+     * @throws KettleException if the file cannot be opened.
+     */
+    JsonLinesRowWriter(final RowMetaInterface rowMeta, final Path path, final long maxFileSize, final boolean gzip,
+            final Redactions redactions) throws KettleException {
+        this.valueMetas = new ValueMetaInterface[rowMeta.size()];
+        this.memberPrefixes = new String[rowMeta.size()];
+        this.redactions = redactions;
+        final StringBuilder buf = new StringBuilder();
+        boolean firstMember = true;
+        for (int i = 0; i < valueMetas.length; i++) {
+            valueMetas[i] = rowMeta.getValueMeta(i);
+            if (redactions != null && redactions.isDropped(i)) {
+                // a null prefix marks a dropped field
+                continue;
+            }
+            buf.setLength(0);
+            if (!firstMember) {
+                buf.append(',');
+            }
+            appendString(buf, valueMetas[i].getName());
+            buf.append(':');
+            memberPrefixes[i] = buf.toString();
+            firstMember = false;
+        }
+
+        this.path = gzip && !path.toString().endsWith(GZIP_EXTENSION) ? path.resolveSibling(path.getFileName() + GZIP_EXTENSION) : path;
+        this.maxFileSize = maxFileSize;
+        this.gzip = gzip;
+
+        open();
+    }
+
+    private void open() throws KettleException {
+        final Path file = fileSequence == 0 ? path : sequencePath(path, fileSequence);
+        try {
+            final Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            if (gzip) {
+                gzipStream = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            }
+        } catch (final IOException e) {
+            throw new KettleException("Unable to open JSON Lines file: " + file + ". " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserts a sequence number before the extension(s) of a file name,
+     * e.g. {@code rows.jsonl.gz} becomes {@code rows.1.jsonl.gz}.
+     */
+    static Path sequencePath(final Path path, final int sequence) {
+        final String fileName = path.getFileName().toString();
+        final int idxExtension = fileName.indexOf('.', 1);
+        final String sequenced;
+        if (idxExtension > 0) {
+            sequenced = fileName.substring(0, idxExtension) + "." + sequence + fileName.substring(idxExtension);
+        } else {
+            sequenced = fileName + "." + sequence;
+        }
+        return path.resolveSibling(sequenced);
+    }
+
+    @Override
+    public void write(final Object[] row) throws KettleException {
+        line.setLength(0);
+        line.append('{');
+        try {
+            for (int i = 0; i < valueMetas.length; i++) {
+                if (memberPrefixes[i] == null) {
+                    continue;
+                }
+                line.append(memberPrefixes[i]);
+                final RedactionAction action = redactions != null ? redactions.get(i) : null;
+                if (action == null) {
+                    appendValue(valueMetas[i], i < row.length ? row[i] : null);
+                } else {
+                    appendRedacted(i, valueMetas[i], i < row.length ? row[i] : null, action);
+                }
+            }
+        } catch (final KettleValueException e) {
+            throw new KettleException("Unable to write row as JSON: " + e.getMessage(), e);
+        }
+        line.append('}').append('\n');
+
+        try {
+            encode(line);
+            if (maxFileSize > 0 && fileSize() >= maxFileSize) {
+                rotate();
+            }
+        } catch (final IOException e) {
+            throw new KettleException("Unable to write to JSON Lines file: " + path + ". " + e.getMessage(), e);
+        }
+    }
+
+    private void appendValue(final ValueMetaInterface valueMeta, final Object value) throws KettleValueException {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+
+        final Object nativeValue = valueMeta.isStorageNormal() ? value : valueMeta.getNativeDataType(value);
+        if (nativeValue == null) {
+            line.append("null");
+            return;
+        }
+
+        switch (valueMeta.getType()) {
+            case ValueMetaInterface.TYPE_INTEGER:
+                line.append(((Long) nativeValue).longValue());
+                break;
+
+            case ValueMetaInterface.TYPE_NUMBER:
+                final double d = (Double) nativeValue;
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    appendString(line, Double.toString(d));
+                } else {
+                    line.append(d);
+                }
+                break;
+
+            case ValueMetaInterface.TYPE_BIGNUMBER:
+                line.append(((BigDecimal) nativeValue).toPlainString());
+                break;
+
+            case ValueMetaInterface.TYPE_BOOLEAN:
+                line.append(((Boolean) nativeValue).booleanValue());
+                break;
+
+            case ValueMetaInterface.TYPE_DATE:
+            case ValueMetaInterface.TYPE_TIMESTAMP:
+                line.append('"');
+                DateTimeFormatter.ISO_INSTANT.formatTo(instant((Date) nativeValue), line);
+                line.append('"');
+                break;
+
+            case ValueMetaInterface.TYPE_BINARY:
+                appendString(line, Base64.getEncoder().encodeToString((byte[]) nativeValue));
+                break;
+
+            default:
+                appendString(line, nativeValue.toString());
+                break;
+        }
+    }
+
+    /**
+     * Converts a date to an instant, without {@link Date#toInstant()} which is not supported by
+     * {@link java.sql.Date} and {@link java.sql.Time}, and keeping the nanoseconds of a {@link Timestamp}.
+     */
+    static Instant instant(final Date date) {
+        final Instant instant = Instant.ofEpochMilli(date.getTime());
+        if (date instanceof Timestamp) {
+            // getTime already includes the milliseconds of the nanoseconds
+            return instant.plusNanos(((Timestamp) date).getNanos() % 1_000_000);
+        }
+        return instant;
+    }
+
+    private void appendRedacted(final int fieldIdx, final ValueMetaInterface valueMeta, final Object value,
+            final RedactionAction action) throws KettleValueException {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+
+        if (RedactionAction.MASK == action) {
+            line.append('"').append(Redactions.MASK).append('"');
+            return;
+        }
+
+        final Object nativeValue = valueMeta.isStorageNormal() ? value : valueMeta.getNativeDataType(value);
+        if (nativeValue == null) {
+            line.append("null");
+            return;
+        }
+
+        line.append('"');
+        if (RedactionAction.HASH == action) {
+            Redactions.appendHash(line, nativeValue);
+        } else {
+            // binary values have no meaningful prefix, and the mask is always appended,
+            // so as not to reveal whether the value was longer than the prefix
+            if (!(nativeValue instanceof byte[])) {
+                final String str = nativeValue.toString();
+                appendEscaped(line, str, Math.min(str.length(), redactions.getPrefixLength(fieldIdx)));
+            }
+            line.append(Redactions.MASK);
+        }
+        line.append('"');
+    }
+
+    private static void appendString(final StringBuilder buf, final String str) {
+        buf.append('"');
+        appendEscaped(buf, str, str.length());
+        buf.append('"');
+    }
+
+    private static void appendEscaped(final StringBuilder buf, final String str, final int len) {
+        for (int i = 0; i < len; i++) {
+            final char c = str.charAt(i);
+            switch (c) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buf.append("\\u00").append(HEX[c >>> 4]).append(HEX[c & 0xf]);
+                    } else {
+                        buf.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Encodes characters as UTF-8 into the buffer, writing the buffer out whenever it fills.
+     */
+    private void encode(final CharSequence chars) throws IOException {
+        final int len = chars.length();
+        for (int i = 0; i < len; i++) {
+            if (buffer.remaining() < 4) {
+                flushBuffer();
+            }
+
+            final char c = chars.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, chars.charAt(++i));
+                buffer.put((byte) (0xf0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (cp & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');  // unpaired surrogate
+            } else {
+                buffer.put((byte) (0xe0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        if (gzip) {
+            gzipStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Get the size of the current file, including any data not yet written out from the buffer.
+     */
+    private long fileSize() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    private void rotate() throws KettleException, IOException {
+        closeFile();
+        fileSequence++;
+        open();
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            flushBuffer();
+            if (gzip) {
+                gzipStream.close();  // also closes the channel
+            }
+        } finally {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+            gzipStream = null;
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() throws KettleException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            closeFile();
+        } catch (final IOException e) {
+            throw new KettleException("Unable to close JSON Lines file: " + path + ". " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.util.Locale;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds, in the style of an HDR histogram.
+ *
+ * Values are counted in log-linear buckets: one bucket per power of two,
+ * each split into {@link #SUB_BUCKETS} linear sub-buckets, giving a relative
+ * error of at most 1/{@link #SUB_BUCKETS} with no allocation when recording.
+ *
+ * Instances are not thread-safe.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private long sum;
+
+    void record(final long value) {
+        final long v = Math.max(0, value);
+        counts[bucketIndex(v)]++;
+        count++;
+        sum += v;
+        if (v < min) {
+            min = v;
+        }
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    private static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);  // >= SUB_BUCKET_BITS
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return ((shift + 1) * SUB_BUCKETS) + subBucket;
+    }
+
+    /**
+     * Get the highest value that could have been counted in a bucket.
+     */
+    private static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index / SUB_BUCKETS) - 1;
+        final long subBucket = index % SUB_BUCKETS;
+        final long upperBound = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get an estimate of a percentile.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     *
+     * @return the estimated value at the percentile.
+     */
+    long getPercentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil((percentile / 100d) * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    void add(final LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Formats a summary of the histogram, with the durations in microseconds.
+     *
+     * @param buf the buffer to format the summary into.
+     *
+     * @return the buffer.
+     */
+    StringBuilder appendSummary(final StringBuilder buf) {
+        return buf.append("count=").append(count)
+                .append(", min=").append(micros(getMin()))
+                .append("us, mean=").append(micros((long) getMean()))
+                .append("us, p50=").append(micros(getPercentile(50)))
+                .append("us, p90=").append(micros(getPercentile(90)))
+                .append("us, p99=").append(micros(getPercentile(99)))
+                .append("us, p99.9=").append(micros(getPercentile(99.9)))
+                .append("us, max=").append(micros(getMax()))
+                .append("us");
+    }
+
+    private static String micros(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000d);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+/**
+ * The immutable combination of error and non-error log settings
+ * that the Log Row step is currently using.
+ */
+final class LogMode {
+
+    final ErrorLogCase errorLogCase;
+    final NonErrorLogDetail nonErrorLogDetail;
+
+    LogMode(final ErrorLogCase errorLogCase, final NonErrorLogDetail nonErrorLogDetail) {
+        this.errorLogCase = errorLogCase;
+        this.nonErrorLogDetail = nonErrorLogDetail;
+    }
+
+    /**
+     * Parses a log mode of the form {@code <ErrorLogCase>[,<NonErrorLogDetail>]},
+     * for example {@code ALL,ALL_DETAILED}, {@code NONE,FIRST_BASIC} or {@code ROW_UNDER_RUN}.
+     * Either part may be empty, in which case it is taken from the defaults.
+     *
+     * @param value the value to parse.
+     * @param defaults the log mode to take omitted parts from.
+     *
+     * @return the log mode.
+     *
+     * @throws IllegalArgumentException if a part is not a valid setting.
+     */
+    static LogMode parse(final String value, final LogMode defaults) {
+        final int idxSeparator = value.indexOf(',');
+        final String xErrorLogCase = (idxSeparator > -1 ? value.substring(0, idxSeparator) : value).trim();
+        final String xNonErrorLogDetail = idxSeparator > -1 ? value.substring(idxSeparator + 1).trim() : "";
+
+        final ErrorLogCase errorLogCase = xErrorLogCase.isEmpty()
+                ? defaults.errorLogCase : ErrorLogCase.valueOf(xErrorLogCase);
+        final NonErrorLogDetail nonErrorLogDetail = xNonErrorLogDetail.isEmpty()
+                ? defaults.nonErrorLogDetail : NonErrorLogDetail.valueOf(xNonErrorLogDetail);
+
+        if (errorLogCase == defaults.errorLogCase && nonErrorLogDetail == defaults.nonErrorLogDetail) {
+            return defaults;
+        }
+        return new LogMode(errorLogCase, nonErrorLogDetail);
+    }
+
+    boolean sameAs(final LogMode other) {
+        return errorLogCase == other.errorLogCase && nonErrorLogDetail == other.nonErrorLogDetail;
+    }
+
+    @Override
+    public String toString() {
+        return errorLogCase + "," + nonErrorLogDetail;
+    }
+}
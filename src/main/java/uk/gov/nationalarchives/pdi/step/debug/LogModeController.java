@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Polls a Kettle variable or a control file from a background thread
+ * for changes to the log mode of a Log Row step, so that logging can be
+ * switched on and off without restarting the transformation.
+ *
+ * The value is parsed by {@link LogMode#parse(String, LogMode)}, and each change
+ * is published as a new immutable {@link LogMode}, so that the step thread
+ * only has to read a single volatile reference for each row.
+ * When the variable is unset or empty, or the control file does not exist
+ * or is empty, the configured log mode is used.
+ */
+final class LogModeController implements Runnable {
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final LogModeControl control;
+    private final VariableSpace variables;
+    private final String variableName;
+    private final Path file;
+    private final long intervalMillis;
+    private final LogMode configured;
+    private final Consumer<LogMode> publisher;
+    private final LogChannelInterface log;
+    private final Thread thread;
+
+    private volatile boolean running;
+    private LogMode current;
+    private String lastInvalidValue;
+
+    /**
+     * @param name the name of the polling thread.
+     * @param control where to poll for the log mode.
+     * @param variables the variables to poll, when the control is {@link LogModeControl#VARIABLE}.
+     * @param target the name of the variable, or the path of the control file.
+     * @param intervalMillis the interval between polls in milliseconds.
+     * @param configured the log mode from the step settings.
+     * @param publisher receives each new log mode.
+     * @param log the log channel for reporting changes.
+     */
+    LogModeController(final String name, final LogModeControl control, final VariableSpace variables,
+            final String target, final long intervalMillis, final LogMode configured,
+            final Consumer<LogMode> publisher, final LogChannelInterface log) {
+        this.control = control;
+        this.variables = variables;
+        this.variableName = LogModeControl.VARIABLE == control ? target : null;
+        this.file = LogModeControl.FILE == control ? Paths.get(target) : null;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.configured = configured;
+        this.current = configured;
+        this.publisher = publisher;
+        this.log = log;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        // apply the initial value before the first row
+        poll();
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (final InterruptedException e) {
+                // woken to stop
+                break;
+            }
+            poll();
+        }
+    }
+
+    private void poll() {
+        final String value;
+        try {
+            value = read();
+        } catch (final IOException e) {
+            log.logError("Unable to read log mode control file: " + file + ": " + e.getMessage());
+            return;
+        }
+
+        LogMode mode = configured;
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                mode = LogMode.parse(value, configured);
+                lastInvalidValue = null;
+            } catch (final IllegalArgumentException e) {
+                if (!value.equals(lastInvalidValue)) {
+                    log.logError("Ignoring invalid log mode '" + value + "', expected <ErrorLogCase>[,<NonErrorLogDetail>]");
+                    lastInvalidValue = value;
+                }
+                return;
+            }
+        }
+
+        if (!mode.sameAs(current)) {
+            log.logBasic("Log mode changed from " + current + " to " + mode);
+            current = mode;
+            publisher.accept(mode);
+        }
+    }
+
+    private String read() throws IOException {
+        if (LogModeControl.VARIABLE == control) {
+            return variables.getVariable(variableName);
+        }
+
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    return line;
+                }
+            }
+            return null;
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops polling.
+     */
+    void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free, single-producer single-consumer ring buffer of log messages.
+ *
+ * The producer is the step thread, and the consumer is the {@link AsyncLogWriter}.
+ */
+final class LogRingBuffer {
+
+    interface MessageHandler {
+        void handle(boolean error, String message);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final boolean[] errors;
+    private final String[] messages;
+
+    /**
+     * The sequence of the next message to be read, only written by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The sequence of the next message to be written, only written by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param requestedCapacity the minimum capacity of the buffer, rounded up to a power of two.
+     */
+    LogRingBuffer(final int requestedCapacity) {
+        int capacity = 1;
+        while (capacity < requestedCapacity && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.errors = new boolean[capacity];
+        this.messages = new String[capacity];
+    }
+
+    /**
+     * Adds a message to the buffer. Must only be called by the producer.
+     *
+     * @param error true if the message should be logged as an error.
+     * @param message the message.
+     *
+     * @return true if the message was added, false if the buffer is full.
+     */
+    boolean offer(final boolean error, final String message) {
+        final long t = tail.get();
+        if (t - head.get() == capacity) {
+            return false;
+        }
+
+        final int idx = (int) t & mask;
+        errors[idx] = error;
+        messages[idx] = message;
+        tail.lazySet(t + 1);  // publishes the message to the consumer
+        return true;
+    }
+
+    /**
+     * Removes up to {@code max} messages from the buffer. Must only be called by the consumer.
+     *
+     * Each message is removed even if the handler throws an exception for it,
+     * so that a failing handler can not cause a message to be handled again, or stop the consumer making progress.
+     *
+     * @param handler receives each message in the order that it was added.
+     * @param max the maximum number of messages to remove.
+     *
+     * @return the number of messages removed.
+     */
+    int drain(final MessageHandler handler, final int max) {
+        final long h = head.get();
+        final int available = (int) Math.min(tail.get() - h, max);
+        for (int i = 0; i < available; i++) {
+            final int idx = (int) (h + i) & mask;
+            final String message = messages[idx];
+            messages[idx] = null;
+            try {
+                handler.handle(errors[idx], message);
+            } finally {
+                head.lazySet(h + i + 1);  // releases the slot to the producer
+            }
+        }
+        return available;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Get the number of messages in the buffer.
+     *
+     * @return the number of messages.
+     */
+    long size() {
+        return tail.get() - head.get();
+    }
+}
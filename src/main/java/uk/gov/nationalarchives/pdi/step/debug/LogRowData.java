@@ -22,11 +22,235 @@
  */
 package uk.gov.nationalarchives.pdi.step.debug;
 
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
+import java.util.List;
+
 public class LogRowData extends BaseStepData implements StepDataInterface {
 
+    // settings resolved from LogRowMeta when the step is initialised
+    /**
+     * The current log mode, which may be changed while the step is running by the {@link #logModeController}.
+     */
+    volatile LogMode logMode;
+
+    LogSampling logSampling;
+    int maxFieldLength;
+    int deltaKeyframeInterval;
+    RowCondition logCondition;
+    List<RedactionRule> redactionRules;
+    int firstRows;
+    boolean metricsEnabled;
+    int metricsInterval;
+    boolean profilingEnabled;
+    boolean driftDetection;
+    int flightRecorderSize;
+    boolean digestEnabled;
+
+    /**
+     * True when debug output fields are appended to the rows, so they can never just be passed through.
+     */
+    boolean outputFields;
+
+    TraceProbe traceProbe;
+
+    /**
+     * The names of the fields whose most frequent values are tracked, or null when they are not tracked.
+     */
+    String[] heavyHitterFields;
+    int heavyHitterCount;
+    int heavyHitterInterval;
+
+    /**
+     * The names of the fields of the key that is checked for duplicates, or null when duplicates are not checked.
+     */
+    String[] duplicateKeyFields;
+    int duplicateExpectedKeys;
+    double duplicateFalsePositiveRate;
+    long duplicateExactSetSize;
+    boolean duplicateOffHeap;
+    boolean logDuplicates;
+
+    /**
+     * The names of the fields on which the rows are expected to be sorted, or null when the sort order is not verified.
+     */
+    String[] sortKeyFields;
+    int maxSortViolationsLogged;
+    String traceField;
+    LogOutputTarget outputTarget;
+    String outputFile;
+    long outputFileMaxSize;
+    boolean outputFileGzip;
+
+    /**
+     * The log mode that was last read by the step thread, for which {@link #passThrough} was determined.
+     */
+    LogMode currentMode;
+
+    /**
+     * True when there is nothing (left) to log, and so rows are just passed through.
+     */
+    boolean passThrough;
+
+    /**
+     * Polls for changes to the log mode, or null when the log mode is fixed.
+     */
+    LogModeController logModeController;
+
+    /**
+     * Coordinates this step copy with the other copies of the step, or null when the copies are independent.
+     */
+    CopyCoordinator coordinator;
+
+    /**
+     * True once this step copy has reached the end of its stream.
+     */
+    boolean streamEnded;
+
+    /**
+     * The number of the first rows claimed by this step copy, when the copies are independent.
+     */
+    long firstRowsClaimed;
+
+    /**
+     * True once all of the first rows have been claimed, after which the FIRST log modes have nothing more to log.
+     */
+    boolean firstRowsDone;
+
+    /**
+     * Holds the rows of a batch that are processed together, or null when each row is processed on its own.
+     */
+    Object[][] batch;
+
+    /**
+     * True while the rows of a batch are being processed, during which log messages about the rows
+     * are collected into {@link #batchLog} and {@link #batchErrorLog}.
+     */
+    boolean batching;
+    StringBuilder batchLog;
+    StringBuilder batchErrorLog;
+
+    // resolved from the input row metadata when the first row arrives
+    RowMetaInterface outputRowMeta;
+
+    RowFormatter formatter;
+
+    /**
+     * The redaction rules resolved to the input row metadata, or null if no fields are redacted.
+     */
+    Redactions redactions;
+
+    /**
+     * The log condition bound to the input row metadata, or null if every row may be logged.
+     */
+    RowPredicate logPredicate;
+
+    /**
+     * Writes the rows selected for logging to a file, or null when they are written to the Kettle log.
+     */
+    RowWriter rowWriter;
+
+    /**
+     * The number of rows seen so far by this step copy.
+     */
+    long rowCount;
+
+    /**
+     * The number of rows logged so far by this step copy.
+     */
+    long rowsLogged;
+
+    /**
+     * Samples the rows selected for logging, or null when every selected row is logged.
+     */
+    RowSampler sampler;
+
+    /**
+     * Writes log messages from a background thread, or null when messages are logged by the step thread.
+     */
+    AsyncLogWriter asyncLogWriter;
+
+    /**
+     * Throughput and latency metrics, or null when metrics are not enabled.
+     */
+    RowMetrics metrics;
+
+    /**
+     * Per-field value statistics, or null when profiling is not enabled.
+     */
+    RowProfiler profiler;
+
+    /**
+     * Detects changes in the shape of the rows, or null when drift detection is not enabled.
+     */
+    RowDriftDetector driftDetector;
+
+    /**
+     * The most frequent values of the selected fields, or null when they are not tracked.
+     */
+    HeavyHitters heavyHitters;
+
+    /**
+     * Detects duplicate keys, or null when duplicates are not checked.
+     */
+    DuplicateDetector duplicateDetector;
+
+    /**
+     * Verifies the sort order of the rows, or null when the sort order is not verified.
+     */
+    SortOrderVerifier sortOrderVerifier;
+
+    /**
+     * The most recent rows, or null when the flight recorder is not enabled.
+     */
+    RowFlightRecorder flightRecorder;
+
+    /**
+     * The digest of the rows, or null when neither the digest nor the row hash output field are enabled.
+     */
+    RowDigest digest;
+
+    // the indexes of the debug output fields in the output row, or -1 for fields that are not output
+    int digestFieldIdx = -1;
+    int rowNumberFieldIdx = -1;
+    int copyNumberFieldIdx = -1;
+    int timestampFieldIdx = -1;
+    int fieldCountMismatchFieldIdx = -1;
+    int rowHashFieldIdx = -1;
+
+    /**
+     * The value of the copy number output field, which is boxed once rather than for every row.
+     */
+    Long copyNr;
+
+    /**
+     * Stamps rows for, or records the latency of rows from, a START probe, or null when tracing is not enabled.
+     */
+    RowTracer tracer;
+
+    /**
+     * The index of the trace field in the output row for a START probe, or in the input row for an END probe.
+     */
+    int traceFieldIdx = -1;
+
+    /**
+     * True when the trace field of a START probe was appended to the input fields,
+     * rather than being re-used from an earlier START probe.
+     */
+    boolean traceFieldAppended;
+
+    /**
+     * Set from another thread when the step is asked to stop, so that the flight recorder is dumped.
+     */
+    volatile boolean stopRequested;
+
+    /**
+     * Statistics exposed over JMX, or null when JMX is not enabled.
+     */
+    LogRowStepStats stats;
+
     public LogRowData() {
         super();
     }
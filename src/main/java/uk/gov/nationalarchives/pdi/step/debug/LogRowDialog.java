@@ -30,6 +30,7 @@ import org.eclipse.swt.layout.FormAttachment;
 import org.eclipse.swt.layout.FormData;
 import org.eclipse.swt.layout.FormLayout;
 import org.eclipse.swt.widgets.*;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.plugins.PluginInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.plugins.StepPluginType;
@@ -40,8 +41,14 @@ import org.pentaho.di.trans.step.StepDialogInterface;
 import org.pentaho.di.ui.core.ConstUI;
 import org.pentaho.di.ui.core.FormDataBuilder;
 import org.pentaho.di.ui.core.gui.GUIResource;
+import org.pentaho.di.ui.core.widget.ColumnInfo;
+import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class LogRowDialog extends BaseStepDialog implements StepDialogInterface {
 
     private static Class<?> PKG = LogRowMeta.class; // for i18n purposes, needed by Translator2!!   $NON-NLS-1$
@@ -63,9 +70,91 @@ public class LogRowDialog extends BaseStepDialog implements StepDialogInterface
     private Combo wErrorLogCaseField;
     private Label wNonErrorLogDetailLabel;
     private Combo wNonErrorLogDetailField;
+    private Label wLogSamplingLabel;
+    private Combo wLogSamplingField;
+    private Label wSamplingSizeLabel;
+    private Text wSamplingSizeField;
+    private Label wMaxFieldLengthLabel;
+    private Text wMaxFieldLengthField;
+    private Label wDeltaKeyframeIntervalLabel;
+    private Text wDeltaKeyframeIntervalField;
+    private Label wLogConditionLabel;
+    private TextVar wLogConditionField;
+    private Label wFirstRowsLabel;
+    private Text wFirstRowsField;
+    private Label wBatchSizeLabel;
+    private Text wBatchSizeField;
+    private Button wAsyncLoggingField;
+    private Label wAsyncBufferSizeLabel;
+    private Text wAsyncBufferSizeField;
+    private Label wLogOverflowPolicyLabel;
+    private Combo wLogOverflowPolicyField;
+    private Button wMetricsEnabledField;
+    private Label wMetricsIntervalLabel;
+    private Text wMetricsIntervalField;
+    private Button wJmxEnabledField;
+    private Button wProfilingEnabledField;
+    private Button wDriftDetectionField;
+    private Label wFlightRecorderSizeLabel;
+    private Text wFlightRecorderSizeField;
+    private Button wCoordinateCopiesField;
+    private Button wDigestEnabledField;
+    private Label wDigestFieldLabel;
+    private Text wDigestFieldField;
+    private Label wRowNumberFieldLabel;
+    private Text wRowNumberFieldField;
+    private Label wCopyNumberFieldLabel;
+    private Text wCopyNumberFieldField;
+    private Label wTimestampFieldLabel;
+    private Text wTimestampFieldField;
+    private Label wFieldCountMismatchFieldLabel;
+    private Text wFieldCountMismatchFieldField;
+    private Label wRowHashFieldLabel;
+    private Text wRowHashFieldField;
+    private Label wTraceProbeLabel;
+    private Combo wTraceProbeField;
+    private Label wTraceFieldLabel;
+    private Text wTraceFieldField;
+    private Label wTraceSamplingLabel;
+    private Text wTraceSamplingField;
+    private TableView wRedactionRulesField;
+    private Label wHeavyHitterFieldsLabel;
+    private TextVar wHeavyHitterFieldsField;
+    private Label wHeavyHitterCountLabel;
+    private Text wHeavyHitterCountField;
+    private Label wHeavyHitterIntervalLabel;
+    private Text wHeavyHitterIntervalField;
+    private Label wDuplicateKeyFieldsLabel;
+    private TextVar wDuplicateKeyFieldsField;
+    private Label wDuplicateExpectedKeysLabel;
+    private Text wDuplicateExpectedKeysField;
+    private Label wDuplicateFalsePositiveRateLabel;
+    private Text wDuplicateFalsePositiveRateField;
+    private Label wDuplicateExactSetSizeLabel;
+    private Text wDuplicateExactSetSizeField;
+    private Button wDuplicateOffHeapField;
+    private Button wLogDuplicatesField;
+    private Label wSortKeyFieldsLabel;
+    private TextVar wSortKeyFieldsField;
+    private Label wMaxSortViolationsLoggedLabel;
+    private Text wMaxSortViolationsLoggedField;
+    private Label wOutputTargetLabel;
+    private Combo wOutputTargetField;
+    private Label wOutputFileLabel;
+    private TextVar wOutputFileField;
+    private Label wOutputFileMaxSizeLabel;
+    private Text wOutputFileMaxSizeField;
+    private Button wOutputFileGzipField;
+    private Label wLogModeControlLabel;
+    private Combo wLogModeControlField;
+    private Label wLogModeControlTargetLabel;
+    private TextVar wLogModeControlTargetField;
+    private Label wLogModeControlIntervalLabel;
+    private Text wLogModeControlIntervalField;
     private Button wCancel;
     private Button wOK;
     private ModifyListener lsChanges;
+    private SelectionAdapter lsSelectionChanges;
 
     public LogRowDialog(final Shell parent, final Object in, final TransMeta transMeta, final String stepname) {
         super(parent, (BaseStepMeta) in, transMeta, stepname);
@@ -89,6 +178,12 @@ public class LogRowDialog extends BaseStepDialog implements StepDialogInterface
                 meta.setChanged();
             }
         };
+        lsSelectionChanges = new SelectionAdapter() {
+            @Override
+            public void widgetSelected(final SelectionEvent selectionEvent) {
+                meta.setChanged();
+            }
+        };
         changed = meta.hasChanged();
 
         //15 pixel margins
@@ -196,6 +291,865 @@ public class LogRowDialog extends BaseStepDialog implements StepDialogInterface
                 .result();
         wNonErrorLogDetailField.setLayoutData(fdNonErrorLogDetailField);
 
+        // log sampling label/checkbox
+        wLogSamplingLabel = new Label(group, SWT.LEFT);
+        props.setLook(wLogSamplingLabel);
+        wLogSamplingLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.ComboLogSampling"));
+        final FormData fdLogSamplingLabel = new FormDataBuilder().left()
+                .top(wNonErrorLogDetailLabel)
+                .result();
+        wLogSamplingLabel.setLayoutData(fdLogSamplingLabel);
+
+        wLogSamplingField = new Combo(group, SWT.DROP_DOWN | SWT.READ_ONLY | SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        wLogSamplingField.setItems(LogSampling.names());
+        props.setLook(wLogSamplingField);
+        wLogSamplingField.addModifyListener(lsChanges);
+        wLogSamplingField.setBackground(display.getSystemColor(SWT.COLOR_TRANSPARENT));
+        final FormData fdLogSamplingField = new FormDataBuilder().left(wLogSamplingLabel, LABEL_SPACING)
+                .top(wNonErrorLogDetailLabel)
+                .result();
+        wLogSamplingField.setLayoutData(fdLogSamplingField);
+
+        // sampling size label/text
+        wSamplingSizeLabel = new Label(group, SWT.LEFT);
+        props.setLook(wSamplingSizeLabel);
+        wSamplingSizeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextSamplingSize"));
+        final FormData fdSamplingSizeLabel = new FormDataBuilder().left()
+                .top(wLogSamplingLabel)
+                .result();
+        wSamplingSizeLabel.setLayoutData(fdSamplingSizeLabel);
+
+        wSamplingSizeField = new Text(group, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wSamplingSizeField);
+        wSamplingSizeField.addModifyListener(lsChanges);
+        final FormData fdSamplingSizeField = new FormDataBuilder().left(wSamplingSizeLabel, LABEL_SPACING)
+                .top(wLogSamplingLabel)
+                .result();
+        wSamplingSizeField.setLayoutData(fdSamplingSizeField);
+
+        // max field length label/text
+        wMaxFieldLengthLabel = new Label(group, SWT.LEFT);
+        props.setLook(wMaxFieldLengthLabel);
+        wMaxFieldLengthLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextMaxFieldLength"));
+        final FormData fdMaxFieldLengthLabel = new FormDataBuilder().left()
+                .top(wSamplingSizeLabel)
+                .result();
+        wMaxFieldLengthLabel.setLayoutData(fdMaxFieldLengthLabel);
+
+        wMaxFieldLengthField = new Text(group, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wMaxFieldLengthField);
+        wMaxFieldLengthField.addModifyListener(lsChanges);
+        final FormData fdMaxFieldLengthField = new FormDataBuilder().left(wMaxFieldLengthLabel, LABEL_SPACING)
+                .top(wSamplingSizeLabel)
+                .result();
+        wMaxFieldLengthField.setLayoutData(fdMaxFieldLengthField);
+
+        // delta keyframe interval label/text
+        wDeltaKeyframeIntervalLabel = new Label(group, SWT.LEFT);
+        props.setLook(wDeltaKeyframeIntervalLabel);
+        wDeltaKeyframeIntervalLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextDeltaKeyframeInterval"));
+        final FormData fdDeltaKeyframeIntervalLabel = new FormDataBuilder().left()
+                .top(wMaxFieldLengthLabel)
+                .result();
+        wDeltaKeyframeIntervalLabel.setLayoutData(fdDeltaKeyframeIntervalLabel);
+
+        wDeltaKeyframeIntervalField = new Text(group, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wDeltaKeyframeIntervalField);
+        wDeltaKeyframeIntervalField.addModifyListener(lsChanges);
+        final FormData fdDeltaKeyframeIntervalField = new FormDataBuilder().left(wDeltaKeyframeIntervalLabel, LABEL_SPACING)
+                .top(wMaxFieldLengthLabel)
+                .result();
+        wDeltaKeyframeIntervalField.setLayoutData(fdDeltaKeyframeIntervalField);
+
+        // log condition label/text
+        wLogConditionLabel = new Label(group, SWT.LEFT);
+        props.setLook(wLogConditionLabel);
+        wLogConditionLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextLogCondition"));
+        final FormData fdLogConditionLabel = new FormDataBuilder().left()
+                .top(wDeltaKeyframeIntervalLabel)
+                .result();
+        wLogConditionLabel.setLayoutData(fdLogConditionLabel);
+
+        wLogConditionField = new TextVar(transMeta, group, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wLogConditionField);
+        wLogConditionField.addModifyListener(lsChanges);
+        final FormData fdLogConditionField = new FormDataBuilder().left(wLogConditionLabel, LABEL_SPACING)
+                .top(wDeltaKeyframeIntervalLabel)
+                .width(LARGE_FIELD)
+                .result();
+        wLogConditionField.setLayoutData(fdLogConditionField);
+
+        // first rows label/text
+        wFirstRowsLabel = new Label(group, SWT.LEFT);
+        props.setLook(wFirstRowsLabel);
+        wFirstRowsLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextFirstRows"));
+        final FormData fdFirstRowsLabel = new FormDataBuilder().left()
+                .top(wLogConditionLabel)
+                .result();
+        wFirstRowsLabel.setLayoutData(fdFirstRowsLabel);
+
+        wFirstRowsField = new Text(group, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wFirstRowsField);
+        wFirstRowsField.addModifyListener(lsChanges);
+        final FormData fdFirstRowsField = new FormDataBuilder().left(wFirstRowsLabel, LABEL_SPACING)
+                .top(wLogConditionLabel)
+                .result();
+        wFirstRowsField.setLayoutData(fdFirstRowsField);
+
+        // batch size label/text
+        wBatchSizeLabel = new Label(group, SWT.LEFT);
+        props.setLook(wBatchSizeLabel);
+        wBatchSizeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextBatchSize"));
+        final FormData fdBatchSizeLabel = new FormDataBuilder().left()
+                .top(wFirstRowsLabel)
+                .result();
+        wBatchSizeLabel.setLayoutData(fdBatchSizeLabel);
+
+        wBatchSizeField = new Text(group, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wBatchSizeField);
+        wBatchSizeField.addModifyListener(lsChanges);
+        final FormData fdBatchSizeField = new FormDataBuilder().left(wBatchSizeLabel, LABEL_SPACING)
+                .top(wFirstRowsLabel)
+                .result();
+        wBatchSizeField.setLayoutData(fdBatchSizeField);
+
+        //Group for the output target
+        final Group outputGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        outputGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.Output"));
+        final FormLayout outputGroupLayout = new FormLayout();
+        outputGroupLayout.marginWidth = MARGIN_SIZE;
+        outputGroupLayout.marginHeight = MARGIN_SIZE;
+        outputGroup.setLayout(outputGroupLayout);
+        final FormData outputGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(group, MARGIN_SIZE)
+                .result();
+        outputGroup.setLayoutData(outputGroupLayoutData);
+        props.setLook(outputGroup);
+
+        // output target label/combo
+        wOutputTargetLabel = new Label(outputGroup, SWT.LEFT);
+        props.setLook(wOutputTargetLabel);
+        wOutputTargetLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.ComboOutputTarget"));
+        final FormData fdOutputTargetLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wOutputTargetLabel.setLayoutData(fdOutputTargetLabel);
+
+        wOutputTargetField = new Combo(outputGroup, SWT.DROP_DOWN | SWT.READ_ONLY | SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        wOutputTargetField.setItems(LogOutputTarget.names());
+        props.setLook(wOutputTargetField);
+        wOutputTargetField.addModifyListener(lsChanges);
+        wOutputTargetField.setBackground(display.getSystemColor(SWT.COLOR_TRANSPARENT));
+        final FormData fdOutputTargetField = new FormDataBuilder().left(wOutputTargetLabel, LABEL_SPACING)
+                .top()
+                .result();
+        wOutputTargetField.setLayoutData(fdOutputTargetField);
+
+        // output file label/text
+        wOutputFileLabel = new Label(outputGroup, SWT.LEFT);
+        props.setLook(wOutputFileLabel);
+        wOutputFileLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextOutputFile"));
+        final FormData fdOutputFileLabel = new FormDataBuilder().left()
+                .top(wOutputTargetLabel)
+                .result();
+        wOutputFileLabel.setLayoutData(fdOutputFileLabel);
+
+        wOutputFileField = new TextVar(transMeta, outputGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wOutputFileField);
+        wOutputFileField.addModifyListener(lsChanges);
+        final FormData fdOutputFileField = new FormDataBuilder().left(wOutputFileLabel, LABEL_SPACING)
+                .top(wOutputTargetLabel)
+                .width(LARGE_FIELD)
+                .result();
+        wOutputFileField.setLayoutData(fdOutputFileField);
+
+        // output file max size label/text
+        wOutputFileMaxSizeLabel = new Label(outputGroup, SWT.LEFT);
+        props.setLook(wOutputFileMaxSizeLabel);
+        wOutputFileMaxSizeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextOutputFileMaxSize"));
+        final FormData fdOutputFileMaxSizeLabel = new FormDataBuilder().left()
+                .top(wOutputFileLabel)
+                .result();
+        wOutputFileMaxSizeLabel.setLayoutData(fdOutputFileMaxSizeLabel);
+
+        wOutputFileMaxSizeField = new Text(outputGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wOutputFileMaxSizeField);
+        wOutputFileMaxSizeField.addModifyListener(lsChanges);
+        final FormData fdOutputFileMaxSizeField = new FormDataBuilder().left(wOutputFileMaxSizeLabel, LABEL_SPACING)
+                .top(wOutputFileLabel)
+                .result();
+        wOutputFileMaxSizeField.setLayoutData(fdOutputFileMaxSizeField);
+
+        // output file gzip checkbox
+        wOutputFileGzipField = new Button(outputGroup, SWT.CHECK);
+        props.setLook(wOutputFileGzipField);
+        wOutputFileGzipField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckOutputFileGzip"));
+        wOutputFileGzipField.addSelectionListener(lsSelectionChanges);
+        final FormData fdOutputFileGzipField = new FormDataBuilder().left()
+                .top(wOutputFileMaxSizeLabel)
+                .result();
+        wOutputFileGzipField.setLayoutData(fdOutputFileGzipField);
+
+        //Group for asynchronous logging
+        final Group asyncGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        asyncGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.AsyncLogging"));
+        final FormLayout asyncGroupLayout = new FormLayout();
+        asyncGroupLayout.marginWidth = MARGIN_SIZE;
+        asyncGroupLayout.marginHeight = MARGIN_SIZE;
+        asyncGroup.setLayout(asyncGroupLayout);
+        final FormData asyncGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(outputGroup, MARGIN_SIZE)
+                .result();
+        asyncGroup.setLayoutData(asyncGroupLayoutData);
+        props.setLook(asyncGroup);
+
+        // async logging checkbox
+        wAsyncLoggingField = new Button(asyncGroup, SWT.CHECK);
+        props.setLook(wAsyncLoggingField);
+        wAsyncLoggingField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckAsyncLogging"));
+        wAsyncLoggingField.addSelectionListener(lsSelectionChanges);
+        final FormData fdAsyncLoggingField = new FormDataBuilder().left()
+                .top()
+                .result();
+        wAsyncLoggingField.setLayoutData(fdAsyncLoggingField);
+
+        // async buffer size label/text
+        wAsyncBufferSizeLabel = new Label(asyncGroup, SWT.LEFT);
+        props.setLook(wAsyncBufferSizeLabel);
+        wAsyncBufferSizeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextAsyncBufferSize"));
+        final FormData fdAsyncBufferSizeLabel = new FormDataBuilder().left()
+                .top(wAsyncLoggingField)
+                .result();
+        wAsyncBufferSizeLabel.setLayoutData(fdAsyncBufferSizeLabel);
+
+        wAsyncBufferSizeField = new Text(asyncGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wAsyncBufferSizeField);
+        wAsyncBufferSizeField.addModifyListener(lsChanges);
+        final FormData fdAsyncBufferSizeField = new FormDataBuilder().left(wAsyncBufferSizeLabel, LABEL_SPACING)
+                .top(wAsyncLoggingField)
+                .result();
+        wAsyncBufferSizeField.setLayoutData(fdAsyncBufferSizeField);
+
+        // log overflow policy label/combo
+        wLogOverflowPolicyLabel = new Label(asyncGroup, SWT.LEFT);
+        props.setLook(wLogOverflowPolicyLabel);
+        wLogOverflowPolicyLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.ComboLogOverflowPolicy"));
+        final FormData fdLogOverflowPolicyLabel = new FormDataBuilder().left()
+                .top(wAsyncBufferSizeLabel)
+                .result();
+        wLogOverflowPolicyLabel.setLayoutData(fdLogOverflowPolicyLabel);
+
+        wLogOverflowPolicyField = new Combo(asyncGroup, SWT.DROP_DOWN | SWT.READ_ONLY | SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        wLogOverflowPolicyField.setItems(LogOverflowPolicy.names());
+        props.setLook(wLogOverflowPolicyField);
+        wLogOverflowPolicyField.addModifyListener(lsChanges);
+        wLogOverflowPolicyField.setBackground(display.getSystemColor(SWT.COLOR_TRANSPARENT));
+        final FormData fdLogOverflowPolicyField = new FormDataBuilder().left(wLogOverflowPolicyLabel, LABEL_SPACING)
+                .top(wAsyncBufferSizeLabel)
+                .result();
+        wLogOverflowPolicyField.setLayoutData(fdLogOverflowPolicyField);
+
+        //Group for metrics
+        final Group metricsGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        metricsGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.Metrics"));
+        final FormLayout metricsGroupLayout = new FormLayout();
+        metricsGroupLayout.marginWidth = MARGIN_SIZE;
+        metricsGroupLayout.marginHeight = MARGIN_SIZE;
+        metricsGroup.setLayout(metricsGroupLayout);
+        final FormData metricsGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(asyncGroup, MARGIN_SIZE)
+                .result();
+        metricsGroup.setLayoutData(metricsGroupLayoutData);
+        props.setLook(metricsGroup);
+
+        // metrics enabled checkbox
+        wMetricsEnabledField = new Button(metricsGroup, SWT.CHECK);
+        props.setLook(wMetricsEnabledField);
+        wMetricsEnabledField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckMetricsEnabled"));
+        wMetricsEnabledField.addSelectionListener(lsSelectionChanges);
+        final FormData fdMetricsEnabledField = new FormDataBuilder().left()
+                .top()
+                .result();
+        wMetricsEnabledField.setLayoutData(fdMetricsEnabledField);
+
+        // metrics interval label/text
+        wMetricsIntervalLabel = new Label(metricsGroup, SWT.LEFT);
+        props.setLook(wMetricsIntervalLabel);
+        wMetricsIntervalLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextMetricsInterval"));
+        final FormData fdMetricsIntervalLabel = new FormDataBuilder().left()
+                .top(wMetricsEnabledField)
+                .result();
+        wMetricsIntervalLabel.setLayoutData(fdMetricsIntervalLabel);
+
+        wMetricsIntervalField = new Text(metricsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wMetricsIntervalField);
+        wMetricsIntervalField.addModifyListener(lsChanges);
+        final FormData fdMetricsIntervalField = new FormDataBuilder().left(wMetricsIntervalLabel, LABEL_SPACING)
+                .top(wMetricsEnabledField)
+                .result();
+        wMetricsIntervalField.setLayoutData(fdMetricsIntervalField);
+
+        // jmx enabled checkbox
+        wJmxEnabledField = new Button(metricsGroup, SWT.CHECK);
+        props.setLook(wJmxEnabledField);
+        wJmxEnabledField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckJmxEnabled"));
+        wJmxEnabledField.addSelectionListener(lsSelectionChanges);
+        final FormData fdJmxEnabledField = new FormDataBuilder().left()
+                .top(wMetricsIntervalLabel)
+                .result();
+        wJmxEnabledField.setLayoutData(fdJmxEnabledField);
+
+        // profiling enabled checkbox
+        wProfilingEnabledField = new Button(metricsGroup, SWT.CHECK);
+        props.setLook(wProfilingEnabledField);
+        wProfilingEnabledField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckProfilingEnabled"));
+        wProfilingEnabledField.addSelectionListener(lsSelectionChanges);
+        final FormData fdProfilingEnabledField = new FormDataBuilder().left()
+                .top(wJmxEnabledField)
+                .result();
+        wProfilingEnabledField.setLayoutData(fdProfilingEnabledField);
+
+        // drift detection checkbox
+        wDriftDetectionField = new Button(metricsGroup, SWT.CHECK);
+        props.setLook(wDriftDetectionField);
+        wDriftDetectionField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckDriftDetection"));
+        wDriftDetectionField.addSelectionListener(lsSelectionChanges);
+        final FormData fdDriftDetectionField = new FormDataBuilder().left()
+                .top(wProfilingEnabledField)
+                .result();
+        wDriftDetectionField.setLayoutData(fdDriftDetectionField);
+
+        // flight recorder size label/text
+        wFlightRecorderSizeLabel = new Label(metricsGroup, SWT.LEFT);
+        props.setLook(wFlightRecorderSizeLabel);
+        wFlightRecorderSizeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextFlightRecorderSize"));
+        final FormData fdFlightRecorderSizeLabel = new FormDataBuilder().left()
+                .top(wDriftDetectionField)
+                .result();
+        wFlightRecorderSizeLabel.setLayoutData(fdFlightRecorderSizeLabel);
+
+        wFlightRecorderSizeField = new Text(metricsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wFlightRecorderSizeField);
+        wFlightRecorderSizeField.addModifyListener(lsChanges);
+        final FormData fdFlightRecorderSizeField = new FormDataBuilder().left(wFlightRecorderSizeLabel, LABEL_SPACING)
+                .top(wDriftDetectionField)
+                .result();
+        wFlightRecorderSizeField.setLayoutData(fdFlightRecorderSizeField);
+
+        // coordinate copies checkbox
+        wCoordinateCopiesField = new Button(metricsGroup, SWT.CHECK);
+        props.setLook(wCoordinateCopiesField);
+        wCoordinateCopiesField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckCoordinateCopies"));
+        wCoordinateCopiesField.addSelectionListener(lsSelectionChanges);
+        final FormData fdCoordinateCopiesField = new FormDataBuilder().left()
+                .top(wFlightRecorderSizeLabel)
+                .result();
+        wCoordinateCopiesField.setLayoutData(fdCoordinateCopiesField);
+
+        // digest enabled checkbox
+        wDigestEnabledField = new Button(metricsGroup, SWT.CHECK);
+        props.setLook(wDigestEnabledField);
+        wDigestEnabledField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckDigestEnabled"));
+        wDigestEnabledField.addSelectionListener(lsSelectionChanges);
+        final FormData fdDigestEnabledField = new FormDataBuilder().left()
+                .top(wCoordinateCopiesField)
+                .result();
+        wDigestEnabledField.setLayoutData(fdDigestEnabledField);
+
+        // digest field label/text
+        wDigestFieldLabel = new Label(metricsGroup, SWT.LEFT);
+        props.setLook(wDigestFieldLabel);
+        wDigestFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextDigestField"));
+        final FormData fdDigestFieldLabel = new FormDataBuilder().left()
+                .top(wDigestEnabledField)
+                .result();
+        wDigestFieldLabel.setLayoutData(fdDigestFieldLabel);
+
+        wDigestFieldField = new Text(metricsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wDigestFieldField);
+        wDigestFieldField.addModifyListener(lsChanges);
+        final FormData fdDigestFieldField = new FormDataBuilder().left(wDigestFieldLabel, LABEL_SPACING)
+                .top(wDigestEnabledField)
+                .result();
+        wDigestFieldField.setLayoutData(fdDigestFieldField);
+
+        //Group for runtime control of the log mode
+        final Group logModeControlGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        logModeControlGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.LogModeControl"));
+        final FormLayout logModeControlGroupLayout = new FormLayout();
+        logModeControlGroupLayout.marginWidth = MARGIN_SIZE;
+        logModeControlGroupLayout.marginHeight = MARGIN_SIZE;
+        logModeControlGroup.setLayout(logModeControlGroupLayout);
+        final FormData logModeControlGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(metricsGroup, MARGIN_SIZE)
+                .result();
+        logModeControlGroup.setLayoutData(logModeControlGroupLayoutData);
+        props.setLook(logModeControlGroup);
+
+        // log mode control label/combo
+        wLogModeControlLabel = new Label(logModeControlGroup, SWT.LEFT);
+        props.setLook(wLogModeControlLabel);
+        wLogModeControlLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.ComboLogModeControl"));
+        final FormData fdLogModeControlLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wLogModeControlLabel.setLayoutData(fdLogModeControlLabel);
+
+        wLogModeControlField = new Combo(logModeControlGroup, SWT.DROP_DOWN | SWT.READ_ONLY | SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        wLogModeControlField.setItems(LogModeControl.names());
+        props.setLook(wLogModeControlField);
+        wLogModeControlField.addModifyListener(lsChanges);
+        wLogModeControlField.setBackground(display.getSystemColor(SWT.COLOR_TRANSPARENT));
+        final FormData fdLogModeControlField = new FormDataBuilder().left(wLogModeControlLabel, LABEL_SPACING)
+                .top()
+                .result();
+        wLogModeControlField.setLayoutData(fdLogModeControlField);
+
+        // log mode control target label/text
+        wLogModeControlTargetLabel = new Label(logModeControlGroup, SWT.LEFT);
+        props.setLook(wLogModeControlTargetLabel);
+        wLogModeControlTargetLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextLogModeControlTarget"));
+        final FormData fdLogModeControlTargetLabel = new FormDataBuilder().left()
+                .top(wLogModeControlLabel)
+                .result();
+        wLogModeControlTargetLabel.setLayoutData(fdLogModeControlTargetLabel);
+
+        wLogModeControlTargetField = new TextVar(transMeta, logModeControlGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wLogModeControlTargetField);
+        wLogModeControlTargetField.addModifyListener(lsChanges);
+        final FormData fdLogModeControlTargetField = new FormDataBuilder().left(wLogModeControlTargetLabel, LABEL_SPACING)
+                .top(wLogModeControlLabel)
+                .width(LARGE_FIELD)
+                .result();
+        wLogModeControlTargetField.setLayoutData(fdLogModeControlTargetField);
+
+        // log mode control interval label/text
+        wLogModeControlIntervalLabel = new Label(logModeControlGroup, SWT.LEFT);
+        props.setLook(wLogModeControlIntervalLabel);
+        wLogModeControlIntervalLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextLogModeControlInterval"));
+        final FormData fdLogModeControlIntervalLabel = new FormDataBuilder().left()
+                .top(wLogModeControlTargetLabel)
+                .result();
+        wLogModeControlIntervalLabel.setLayoutData(fdLogModeControlIntervalLabel);
+
+        wLogModeControlIntervalField = new Text(logModeControlGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wLogModeControlIntervalField);
+        wLogModeControlIntervalField.addModifyListener(lsChanges);
+        final FormData fdLogModeControlIntervalField = new FormDataBuilder().left(wLogModeControlIntervalLabel, LABEL_SPACING)
+                .top(wLogModeControlTargetLabel)
+                .result();
+        wLogModeControlIntervalField.setLayoutData(fdLogModeControlIntervalField);
+
+        //Group for the debug output fields
+        final Group outputFieldsGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        outputFieldsGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.OutputFields"));
+        final FormLayout outputFieldsGroupLayout = new FormLayout();
+        outputFieldsGroupLayout.marginWidth = MARGIN_SIZE;
+        outputFieldsGroupLayout.marginHeight = MARGIN_SIZE;
+        outputFieldsGroup.setLayout(outputFieldsGroupLayout);
+        final FormData outputFieldsGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(logModeControlGroup, MARGIN_SIZE)
+                .result();
+        outputFieldsGroup.setLayoutData(outputFieldsGroupLayoutData);
+        props.setLook(outputFieldsGroup);
+
+        // row number field label/text
+        wRowNumberFieldLabel = new Label(outputFieldsGroup, SWT.LEFT);
+        props.setLook(wRowNumberFieldLabel);
+        wRowNumberFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextRowNumberField"));
+        final FormData fdRowNumberFieldLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wRowNumberFieldLabel.setLayoutData(fdRowNumberFieldLabel);
+
+        wRowNumberFieldField = new Text(outputFieldsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wRowNumberFieldField);
+        wRowNumberFieldField.addModifyListener(lsChanges);
+        final FormData fdRowNumberFieldField = new FormDataBuilder().left(wRowNumberFieldLabel, LABEL_SPACING)
+                .top()
+                .result();
+        wRowNumberFieldField.setLayoutData(fdRowNumberFieldField);
+
+        // copy number field label/text
+        wCopyNumberFieldLabel = new Label(outputFieldsGroup, SWT.LEFT);
+        props.setLook(wCopyNumberFieldLabel);
+        wCopyNumberFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextCopyNumberField"));
+        final FormData fdCopyNumberFieldLabel = new FormDataBuilder().left()
+                .top(wRowNumberFieldLabel)
+                .result();
+        wCopyNumberFieldLabel.setLayoutData(fdCopyNumberFieldLabel);
+
+        wCopyNumberFieldField = new Text(outputFieldsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wCopyNumberFieldField);
+        wCopyNumberFieldField.addModifyListener(lsChanges);
+        final FormData fdCopyNumberFieldField = new FormDataBuilder().left(wCopyNumberFieldLabel, LABEL_SPACING)
+                .top(wRowNumberFieldLabel)
+                .result();
+        wCopyNumberFieldField.setLayoutData(fdCopyNumberFieldField);
+
+        // timestamp field label/text
+        wTimestampFieldLabel = new Label(outputFieldsGroup, SWT.LEFT);
+        props.setLook(wTimestampFieldLabel);
+        wTimestampFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextTimestampField"));
+        final FormData fdTimestampFieldLabel = new FormDataBuilder().left()
+                .top(wCopyNumberFieldLabel)
+                .result();
+        wTimestampFieldLabel.setLayoutData(fdTimestampFieldLabel);
+
+        wTimestampFieldField = new Text(outputFieldsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wTimestampFieldField);
+        wTimestampFieldField.addModifyListener(lsChanges);
+        final FormData fdTimestampFieldField = new FormDataBuilder().left(wTimestampFieldLabel, LABEL_SPACING)
+                .top(wCopyNumberFieldLabel)
+                .result();
+        wTimestampFieldField.setLayoutData(fdTimestampFieldField);
+
+        // field count mismatch field label/text
+        wFieldCountMismatchFieldLabel = new Label(outputFieldsGroup, SWT.LEFT);
+        props.setLook(wFieldCountMismatchFieldLabel);
+        wFieldCountMismatchFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextFieldCountMismatchField"));
+        final FormData fdFieldCountMismatchFieldLabel = new FormDataBuilder().left()
+                .top(wTimestampFieldLabel)
+                .result();
+        wFieldCountMismatchFieldLabel.setLayoutData(fdFieldCountMismatchFieldLabel);
+
+        wFieldCountMismatchFieldField = new Text(outputFieldsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wFieldCountMismatchFieldField);
+        wFieldCountMismatchFieldField.addModifyListener(lsChanges);
+        final FormData fdFieldCountMismatchFieldField = new FormDataBuilder().left(wFieldCountMismatchFieldLabel, LABEL_SPACING)
+                .top(wTimestampFieldLabel)
+                .result();
+        wFieldCountMismatchFieldField.setLayoutData(fdFieldCountMismatchFieldField);
+
+        // row hash field label/text
+        wRowHashFieldLabel = new Label(outputFieldsGroup, SWT.LEFT);
+        props.setLook(wRowHashFieldLabel);
+        wRowHashFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextRowHashField"));
+        final FormData fdRowHashFieldLabel = new FormDataBuilder().left()
+                .top(wFieldCountMismatchFieldLabel)
+                .result();
+        wRowHashFieldLabel.setLayoutData(fdRowHashFieldLabel);
+
+        wRowHashFieldField = new Text(outputFieldsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wRowHashFieldField);
+        wRowHashFieldField.addModifyListener(lsChanges);
+        final FormData fdRowHashFieldField = new FormDataBuilder().left(wRowHashFieldLabel, LABEL_SPACING)
+                .top(wFieldCountMismatchFieldLabel)
+                .result();
+        wRowHashFieldField.setLayoutData(fdRowHashFieldField);
+
+        //Group for latency tracing
+        final Group traceGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        traceGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.Trace"));
+        final FormLayout traceGroupLayout = new FormLayout();
+        traceGroupLayout.marginWidth = MARGIN_SIZE;
+        traceGroupLayout.marginHeight = MARGIN_SIZE;
+        traceGroup.setLayout(traceGroupLayout);
+        final FormData traceGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(outputFieldsGroup, MARGIN_SIZE)
+                .result();
+        traceGroup.setLayoutData(traceGroupLayoutData);
+        props.setLook(traceGroup);
+
+        // trace probe label/combo
+        wTraceProbeLabel = new Label(traceGroup, SWT.LEFT);
+        props.setLook(wTraceProbeLabel);
+        wTraceProbeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.ComboTraceProbe"));
+        final FormData fdTraceProbeLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wTraceProbeLabel.setLayoutData(fdTraceProbeLabel);
+
+        wTraceProbeField = new Combo(traceGroup, SWT.DROP_DOWN | SWT.READ_ONLY | SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        wTraceProbeField.setItems(TraceProbe.names());
+        props.setLook(wTraceProbeField);
+        wTraceProbeField.addModifyListener(lsChanges);
+        wTraceProbeField.setBackground(display.getSystemColor(SWT.COLOR_TRANSPARENT));
+        final FormData fdTraceProbeField = new FormDataBuilder().left(wTraceProbeLabel, LABEL_SPACING)
+                .top()
+                .result();
+        wTraceProbeField.setLayoutData(fdTraceProbeField);
+
+        // trace field label/text
+        wTraceFieldLabel = new Label(traceGroup, SWT.LEFT);
+        props.setLook(wTraceFieldLabel);
+        wTraceFieldLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextTraceField"));
+        final FormData fdTraceFieldLabel = new FormDataBuilder().left()
+                .top(wTraceProbeLabel)
+                .result();
+        wTraceFieldLabel.setLayoutData(fdTraceFieldLabel);
+
+        wTraceFieldField = new Text(traceGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wTraceFieldField);
+        wTraceFieldField.addModifyListener(lsChanges);
+        final FormData fdTraceFieldField = new FormDataBuilder().left(wTraceFieldLabel, LABEL_SPACING)
+                .top(wTraceProbeLabel)
+                .result();
+        wTraceFieldField.setLayoutData(fdTraceFieldField);
+
+        // trace sampling label/text
+        wTraceSamplingLabel = new Label(traceGroup, SWT.LEFT);
+        props.setLook(wTraceSamplingLabel);
+        wTraceSamplingLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextTraceSampling"));
+        final FormData fdTraceSamplingLabel = new FormDataBuilder().left()
+                .top(wTraceFieldLabel)
+                .result();
+        wTraceSamplingLabel.setLayoutData(fdTraceSamplingLabel);
+
+        wTraceSamplingField = new Text(traceGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wTraceSamplingField);
+        wTraceSamplingField.addModifyListener(lsChanges);
+        final FormData fdTraceSamplingField = new FormDataBuilder().left(wTraceSamplingLabel, LABEL_SPACING)
+                .top(wTraceFieldLabel)
+                .result();
+        wTraceSamplingField.setLayoutData(fdTraceSamplingField);
+
+        //Group for the redaction of field values
+        final Group redactionGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        redactionGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.Redaction"));
+        final FormLayout redactionGroupLayout = new FormLayout();
+        redactionGroupLayout.marginWidth = MARGIN_SIZE;
+        redactionGroupLayout.marginHeight = MARGIN_SIZE;
+        redactionGroup.setLayout(redactionGroupLayout);
+        final FormData redactionGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(traceGroup, MARGIN_SIZE)
+                .result();
+        redactionGroup.setLayoutData(redactionGroupLayoutData);
+        props.setLook(redactionGroup);
+
+        // redaction rules table
+        final ColumnInfo[] redactionColumns = {
+                new ColumnInfo(BaseMessages.getString(PKG, "LogRowDialog.ColumnRedactionField"),
+                        ColumnInfo.COLUMN_TYPE_TEXT, false),
+                new ColumnInfo(BaseMessages.getString(PKG, "LogRowDialog.ColumnRedactionAction"),
+                        ColumnInfo.COLUMN_TYPE_CCOMBO, RedactionAction.names(), true),
+                new ColumnInfo(BaseMessages.getString(PKG, "LogRowDialog.ColumnRedactionPrefixLength"),
+                        ColumnInfo.COLUMN_TYPE_TEXT, false)
+        };
+        wRedactionRulesField = new TableView(transMeta, redactionGroup,
+                SWT.BORDER | SWT.FULL_SELECTION | SWT.MULTI, redactionColumns,
+                meta.getRedactionRules().size(), lsChanges, props);
+        final FormData fdRedactionRulesField = new FormDataBuilder().fullWidth()
+                .top()
+                .height(150)
+                .result();
+        wRedactionRulesField.setLayoutData(fdRedactionRulesField);
+
+        //Group for the most frequent values
+        final Group heavyHitterGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        heavyHitterGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.HeavyHitters"));
+        final FormLayout heavyHitterGroupLayout = new FormLayout();
+        heavyHitterGroupLayout.marginWidth = MARGIN_SIZE;
+        heavyHitterGroupLayout.marginHeight = MARGIN_SIZE;
+        heavyHitterGroup.setLayout(heavyHitterGroupLayout);
+        final FormData heavyHitterGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(redactionGroup, MARGIN_SIZE)
+                .result();
+        heavyHitterGroup.setLayoutData(heavyHitterGroupLayoutData);
+        props.setLook(heavyHitterGroup);
+
+        // heavy hitter fields label/text
+        wHeavyHitterFieldsLabel = new Label(heavyHitterGroup, SWT.LEFT);
+        props.setLook(wHeavyHitterFieldsLabel);
+        wHeavyHitterFieldsLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextHeavyHitterFields"));
+        final FormData fdHeavyHitterFieldsLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wHeavyHitterFieldsLabel.setLayoutData(fdHeavyHitterFieldsLabel);
+
+        wHeavyHitterFieldsField = new TextVar(transMeta, heavyHitterGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wHeavyHitterFieldsField);
+        wHeavyHitterFieldsField.addModifyListener(lsChanges);
+        final FormData fdHeavyHitterFieldsField = new FormDataBuilder().left(wHeavyHitterFieldsLabel, LABEL_SPACING)
+                .top()
+                .width(LARGE_FIELD)
+                .result();
+        wHeavyHitterFieldsField.setLayoutData(fdHeavyHitterFieldsField);
+
+        // heavy hitter count label/text
+        wHeavyHitterCountLabel = new Label(heavyHitterGroup, SWT.LEFT);
+        props.setLook(wHeavyHitterCountLabel);
+        wHeavyHitterCountLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextHeavyHitterCount"));
+        final FormData fdHeavyHitterCountLabel = new FormDataBuilder().left()
+                .top(wHeavyHitterFieldsLabel)
+                .result();
+        wHeavyHitterCountLabel.setLayoutData(fdHeavyHitterCountLabel);
+
+        wHeavyHitterCountField = new Text(heavyHitterGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wHeavyHitterCountField);
+        wHeavyHitterCountField.addModifyListener(lsChanges);
+        final FormData fdHeavyHitterCountField = new FormDataBuilder().left(wHeavyHitterCountLabel, LABEL_SPACING)
+                .top(wHeavyHitterFieldsLabel)
+                .result();
+        wHeavyHitterCountField.setLayoutData(fdHeavyHitterCountField);
+
+        // heavy hitter interval label/text
+        wHeavyHitterIntervalLabel = new Label(heavyHitterGroup, SWT.LEFT);
+        props.setLook(wHeavyHitterIntervalLabel);
+        wHeavyHitterIntervalLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextHeavyHitterInterval"));
+        final FormData fdHeavyHitterIntervalLabel = new FormDataBuilder().left()
+                .top(wHeavyHitterCountLabel)
+                .result();
+        wHeavyHitterIntervalLabel.setLayoutData(fdHeavyHitterIntervalLabel);
+
+        wHeavyHitterIntervalField = new Text(heavyHitterGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wHeavyHitterIntervalField);
+        wHeavyHitterIntervalField.addModifyListener(lsChanges);
+        final FormData fdHeavyHitterIntervalField = new FormDataBuilder().left(wHeavyHitterIntervalLabel, LABEL_SPACING)
+                .top(wHeavyHitterCountLabel)
+                .result();
+        wHeavyHitterIntervalField.setLayoutData(fdHeavyHitterIntervalField);
+
+        //Group for the detection of duplicate keys
+        final Group duplicateGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        duplicateGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.DuplicateKeys"));
+        final FormLayout duplicateGroupLayout = new FormLayout();
+        duplicateGroupLayout.marginWidth = MARGIN_SIZE;
+        duplicateGroupLayout.marginHeight = MARGIN_SIZE;
+        duplicateGroup.setLayout(duplicateGroupLayout);
+        final FormData duplicateGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(heavyHitterGroup, MARGIN_SIZE)
+                .result();
+        duplicateGroup.setLayoutData(duplicateGroupLayoutData);
+        props.setLook(duplicateGroup);
+
+        // duplicate key fields label/text
+        wDuplicateKeyFieldsLabel = new Label(duplicateGroup, SWT.LEFT);
+        props.setLook(wDuplicateKeyFieldsLabel);
+        wDuplicateKeyFieldsLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextDuplicateKeyFields"));
+        final FormData fdDuplicateKeyFieldsLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wDuplicateKeyFieldsLabel.setLayoutData(fdDuplicateKeyFieldsLabel);
+
+        wDuplicateKeyFieldsField = new TextVar(transMeta, duplicateGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wDuplicateKeyFieldsField);
+        wDuplicateKeyFieldsField.addModifyListener(lsChanges);
+        final FormData fdDuplicateKeyFieldsField = new FormDataBuilder().left(wDuplicateKeyFieldsLabel, LABEL_SPACING)
+                .top()
+                .width(LARGE_FIELD)
+                .result();
+        wDuplicateKeyFieldsField.setLayoutData(fdDuplicateKeyFieldsField);
+
+        // duplicate expected keys label/text
+        wDuplicateExpectedKeysLabel = new Label(duplicateGroup, SWT.LEFT);
+        props.setLook(wDuplicateExpectedKeysLabel);
+        wDuplicateExpectedKeysLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextDuplicateExpectedKeys"));
+        final FormData fdDuplicateExpectedKeysLabel = new FormDataBuilder().left()
+                .top(wDuplicateKeyFieldsLabel)
+                .result();
+        wDuplicateExpectedKeysLabel.setLayoutData(fdDuplicateExpectedKeysLabel);
+
+        wDuplicateExpectedKeysField = new Text(duplicateGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wDuplicateExpectedKeysField);
+        wDuplicateExpectedKeysField.addModifyListener(lsChanges);
+        final FormData fdDuplicateExpectedKeysField = new FormDataBuilder().left(wDuplicateExpectedKeysLabel, LABEL_SPACING)
+                .top(wDuplicateKeyFieldsLabel)
+                .result();
+        wDuplicateExpectedKeysField.setLayoutData(fdDuplicateExpectedKeysField);
+
+        // duplicate false positive rate label/text
+        wDuplicateFalsePositiveRateLabel = new Label(duplicateGroup, SWT.LEFT);
+        props.setLook(wDuplicateFalsePositiveRateLabel);
+        wDuplicateFalsePositiveRateLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextDuplicateFalsePositiveRate"));
+        final FormData fdDuplicateFalsePositiveRateLabel = new FormDataBuilder().left()
+                .top(wDuplicateExpectedKeysLabel)
+                .result();
+        wDuplicateFalsePositiveRateLabel.setLayoutData(fdDuplicateFalsePositiveRateLabel);
+
+        wDuplicateFalsePositiveRateField = new Text(duplicateGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wDuplicateFalsePositiveRateField);
+        wDuplicateFalsePositiveRateField.addModifyListener(lsChanges);
+        final FormData fdDuplicateFalsePositiveRateField = new FormDataBuilder().left(wDuplicateFalsePositiveRateLabel, LABEL_SPACING)
+                .top(wDuplicateExpectedKeysLabel)
+                .result();
+        wDuplicateFalsePositiveRateField.setLayoutData(fdDuplicateFalsePositiveRateField);
+
+        // duplicate exact set size label/text
+        wDuplicateExactSetSizeLabel = new Label(duplicateGroup, SWT.LEFT);
+        props.setLook(wDuplicateExactSetSizeLabel);
+        wDuplicateExactSetSizeLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextDuplicateExactSetSize"));
+        final FormData fdDuplicateExactSetSizeLabel = new FormDataBuilder().left()
+                .top(wDuplicateFalsePositiveRateLabel)
+                .result();
+        wDuplicateExactSetSizeLabel.setLayoutData(fdDuplicateExactSetSizeLabel);
+
+        wDuplicateExactSetSizeField = new Text(duplicateGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wDuplicateExactSetSizeField);
+        wDuplicateExactSetSizeField.addModifyListener(lsChanges);
+        final FormData fdDuplicateExactSetSizeField = new FormDataBuilder().left(wDuplicateExactSetSizeLabel, LABEL_SPACING)
+                .top(wDuplicateFalsePositiveRateLabel)
+                .result();
+        wDuplicateExactSetSizeField.setLayoutData(fdDuplicateExactSetSizeField);
+
+        // duplicate off heap checkbox
+        wDuplicateOffHeapField = new Button(duplicateGroup, SWT.CHECK);
+        props.setLook(wDuplicateOffHeapField);
+        wDuplicateOffHeapField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckDuplicateOffHeap"));
+        wDuplicateOffHeapField.addSelectionListener(lsSelectionChanges);
+        final FormData fdDuplicateOffHeapField = new FormDataBuilder().left()
+                .top(wDuplicateExactSetSizeLabel)
+                .result();
+        wDuplicateOffHeapField.setLayoutData(fdDuplicateOffHeapField);
+
+        // log duplicates checkbox
+        wLogDuplicatesField = new Button(duplicateGroup, SWT.CHECK);
+        props.setLook(wLogDuplicatesField);
+        wLogDuplicatesField.setText(BaseMessages.getString(PKG, "LogRowDialog.CheckLogDuplicates"));
+        wLogDuplicatesField.addSelectionListener(lsSelectionChanges);
+        final FormData fdLogDuplicatesField = new FormDataBuilder().left()
+                .top(wDuplicateOffHeapField)
+                .result();
+        wLogDuplicatesField.setLayoutData(fdLogDuplicatesField);
+
+        //Group for the verification of the sort order
+        final Group sortOrderGroup = new Group(contentComposite, SWT.SHADOW_ETCHED_IN);
+        sortOrderGroup.setText(BaseMessages.getString(PKG, "LogRowDialog.GroupText.SortOrder"));
+        final FormLayout sortOrderGroupLayout = new FormLayout();
+        sortOrderGroupLayout.marginWidth = MARGIN_SIZE;
+        sortOrderGroupLayout.marginHeight = MARGIN_SIZE;
+        sortOrderGroup.setLayout(sortOrderGroupLayout);
+        final FormData sortOrderGroupLayoutData = new FormDataBuilder().fullWidth()
+                .top(duplicateGroup, MARGIN_SIZE)
+                .result();
+        sortOrderGroup.setLayoutData(sortOrderGroupLayoutData);
+        props.setLook(sortOrderGroup);
+
+        // sort key fields label/text
+        wSortKeyFieldsLabel = new Label(sortOrderGroup, SWT.LEFT);
+        props.setLook(wSortKeyFieldsLabel);
+        wSortKeyFieldsLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextSortKeyFields"));
+        final FormData fdSortKeyFieldsLabel = new FormDataBuilder().left()
+                .top()
+                .result();
+        wSortKeyFieldsLabel.setLayoutData(fdSortKeyFieldsLabel);
+
+        wSortKeyFieldsField = new TextVar(transMeta, sortOrderGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wSortKeyFieldsField);
+        wSortKeyFieldsField.addModifyListener(lsChanges);
+        final FormData fdSortKeyFieldsField = new FormDataBuilder().left(wSortKeyFieldsLabel, LABEL_SPACING)
+                .top()
+                .width(LARGE_FIELD)
+                .result();
+        wSortKeyFieldsField.setLayoutData(fdSortKeyFieldsField);
+
+        // max sort violations logged label/text
+        wMaxSortViolationsLoggedLabel = new Label(sortOrderGroup, SWT.LEFT);
+        props.setLook(wMaxSortViolationsLoggedLabel);
+        wMaxSortViolationsLoggedLabel.setText(BaseMessages.getString(PKG, "LogRowDialog.TextMaxSortViolationsLogged"));
+        final FormData fdMaxSortViolationsLoggedLabel = new FormDataBuilder().left()
+                .top(wSortKeyFieldsLabel)
+                .result();
+        wMaxSortViolationsLoggedLabel.setLayoutData(fdMaxSortViolationsLoggedLabel);
+
+        wMaxSortViolationsLoggedField = new Text(sortOrderGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+        props.setLook(wMaxSortViolationsLoggedField);
+        wMaxSortViolationsLoggedField.addModifyListener(lsChanges);
+        final FormData fdMaxSortViolationsLoggedField = new FormDataBuilder().left(wMaxSortViolationsLoggedLabel, LABEL_SPACING)
+                .top(wSortKeyFieldsLabel)
+                .result();
+        wMaxSortViolationsLoggedField.setLayoutData(fdMaxSortViolationsLoggedField);
+
         //Cancel and OK buttons for the bottom of the window.
         wCancel = new Button(shell, SWT.PUSH);
         wCancel.setText(BaseMessages.getString(PKG, "System.Button.Cancel"));
@@ -280,6 +1234,73 @@ public class LogRowDialog extends BaseStepDialog implements StepDialogInterface
 
         final NonErrorLogDetail nonErrorLogDetail = meta.getNonErrorLogDetail();
         wNonErrorLogDetailField.setText(nonErrorLogDetail.name());
+
+        final LogSampling logSampling = meta.getLogSampling();
+        wLogSamplingField.setText(logSampling.name());
+
+        wSamplingSizeField.setText(Integer.toString(meta.getSamplingSize()));
+        wMaxFieldLengthField.setText(Integer.toString(meta.getMaxFieldLength()));
+        wDeltaKeyframeIntervalField.setText(Integer.toString(meta.getDeltaKeyframeInterval()));
+        wLogConditionField.setText(Const.NVL(meta.getLogCondition(), ""));
+        wFirstRowsField.setText(Integer.toString(meta.getFirstRows()));
+        wBatchSizeField.setText(Integer.toString(meta.getBatchSize()));
+
+        wAsyncLoggingField.setSelection(meta.isAsyncLogging());
+        wAsyncBufferSizeField.setText(Integer.toString(meta.getAsyncBufferSize()));
+        wLogOverflowPolicyField.setText(meta.getLogOverflowPolicy().name());
+
+        wMetricsEnabledField.setSelection(meta.isMetricsEnabled());
+        wMetricsIntervalField.setText(Integer.toString(meta.getMetricsInterval()));
+        wJmxEnabledField.setSelection(meta.isJmxEnabled());
+        wProfilingEnabledField.setSelection(meta.isProfilingEnabled());
+        wDriftDetectionField.setSelection(meta.isDriftDetection());
+        wFlightRecorderSizeField.setText(Integer.toString(meta.getFlightRecorderSize()));
+        wCoordinateCopiesField.setSelection(meta.isCoordinateCopies());
+        wDigestEnabledField.setSelection(meta.isDigestEnabled());
+        wDigestFieldField.setText(Const.NVL(meta.getDigestField(), ""));
+
+        wOutputTargetField.setText(meta.getOutputTarget().name());
+        wOutputFileField.setText(Const.NVL(meta.getOutputFile(), ""));
+        wOutputFileMaxSizeField.setText(Integer.toString(meta.getOutputFileMaxSize()));
+        wOutputFileGzipField.setSelection(meta.isOutputFileGzip());
+
+        wLogModeControlField.setText(meta.getLogModeControl().name());
+        wLogModeControlTargetField.setText(Const.NVL(meta.getLogModeControlTarget(), ""));
+        wLogModeControlIntervalField.setText(Integer.toString(meta.getLogModeControlInterval()));
+
+        wRowNumberFieldField.setText(Const.NVL(meta.getRowNumberField(), ""));
+        wCopyNumberFieldField.setText(Const.NVL(meta.getCopyNumberField(), ""));
+        wTimestampFieldField.setText(Const.NVL(meta.getTimestampField(), ""));
+        wFieldCountMismatchFieldField.setText(Const.NVL(meta.getFieldCountMismatchField(), ""));
+        wRowHashFieldField.setText(Const.NVL(meta.getRowHashField(), ""));
+
+        wTraceProbeField.setText(meta.getTraceProbe().name());
+        wTraceFieldField.setText(Const.NVL(meta.getTraceField(), ""));
+        wTraceSamplingField.setText(Integer.toString(meta.getTraceSampling()));
+
+        wHeavyHitterFieldsField.setText(Const.NVL(meta.getHeavyHitterFields(), ""));
+        wHeavyHitterCountField.setText(Integer.toString(meta.getHeavyHitterCount()));
+        wHeavyHitterIntervalField.setText(Integer.toString(meta.getHeavyHitterInterval()));
+
+        wDuplicateKeyFieldsField.setText(Const.NVL(meta.getDuplicateKeyFields(), ""));
+        wDuplicateExpectedKeysField.setText(Integer.toString(meta.getDuplicateExpectedKeys()));
+        wDuplicateFalsePositiveRateField.setText(Double.toString(meta.getDuplicateFalsePositiveRate()));
+        wDuplicateExactSetSizeField.setText(Integer.toString(meta.getDuplicateExactSetSize()));
+        wDuplicateOffHeapField.setSelection(meta.isDuplicateOffHeap());
+        wLogDuplicatesField.setSelection(meta.isLogDuplicates());
+        wSortKeyFieldsField.setText(Const.NVL(meta.getSortKeyFields(), ""));
+        wMaxSortViolationsLoggedField.setText(Integer.toString(meta.getMaxSortViolationsLogged()));
+
+        final List<RedactionRule> redactionRules = meta.getRedactionRules();
+        for (int i = 0; i < redactionRules.size(); i++) {
+            final RedactionRule redactionRule = redactionRules.get(i);
+            final TableItem item = wRedactionRulesField.table.getItem(i);
+            item.setText(1, Const.NVL(redactionRule.getFieldName(), ""));
+            item.setText(2, redactionRule.getAction().name());
+            item.setText(3, Integer.toString(redactionRule.getPrefixLength()));
+        }
+        wRedactionRulesField.setRowNums();
+        wRedactionRulesField.optWidth(true);
     }
 
     private void saveData() {
@@ -292,6 +1313,92 @@ public class LogRowDialog extends BaseStepDialog implements StepDialogInterface
         if (xNonErrorLogDetail != null && !xNonErrorLogDetail.isEmpty()) {
             meta.setNonErrorLogDetail(NonErrorLogDetail.valueOf(xNonErrorLogDetail));
         }
+
+        final String xLogSampling = wLogSamplingField.getText();
+        if (xLogSampling != null && !xLogSampling.isEmpty()) {
+            meta.setLogSampling(LogSampling.valueOf(xLogSampling));
+        }
+
+        meta.setSamplingSize(Const.toInt(wSamplingSizeField.getText(), LogRowMeta.DEFAULT_SAMPLING_SIZE));
+        meta.setMaxFieldLength(Const.toInt(wMaxFieldLengthField.getText(), 0));
+        meta.setDeltaKeyframeInterval(Const.toInt(wDeltaKeyframeIntervalField.getText(), 0));
+        meta.setLogCondition(wLogConditionField.getText());
+        meta.setFirstRows(Const.toInt(wFirstRowsField.getText(), LogRowMeta.DEFAULT_FIRST_ROWS));
+        meta.setBatchSize(Const.toInt(wBatchSizeField.getText(), LogRowMeta.DEFAULT_BATCH_SIZE));
+
+        meta.setAsyncLogging(wAsyncLoggingField.getSelection());
+        meta.setAsyncBufferSize(Const.toInt(wAsyncBufferSizeField.getText(), LogRowMeta.DEFAULT_ASYNC_BUFFER_SIZE));
+
+        final String xLogOverflowPolicy = wLogOverflowPolicyField.getText();
+        if (xLogOverflowPolicy != null && !xLogOverflowPolicy.isEmpty()) {
+            meta.setLogOverflowPolicy(LogOverflowPolicy.valueOf(xLogOverflowPolicy));
+        }
+
+        meta.setMetricsEnabled(wMetricsEnabledField.getSelection());
+        meta.setMetricsInterval(Const.toInt(wMetricsIntervalField.getText(), LogRowMeta.DEFAULT_METRICS_INTERVAL));
+        meta.setJmxEnabled(wJmxEnabledField.getSelection());
+        meta.setProfilingEnabled(wProfilingEnabledField.getSelection());
+        meta.setDriftDetection(wDriftDetectionField.getSelection());
+        meta.setFlightRecorderSize(Const.toInt(wFlightRecorderSizeField.getText(), 0));
+        meta.setCoordinateCopies(wCoordinateCopiesField.getSelection());
+        meta.setDigestEnabled(wDigestEnabledField.getSelection());
+        meta.setDigestField(wDigestFieldField.getText());
+
+        final String xOutputTarget = wOutputTargetField.getText();
+        if (xOutputTarget != null && !xOutputTarget.isEmpty()) {
+            meta.setOutputTarget(LogOutputTarget.valueOf(xOutputTarget));
+        }
+        meta.setOutputFile(wOutputFileField.getText());
+        meta.setOutputFileMaxSize(Const.toInt(wOutputFileMaxSizeField.getText(), 0));
+        meta.setOutputFileGzip(wOutputFileGzipField.getSelection());
+
+        final String xLogModeControl = wLogModeControlField.getText();
+        if (xLogModeControl != null && !xLogModeControl.isEmpty()) {
+            meta.setLogModeControl(LogModeControl.valueOf(xLogModeControl));
+        }
+        meta.setLogModeControlTarget(wLogModeControlTargetField.getText());
+        meta.setLogModeControlInterval(Const.toInt(wLogModeControlIntervalField.getText(), LogRowMeta.DEFAULT_LOG_MODE_CONTROL_INTERVAL));
+
+        meta.setRowNumberField(wRowNumberFieldField.getText());
+        meta.setCopyNumberField(wCopyNumberFieldField.getText());
+        meta.setTimestampField(wTimestampFieldField.getText());
+        meta.setFieldCountMismatchField(wFieldCountMismatchFieldField.getText());
+        meta.setRowHashField(wRowHashFieldField.getText());
+
+        final String xTraceProbe = wTraceProbeField.getText();
+        if (xTraceProbe != null && !xTraceProbe.isEmpty()) {
+            meta.setTraceProbe(TraceProbe.valueOf(xTraceProbe));
+        }
+        meta.setTraceField(wTraceFieldField.getText());
+        meta.setTraceSampling(Const.toInt(wTraceSamplingField.getText(), LogRowMeta.DEFAULT_TRACE_SAMPLING));
+
+        meta.setHeavyHitterFields(wHeavyHitterFieldsField.getText());
+        meta.setHeavyHitterCount(Const.toInt(wHeavyHitterCountField.getText(), LogRowMeta.DEFAULT_HEAVY_HITTER_COUNT));
+        meta.setHeavyHitterInterval(Const.toInt(wHeavyHitterIntervalField.getText(), 0));
+
+        meta.setDuplicateKeyFields(wDuplicateKeyFieldsField.getText());
+        meta.setDuplicateExpectedKeys(Const.toInt(wDuplicateExpectedKeysField.getText(), LogRowMeta.DEFAULT_DUPLICATE_EXPECTED_KEYS));
+        meta.setDuplicateFalsePositiveRate(Const.toDouble(wDuplicateFalsePositiveRateField.getText(), LogRowMeta.DEFAULT_DUPLICATE_FALSE_POSITIVE_RATE));
+        meta.setDuplicateExactSetSize(Const.toInt(wDuplicateExactSetSizeField.getText(), LogRowMeta.DEFAULT_DUPLICATE_EXACT_SET_SIZE));
+        meta.setDuplicateOffHeap(wDuplicateOffHeapField.getSelection());
+        meta.setLogDuplicates(wLogDuplicatesField.getSelection());
+        meta.setSortKeyFields(wSortKeyFieldsField.getText());
+        meta.setMaxSortViolationsLogged(Const.toInt(wMaxSortViolationsLoggedField.getText(), LogRowMeta.DEFAULT_MAX_SORT_VIOLATIONS_LOGGED));
+
+        final int nrRedactionRules = wRedactionRulesField.nrNonEmpty();
+        final List<RedactionRule> redactionRules = new ArrayList<>(nrRedactionRules);
+        for (int i = 0; i < nrRedactionRules; i++) {
+            final TableItem item = wRedactionRulesField.getNonEmpty(i);
+            final String xFieldName = item.getText(1);
+            if (xFieldName == null || xFieldName.isEmpty()) {
+                continue;
+            }
+            final String xAction = item.getText(2);
+            final RedactionAction action = xAction != null && !xAction.isEmpty()
+                    ? RedactionAction.valueOf(xAction) : RedactionAction.MASK;
+            redactionRules.add(new RedactionRule(xFieldName, action, Const.toInt(item.getText(3), 0)));
+        }
+        meta.setRedactionRules(redactionRules);
     }
 
     private Image getImage() {
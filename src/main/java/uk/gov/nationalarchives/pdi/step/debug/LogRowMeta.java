@@ -25,7 +25,13 @@ package uk.gov.nationalarchives.pdi.step.debug;
 import org.pentaho.di.core.annotations.Step;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
@@ -35,17 +41,128 @@ import org.pentaho.di.trans.step.*;
 import org.pentaho.metastore.api.IMetaStore;
 import org.w3c.dom.Node;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Step(id = "LogRowStep", image = "LogRowStep.svg", name = "Debug - Log Row",
         description = "Logs a Row", categoryDescription = "Utility")
 public class LogRowMeta extends BaseStepMeta implements StepMetaInterface {
 
+    private static final String ELEM_NAME_STEP = "step";
     private static final String ELEM_NAME_ERROR_LOG_CASE = "errorLogCase";
     private static final String ELEM_NAME_NON_ERROR_LOG_DETAIL = "nonErrorLogDetail";
+    private static final String ELEM_NAME_LOG_SAMPLING = "logSampling";
+    private static final String ELEM_NAME_SAMPLING_SIZE = "samplingSize";
+    private static final String ELEM_NAME_MAX_FIELD_LENGTH = "maxFieldLength";
+    private static final String ELEM_NAME_DELTA_KEYFRAME_INTERVAL = "deltaKeyframeInterval";
+    private static final String ELEM_NAME_LOG_CONDITION = "logCondition";
+    private static final String ELEM_NAME_FIRST_ROWS = "firstRows";
+    private static final String ELEM_NAME_BATCH_SIZE = "batchSize";
+    private static final String ELEM_NAME_ASYNC_LOGGING = "asyncLogging";
+    private static final String ELEM_NAME_ASYNC_BUFFER_SIZE = "asyncBufferSize";
+    private static final String ELEM_NAME_LOG_OVERFLOW_POLICY = "logOverflowPolicy";
+    private static final String ELEM_NAME_METRICS_ENABLED = "metricsEnabled";
+    private static final String ELEM_NAME_METRICS_INTERVAL = "metricsInterval";
+    private static final String ELEM_NAME_JMX_ENABLED = "jmxEnabled";
+    private static final String ELEM_NAME_PROFILING_ENABLED = "profilingEnabled";
+    private static final String ELEM_NAME_DRIFT_DETECTION = "driftDetection";
+    private static final String ELEM_NAME_FLIGHT_RECORDER_SIZE = "flightRecorderSize";
+    private static final String ELEM_NAME_COORDINATE_COPIES = "coordinateCopies";
+    private static final String ELEM_NAME_DIGEST_ENABLED = "digestEnabled";
+    private static final String ELEM_NAME_DIGEST_FIELD = "digestField";
+    private static final String ELEM_NAME_OUTPUT_TARGET = "outputTarget";
+    private static final String ELEM_NAME_OUTPUT_FILE = "outputFile";
+    private static final String ELEM_NAME_OUTPUT_FILE_MAX_SIZE = "outputFileMaxSize";
+    private static final String ELEM_NAME_OUTPUT_FILE_GZIP = "outputFileGzip";
+    private static final String ELEM_NAME_LOG_MODE_CONTROL = "logModeControl";
+    private static final String ELEM_NAME_LOG_MODE_CONTROL_TARGET = "logModeControlTarget";
+    private static final String ELEM_NAME_LOG_MODE_CONTROL_INTERVAL = "logModeControlInterval";
+    private static final String ELEM_NAME_ROW_NUMBER_FIELD = "rowNumberField";
+    private static final String ELEM_NAME_COPY_NUMBER_FIELD = "copyNumberField";
+    private static final String ELEM_NAME_TIMESTAMP_FIELD = "timestampField";
+    private static final String ELEM_NAME_FIELD_COUNT_MISMATCH_FIELD = "fieldCountMismatchField";
+    private static final String ELEM_NAME_ROW_HASH_FIELD = "rowHashField";
+    private static final String ELEM_NAME_TRACE_PROBE = "traceProbe";
+    private static final String ELEM_NAME_TRACE_FIELD = "traceField";
+    private static final String ELEM_NAME_TRACE_SAMPLING = "traceSampling";
+    private static final String ELEM_NAME_HEAVY_HITTER_FIELDS = "heavyHitterFields";
+    private static final String ELEM_NAME_HEAVY_HITTER_COUNT = "heavyHitterCount";
+    private static final String ELEM_NAME_HEAVY_HITTER_INTERVAL = "heavyHitterInterval";
+    private static final String ELEM_NAME_DUPLICATE_KEY_FIELDS = "duplicateKeyFields";
+    private static final String ELEM_NAME_DUPLICATE_EXPECTED_KEYS = "duplicateExpectedKeys";
+    private static final String ELEM_NAME_DUPLICATE_FALSE_POSITIVE_RATE = "duplicateFalsePositiveRate";
+    private static final String ELEM_NAME_DUPLICATE_EXACT_SET_SIZE = "duplicateExactSetSize";
+    private static final String ELEM_NAME_DUPLICATE_OFF_HEAP = "duplicateOffHeap";
+    private static final String ELEM_NAME_LOG_DUPLICATES = "logDuplicates";
+    private static final String ELEM_NAME_SORT_KEY_FIELDS = "sortKeyFields";
+    private static final String ELEM_NAME_MAX_SORT_VIOLATIONS_LOGGED = "maxSortViolationsLogged";
+    private static final String ELEM_NAME_REDACTION_RULES = "redactionRules";
+    private static final String ELEM_NAME_REDACTION_RULE = "redactionRule";
+    private static final String ELEM_NAME_REDACTION_FIELD = "field";
+    private static final String ELEM_NAME_REDACTION_ACTION = "action";
+    private static final String ELEM_NAME_REDACTION_PREFIX_LENGTH = "prefixLength";
+
+    static final int DEFAULT_SAMPLING_SIZE = 100;
+    static final int DEFAULT_FIRST_ROWS = 1;
+    static final int DEFAULT_BATCH_SIZE = 1;
+    static final int DEFAULT_ASYNC_BUFFER_SIZE = 8192;
+    static final int DEFAULT_METRICS_INTERVAL = 60;
+    static final int DEFAULT_LOG_MODE_CONTROL_INTERVAL = 5;
+    static final int DEFAULT_TRACE_SAMPLING = 100;
+    static final int DEFAULT_HEAVY_HITTER_COUNT = 10;
+    static final int DEFAULT_DUPLICATE_EXPECTED_KEYS = 10_000_000;
+    static final double DEFAULT_DUPLICATE_FALSE_POSITIVE_RATE = 0.01;
+    static final int DEFAULT_DUPLICATE_EXACT_SET_SIZE = 64;
+    static final int DEFAULT_MAX_SORT_VIOLATIONS_LOGGED = 10;
 
     private ErrorLogCase errorLogCase;
     private NonErrorLogDetail nonErrorLogDetail;
+    private LogSampling logSampling = LogSampling.NONE;
+    private int samplingSize = DEFAULT_SAMPLING_SIZE;
+    private int maxFieldLength;
+    private int deltaKeyframeInterval;
+    private String logCondition;
+    private int firstRows = DEFAULT_FIRST_ROWS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean asyncLogging;
+    private int asyncBufferSize = DEFAULT_ASYNC_BUFFER_SIZE;
+    private LogOverflowPolicy logOverflowPolicy = LogOverflowPolicy.DROP;
+    private boolean metricsEnabled;
+    private int metricsInterval = DEFAULT_METRICS_INTERVAL;
+    private boolean jmxEnabled;
+    private boolean profilingEnabled;
+    private boolean driftDetection;
+    private int flightRecorderSize;
+    private boolean coordinateCopies;
+    private boolean digestEnabled;
+    private String digestField;
+    private LogOutputTarget outputTarget = LogOutputTarget.LOG;
+    private String outputFile;
+    private int outputFileMaxSize;
+    private boolean outputFileGzip;
+    private LogModeControl logModeControl = LogModeControl.NONE;
+    private String logModeControlTarget;
+    private int logModeControlInterval = DEFAULT_LOG_MODE_CONTROL_INTERVAL;
+    private String rowNumberField;
+    private String copyNumberField;
+    private String timestampField;
+    private String fieldCountMismatchField;
+    private String rowHashField;
+    private TraceProbe traceProbe = TraceProbe.NONE;
+    private String traceField;
+    private int traceSampling = DEFAULT_TRACE_SAMPLING;
+    private String heavyHitterFields;
+    private int heavyHitterCount = DEFAULT_HEAVY_HITTER_COUNT;
+    private int heavyHitterInterval;
+    private String duplicateKeyFields;
+    private int duplicateExpectedKeys = DEFAULT_DUPLICATE_EXPECTED_KEYS;
+    private double duplicateFalsePositiveRate = DEFAULT_DUPLICATE_FALSE_POSITIVE_RATE;
+    private int duplicateExactSetSize = DEFAULT_DUPLICATE_EXACT_SET_SIZE;
+    private boolean duplicateOffHeap;
+    private boolean logDuplicates;
+    private String sortKeyFields;
+    private int maxSortViolationsLogged = DEFAULT_MAX_SORT_VIOLATIONS_LOGGED;
+    private List<RedactionRule> redactionRules = new ArrayList<>();
 
     public LogRowMeta() {
         super();
@@ -55,6 +172,52 @@ public class LogRowMeta extends BaseStepMeta implements StepMetaInterface {
     public void setDefault() {
         this.errorLogCase = ErrorLogCase.ALL;
         this.nonErrorLogDetail = NonErrorLogDetail.NONE;
+        this.logSampling = LogSampling.NONE;
+        this.samplingSize = DEFAULT_SAMPLING_SIZE;
+        this.maxFieldLength = 0;
+        this.deltaKeyframeInterval = 0;
+        this.logCondition = null;
+        this.firstRows = DEFAULT_FIRST_ROWS;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.asyncLogging = false;
+        this.asyncBufferSize = DEFAULT_ASYNC_BUFFER_SIZE;
+        this.logOverflowPolicy = LogOverflowPolicy.DROP;
+        this.metricsEnabled = false;
+        this.metricsInterval = DEFAULT_METRICS_INTERVAL;
+        this.jmxEnabled = false;
+        this.profilingEnabled = false;
+        this.driftDetection = false;
+        this.flightRecorderSize = 0;
+        this.coordinateCopies = false;
+        this.digestEnabled = false;
+        this.digestField = null;
+        this.outputTarget = LogOutputTarget.LOG;
+        this.outputFile = null;
+        this.outputFileMaxSize = 0;
+        this.outputFileGzip = false;
+        this.logModeControl = LogModeControl.NONE;
+        this.logModeControlTarget = null;
+        this.logModeControlInterval = DEFAULT_LOG_MODE_CONTROL_INTERVAL;
+        this.rowNumberField = null;
+        this.copyNumberField = null;
+        this.timestampField = null;
+        this.fieldCountMismatchField = null;
+        this.rowHashField = null;
+        this.traceProbe = TraceProbe.NONE;
+        this.traceField = null;
+        this.traceSampling = DEFAULT_TRACE_SAMPLING;
+        this.heavyHitterFields = null;
+        this.heavyHitterCount = DEFAULT_HEAVY_HITTER_COUNT;
+        this.heavyHitterInterval = 0;
+        this.duplicateKeyFields = null;
+        this.duplicateExpectedKeys = DEFAULT_DUPLICATE_EXPECTED_KEYS;
+        this.duplicateFalsePositiveRate = DEFAULT_DUPLICATE_FALSE_POSITIVE_RATE;
+        this.duplicateExactSetSize = DEFAULT_DUPLICATE_EXACT_SET_SIZE;
+        this.duplicateOffHeap = false;
+        this.logDuplicates = false;
+        this.sortKeyFields = null;
+        this.maxSortViolationsLogged = DEFAULT_MAX_SORT_VIOLATIONS_LOGGED;
+        this.redactionRules = new ArrayList<>();
     }
 
     @Override
@@ -62,36 +225,197 @@ public class LogRowMeta extends BaseStepMeta implements StepMetaInterface {
         final StringBuilder builder = new StringBuilder();
         builder
                 .append(XMLHandler.addTagValue(ELEM_NAME_ERROR_LOG_CASE, errorLogCase.name()))
-                .append(XMLHandler.addTagValue(ELEM_NAME_NON_ERROR_LOG_DETAIL, nonErrorLogDetail.name()));
+                .append(XMLHandler.addTagValue(ELEM_NAME_NON_ERROR_LOG_DETAIL, nonErrorLogDetail.name()))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_SAMPLING, logSampling.name()))
+                .append(XMLHandler.addTagValue(ELEM_NAME_SAMPLING_SIZE, samplingSize))
+                .append(XMLHandler.addTagValue(ELEM_NAME_MAX_FIELD_LENGTH, maxFieldLength))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DELTA_KEYFRAME_INTERVAL, deltaKeyframeInterval))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_CONDITION, logCondition))
+                .append(XMLHandler.addTagValue(ELEM_NAME_FIRST_ROWS, firstRows))
+                .append(XMLHandler.addTagValue(ELEM_NAME_BATCH_SIZE, batchSize))
+                .append(XMLHandler.addTagValue(ELEM_NAME_ASYNC_LOGGING, asyncLogging))
+                .append(XMLHandler.addTagValue(ELEM_NAME_ASYNC_BUFFER_SIZE, asyncBufferSize))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_OVERFLOW_POLICY, logOverflowPolicy.name()))
+                .append(XMLHandler.addTagValue(ELEM_NAME_METRICS_ENABLED, metricsEnabled))
+                .append(XMLHandler.addTagValue(ELEM_NAME_METRICS_INTERVAL, metricsInterval))
+                .append(XMLHandler.addTagValue(ELEM_NAME_JMX_ENABLED, jmxEnabled))
+                .append(XMLHandler.addTagValue(ELEM_NAME_PROFILING_ENABLED, profilingEnabled))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DRIFT_DETECTION, driftDetection))
+                .append(XMLHandler.addTagValue(ELEM_NAME_FLIGHT_RECORDER_SIZE, flightRecorderSize))
+                .append(XMLHandler.addTagValue(ELEM_NAME_COORDINATE_COPIES, coordinateCopies))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DIGEST_ENABLED, digestEnabled))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DIGEST_FIELD, digestField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_OUTPUT_TARGET, outputTarget.name()))
+                .append(XMLHandler.addTagValue(ELEM_NAME_OUTPUT_FILE, outputFile))
+                .append(XMLHandler.addTagValue(ELEM_NAME_OUTPUT_FILE_MAX_SIZE, outputFileMaxSize))
+                .append(XMLHandler.addTagValue(ELEM_NAME_OUTPUT_FILE_GZIP, outputFileGzip))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_MODE_CONTROL, logModeControl.name()))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_MODE_CONTROL_TARGET, logModeControlTarget))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_MODE_CONTROL_INTERVAL, logModeControlInterval))
+                .append(XMLHandler.addTagValue(ELEM_NAME_ROW_NUMBER_FIELD, rowNumberField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_COPY_NUMBER_FIELD, copyNumberField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_TIMESTAMP_FIELD, timestampField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_FIELD_COUNT_MISMATCH_FIELD, fieldCountMismatchField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_ROW_HASH_FIELD, rowHashField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_TRACE_PROBE, traceProbe.name()))
+                .append(XMLHandler.addTagValue(ELEM_NAME_TRACE_FIELD, traceField))
+                .append(XMLHandler.addTagValue(ELEM_NAME_TRACE_SAMPLING, traceSampling))
+                .append(XMLHandler.addTagValue(ELEM_NAME_HEAVY_HITTER_FIELDS, heavyHitterFields))
+                .append(XMLHandler.addTagValue(ELEM_NAME_HEAVY_HITTER_COUNT, heavyHitterCount))
+                .append(XMLHandler.addTagValue(ELEM_NAME_HEAVY_HITTER_INTERVAL, heavyHitterInterval))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DUPLICATE_KEY_FIELDS, duplicateKeyFields))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DUPLICATE_EXPECTED_KEYS, duplicateExpectedKeys))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DUPLICATE_FALSE_POSITIVE_RATE, duplicateFalsePositiveRate))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DUPLICATE_EXACT_SET_SIZE, duplicateExactSetSize))
+                .append(XMLHandler.addTagValue(ELEM_NAME_DUPLICATE_OFF_HEAP, duplicateOffHeap))
+                .append(XMLHandler.addTagValue(ELEM_NAME_LOG_DUPLICATES, logDuplicates))
+                .append(XMLHandler.addTagValue(ELEM_NAME_SORT_KEY_FIELDS, sortKeyFields))
+                .append(XMLHandler.addTagValue(ELEM_NAME_MAX_SORT_VIOLATIONS_LOGGED, maxSortViolationsLogged));
+
+        builder.append(XMLHandler.openTag(ELEM_NAME_REDACTION_RULES));
+        for (final RedactionRule redactionRule : redactionRules) {
+            builder
+                    .append(XMLHandler.openTag(ELEM_NAME_REDACTION_RULE))
+                    .append(XMLHandler.addTagValue(ELEM_NAME_REDACTION_FIELD, redactionRule.getFieldName()))
+                    .append(XMLHandler.addTagValue(ELEM_NAME_REDACTION_ACTION, redactionRule.getAction().name()))
+                    .append(XMLHandler.addTagValue(ELEM_NAME_REDACTION_PREFIX_LENGTH, redactionRule.getPrefixLength()))
+                    .append(XMLHandler.closeTag(ELEM_NAME_REDACTION_RULE));
+        }
+        builder.append(XMLHandler.closeTag(ELEM_NAME_REDACTION_RULES));
+
         return builder.toString();
     }
 
     @Override
     public void loadXML(final Node stepnode, final List<DatabaseMeta> databases, final IMetaStore metaStore) throws KettleXMLException {
-        final String xErrorLogCase = XMLHandler.getTagValue(stepnode, ELEM_NAME_ERROR_LOG_CASE);
-        if (xErrorLogCase != null && !xErrorLogCase.isEmpty()) {
-            try {
-                this.errorLogCase = ErrorLogCase.valueOf(xErrorLogCase);
-            } catch (final IllegalArgumentException e) {
-                throw new KettleXMLException(e.getMessage(), e);
+        this.errorLogCase = getTagValue(stepnode, ELEM_NAME_ERROR_LOG_CASE, ErrorLogCase.class, errorLogCase);
+        this.nonErrorLogDetail = getTagValue(stepnode, ELEM_NAME_NON_ERROR_LOG_DETAIL, NonErrorLogDetail.class, nonErrorLogDetail);
+        this.logSampling = getTagValue(stepnode, ELEM_NAME_LOG_SAMPLING, LogSampling.class, logSampling);
+        this.samplingSize = getTagValue(stepnode, ELEM_NAME_SAMPLING_SIZE, samplingSize);
+        this.maxFieldLength = getTagValue(stepnode, ELEM_NAME_MAX_FIELD_LENGTH, maxFieldLength);
+        this.deltaKeyframeInterval = getTagValue(stepnode, ELEM_NAME_DELTA_KEYFRAME_INTERVAL, deltaKeyframeInterval);
+        this.logCondition = getTagValue(stepnode, ELEM_NAME_LOG_CONDITION, logCondition);
+        this.firstRows = getTagValue(stepnode, ELEM_NAME_FIRST_ROWS, firstRows);
+        this.batchSize = getTagValue(stepnode, ELEM_NAME_BATCH_SIZE, batchSize);
+        this.asyncLogging = getTagValue(stepnode, ELEM_NAME_ASYNC_LOGGING, asyncLogging);
+        this.asyncBufferSize = getTagValue(stepnode, ELEM_NAME_ASYNC_BUFFER_SIZE, asyncBufferSize);
+        this.logOverflowPolicy = getTagValue(stepnode, ELEM_NAME_LOG_OVERFLOW_POLICY, LogOverflowPolicy.class, logOverflowPolicy);
+        this.metricsEnabled = getTagValue(stepnode, ELEM_NAME_METRICS_ENABLED, metricsEnabled);
+        this.metricsInterval = getTagValue(stepnode, ELEM_NAME_METRICS_INTERVAL, metricsInterval);
+        this.jmxEnabled = getTagValue(stepnode, ELEM_NAME_JMX_ENABLED, jmxEnabled);
+        this.profilingEnabled = getTagValue(stepnode, ELEM_NAME_PROFILING_ENABLED, profilingEnabled);
+        this.driftDetection = getTagValue(stepnode, ELEM_NAME_DRIFT_DETECTION, driftDetection);
+        this.flightRecorderSize = getTagValue(stepnode, ELEM_NAME_FLIGHT_RECORDER_SIZE, flightRecorderSize);
+        this.coordinateCopies = getTagValue(stepnode, ELEM_NAME_COORDINATE_COPIES, coordinateCopies);
+        this.digestEnabled = getTagValue(stepnode, ELEM_NAME_DIGEST_ENABLED, digestEnabled);
+        this.digestField = getTagValue(stepnode, ELEM_NAME_DIGEST_FIELD, digestField);
+        this.outputTarget = getTagValue(stepnode, ELEM_NAME_OUTPUT_TARGET, LogOutputTarget.class, outputTarget);
+        this.outputFile = getTagValue(stepnode, ELEM_NAME_OUTPUT_FILE, outputFile);
+        this.outputFileMaxSize = getTagValue(stepnode, ELEM_NAME_OUTPUT_FILE_MAX_SIZE, outputFileMaxSize);
+        this.outputFileGzip = getTagValue(stepnode, ELEM_NAME_OUTPUT_FILE_GZIP, outputFileGzip);
+        this.logModeControl = getTagValue(stepnode, ELEM_NAME_LOG_MODE_CONTROL, LogModeControl.class, logModeControl);
+        this.logModeControlTarget = getTagValue(stepnode, ELEM_NAME_LOG_MODE_CONTROL_TARGET, logModeControlTarget);
+        this.logModeControlInterval = getTagValue(stepnode, ELEM_NAME_LOG_MODE_CONTROL_INTERVAL, logModeControlInterval);
+        this.rowNumberField = getTagValue(stepnode, ELEM_NAME_ROW_NUMBER_FIELD, rowNumberField);
+        this.copyNumberField = getTagValue(stepnode, ELEM_NAME_COPY_NUMBER_FIELD, copyNumberField);
+        this.timestampField = getTagValue(stepnode, ELEM_NAME_TIMESTAMP_FIELD, timestampField);
+        this.fieldCountMismatchField = getTagValue(stepnode, ELEM_NAME_FIELD_COUNT_MISMATCH_FIELD, fieldCountMismatchField);
+        this.rowHashField = getTagValue(stepnode, ELEM_NAME_ROW_HASH_FIELD, rowHashField);
+        this.traceProbe = getTagValue(stepnode, ELEM_NAME_TRACE_PROBE, TraceProbe.class, traceProbe);
+        this.traceField = getTagValue(stepnode, ELEM_NAME_TRACE_FIELD, traceField);
+        this.traceSampling = getTagValue(stepnode, ELEM_NAME_TRACE_SAMPLING, traceSampling);
+        this.heavyHitterFields = getTagValue(stepnode, ELEM_NAME_HEAVY_HITTER_FIELDS, heavyHitterFields);
+        this.heavyHitterCount = getTagValue(stepnode, ELEM_NAME_HEAVY_HITTER_COUNT, heavyHitterCount);
+        this.heavyHitterInterval = getTagValue(stepnode, ELEM_NAME_HEAVY_HITTER_INTERVAL, heavyHitterInterval);
+        this.duplicateKeyFields = getTagValue(stepnode, ELEM_NAME_DUPLICATE_KEY_FIELDS, duplicateKeyFields);
+        this.duplicateExpectedKeys = getTagValue(stepnode, ELEM_NAME_DUPLICATE_EXPECTED_KEYS, duplicateExpectedKeys);
+        this.duplicateFalsePositiveRate = getTagValue(stepnode, ELEM_NAME_DUPLICATE_FALSE_POSITIVE_RATE, duplicateFalsePositiveRate);
+        this.duplicateExactSetSize = getTagValue(stepnode, ELEM_NAME_DUPLICATE_EXACT_SET_SIZE, duplicateExactSetSize);
+        this.duplicateOffHeap = getTagValue(stepnode, ELEM_NAME_DUPLICATE_OFF_HEAP, duplicateOffHeap);
+        this.logDuplicates = getTagValue(stepnode, ELEM_NAME_LOG_DUPLICATES, logDuplicates);
+        this.sortKeyFields = getTagValue(stepnode, ELEM_NAME_SORT_KEY_FIELDS, sortKeyFields);
+        this.maxSortViolationsLogged = getTagValue(stepnode, ELEM_NAME_MAX_SORT_VIOLATIONS_LOGGED, maxSortViolationsLogged);
+
+        this.redactionRules = new ArrayList<>();
+        final Node redactionRulesNode = XMLHandler.getSubNode(stepnode, ELEM_NAME_REDACTION_RULES);
+        if (redactionRulesNode != null) {
+            final int count = XMLHandler.countNodes(redactionRulesNode, ELEM_NAME_REDACTION_RULE);
+            for (int i = 0; i < count; i++) {
+                final Node redactionRuleNode = XMLHandler.getSubNodeByNr(redactionRulesNode, ELEM_NAME_REDACTION_RULE, i);
+                final String fieldName = getTagValue(redactionRuleNode, ELEM_NAME_REDACTION_FIELD, null);
+                final RedactionAction action = getTagValue(redactionRuleNode, ELEM_NAME_REDACTION_ACTION, RedactionAction.class, RedactionAction.MASK);
+                final int prefixLength = getTagValue(redactionRuleNode, ELEM_NAME_REDACTION_PREFIX_LENGTH, 0);
+                if (fieldName != null && !fieldName.isEmpty()) {
+                    redactionRules.add(new RedactionRule(fieldName, action, prefixLength));
+                }
             }
         }
+    }
 
-        final String xNonErrorLogDetail = XMLHandler.getTagValue(stepnode, ELEM_NAME_NON_ERROR_LOG_DETAIL);
-        if (xNonErrorLogDetail != null && !xNonErrorLogDetail.isEmpty()) {
-            try {
-                this.nonErrorLogDetail = NonErrorLogDetail.valueOf(xNonErrorLogDetail);
-            } catch (final IllegalArgumentException e) {
-                throw new KettleXMLException(e.getMessage(), e);
-            }
+    private static <E extends Enum<E>> E getTagValue(final Node stepnode, final String tag, final Class<E> enumClass,
+            final E defaultValue) throws KettleXMLException {
+        final String xValue = XMLHandler.getTagValue(stepnode, tag);
+        if (xValue == null || xValue.isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Enum.valueOf(enumClass, xValue);
+        } catch (final IllegalArgumentException e) {
+            throw new KettleXMLException(e.getMessage(), e);
+        }
+    }
+
+    private static int getTagValue(final Node stepnode, final String tag, final int defaultValue) throws KettleXMLException {
+        final String xValue = XMLHandler.getTagValue(stepnode, tag);
+        if (xValue == null || xValue.isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(xValue.trim());
+        } catch (final NumberFormatException e) {
+            throw new KettleXMLException(e.getMessage(), e);
         }
     }
 
+    private static double getTagValue(final Node stepnode, final String tag, final double defaultValue) throws KettleXMLException {
+        final String xValue = XMLHandler.getTagValue(stepnode, tag);
+        if (xValue == null || xValue.isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(xValue.trim());
+        } catch (final NumberFormatException e) {
+            throw new KettleXMLException(e.getMessage(), e);
+        }
+    }
+
+    private static String getTagValue(final Node stepnode, final String tag, final String defaultValue) {
+        final String xValue = XMLHandler.getTagValue(stepnode, tag);
+        if (xValue == null || xValue.isEmpty()) {
+            return defaultValue;
+        }
+
+        return xValue;
+    }
+
+    private static boolean getTagValue(final Node stepnode, final String tag, final boolean defaultValue) {
+        final String xValue = XMLHandler.getTagValue(stepnode, tag);
+        if (xValue == null || xValue.isEmpty()) {
+            return defaultValue;
+        }
+
+        return "Y".equalsIgnoreCase(xValue.trim());
+    }
+
     @Override
     public void saveRep(final Repository repo, final IMetaStore metaStore, final ObjectId id_transformation, final ObjectId id_step)
             throws KettleException {
 
-        final String rep = getXML();
+        // wrap the settings in a single root element so that they can be parsed as a document by readRep
+        final String rep = XMLHandler.openTag(ELEM_NAME_STEP) + getXML() + XMLHandler.closeTag(ELEM_NAME_STEP);
         repo.saveStepAttribute(id_transformation, id_step, "step-xml", rep);
     }
 
@@ -100,12 +424,74 @@ public class LogRowMeta extends BaseStepMeta implements StepMetaInterface {
         final String rep = repo.getStepAttributeString(id_step, "step-xml");
         if (rep == null || rep.isEmpty()) {
             setDefault();
+            return;
         }
 
-        final Node stepnode = XMLHandler.loadXMLString(rep);
+        final Node stepnode = XMLHandler.getSubNode(XMLHandler.loadXMLString(rep), ELEM_NAME_STEP);
         loadXML(stepnode, (List<DatabaseMeta>)null, (IMetaStore)null);
     }
 
+    /**
+     * The configured debug output fields are appended to the input fields,
+     * in the same order as they are filled in by {@link LogRowStep}.
+     */
+    @Override
+    public void getFields(final RowMetaInterface inputRowMeta, final String name, final RowMetaInterface[] info,
+            final StepMeta nextStep, final VariableSpace space, final Repository repository, final IMetaStore metaStore)
+            throws KettleStepException {
+        if (digestEnabled) {
+            addOutputField(inputRowMeta, name, digestField, ValueMetaInterface.TYPE_INTEGER);
+        }
+        addOutputField(inputRowMeta, name, rowNumberField, ValueMetaInterface.TYPE_INTEGER);
+        addOutputField(inputRowMeta, name, copyNumberField, ValueMetaInterface.TYPE_INTEGER);
+        addOutputField(inputRowMeta, name, timestampField, ValueMetaInterface.TYPE_INTEGER);
+        addOutputField(inputRowMeta, name, fieldCountMismatchField, ValueMetaInterface.TYPE_BOOLEAN);
+        addOutputField(inputRowMeta, name, rowHashField, ValueMetaInterface.TYPE_INTEGER);
+        if (TraceProbe.START == traceProbe && isOutputField(traceField)
+                && inputRowMeta.indexOfValue(traceField.trim()) < 0) {
+            // a START probe after another START probe re-uses the trace field
+            addOutputField(inputRowMeta, name, traceField, ValueMetaInterface.TYPE_INTEGER);
+        }
+    }
+
+    private static void addOutputField(final RowMetaInterface rowMeta, final String origin, final String fieldName,
+            final int type) {
+        if (!isOutputField(fieldName)) {
+            return;
+        }
+        final ValueMetaInterface valueMeta = ValueMetaInterface.TYPE_BOOLEAN == type
+                ? new ValueMetaBoolean(fieldName.trim())
+                : new ValueMetaInteger(fieldName.trim());
+        valueMeta.setOrigin(origin);
+        rowMeta.addValueMeta(valueMeta);
+    }
+
+    /**
+     * Determines whether an output field is configured.
+     *
+     * @param fieldName the name of the output field, or null.
+     *
+     * @return true if the field is output.
+     */
+    static boolean isOutputField(final String fieldName) {
+        return fieldName != null && !fieldName.trim().isEmpty();
+    }
+
+    /**
+     * Determines whether any debug output fields are appended to the input fields.
+     *
+     * @return true if there are output fields.
+     */
+    boolean hasOutputFields() {
+        return (digestEnabled && isOutputField(digestField))
+                || isOutputField(rowNumberField)
+                || isOutputField(copyNumberField)
+                || isOutputField(timestampField)
+                || isOutputField(fieldCountMismatchField)
+                || isOutputField(rowHashField)
+                || (TraceProbe.START == traceProbe && isOutputField(traceField));
+    }
+
     @Override
     public StepInterface getStep(final StepMeta stepMeta, final StepDataInterface stepDataInterface, final int copyNr, final TransMeta transMeta, final Trans trans) {
         return new LogRowStep(stepMeta, stepDataInterface, copyNr, transMeta, trans);
@@ -138,5 +524,553 @@ public class LogRowMeta extends BaseStepMeta implements StepMetaInterface {
     public void setNonErrorLogDetail(final NonErrorLogDetail nonErrorLogDetail) {
         this.nonErrorLogDetail = nonErrorLogDetail;
     }
+
+    public LogSampling getLogSampling() {
+        return logSampling;
+    }
+
+    public void setLogSampling(final LogSampling logSampling) {
+        this.logSampling = logSampling;
+    }
+
+    public int getSamplingSize() {
+        return samplingSize;
+    }
+
+    public void setSamplingSize(final int samplingSize) {
+        this.samplingSize = samplingSize;
+    }
+
+    /**
+     * Get the maximum number of characters logged for each value.
+     *
+     * @return the maximum number of characters, or 0 for no limit.
+     */
+    public int getMaxFieldLength() {
+        return maxFieldLength;
+    }
+
+    public void setMaxFieldLength(final int maxFieldLength) {
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    /**
+     * Get the number of rows logged in detail between each full keyframe,
+     * when only the values that changed since the previous row are logged in between.
+     *
+     * @return the number of rows, or 0 to log every value of every row.
+     */
+    public int getDeltaKeyframeInterval() {
+        return deltaKeyframeInterval;
+    }
+
+    public void setDeltaKeyframeInterval(final int deltaKeyframeInterval) {
+        this.deltaKeyframeInterval = deltaKeyframeInterval;
+    }
+
+    /**
+     * Get the condition that a row must match to be logged,
+     * e.g. {@code status = 'FAILED' AND size > 1GB}, see {@link RowCondition}.
+     *
+     * @return the condition, which may contain variables, or null if every row may be logged.
+     */
+    public String getLogCondition() {
+        return logCondition;
+    }
+
+    public void setLogCondition(final String logCondition) {
+        this.logCondition = logCondition;
+    }
+
+    /**
+     * Get the number of rows that are logged by the FIRST log modes.
+     *
+     * @return the number of rows, per copy of the step, or across all copies if copies are coordinated.
+     */
+    public int getFirstRows() {
+        return firstRows;
+    }
+
+    public void setFirstRows(final int firstRows) {
+        this.firstRows = firstRows;
+    }
+
+    /**
+     * Get the maximum number of rows that are processed together,
+     * when they are already waiting in the input of the step.
+     *
+     * @return the maximum number of rows, 1 to process each row on its own.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isAsyncLogging() {
+        return asyncLogging;
+    }
+
+    public void setAsyncLogging(final boolean asyncLogging) {
+        this.asyncLogging = asyncLogging;
+    }
+
+    public int getAsyncBufferSize() {
+        return asyncBufferSize;
+    }
+
+    public void setAsyncBufferSize(final int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    public LogOverflowPolicy getLogOverflowPolicy() {
+        return logOverflowPolicy;
+    }
+
+    public void setLogOverflowPolicy(final LogOverflowPolicy logOverflowPolicy) {
+        this.logOverflowPolicy = logOverflowPolicy;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(final boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * Get the interval between metrics summaries.
+     *
+     * @return the interval in seconds, or 0 to only write a summary when the step is disposed.
+     */
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    public void setMetricsInterval(final int metricsInterval) {
+        this.metricsInterval = metricsInterval;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(final boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * When profiling is enabled, statistics about the values of each field
+     * are reported at the end of the stream instead of rows being logged.
+     *
+     * @return true if profiling is enabled.
+     */
+    public boolean isProfilingEnabled() {
+        return profilingEnabled;
+    }
+
+    public void setProfilingEnabled(final boolean profilingEnabled) {
+        this.profilingEnabled = profilingEnabled;
+    }
+
+    /**
+     * When drift detection is enabled, the first row of each distinct change in the
+     * shape of the rows (value classes, or extra values) is logged as an error,
+     * and the number of rows with each change is reported at the end of the stream.
+     *
+     * @return true if drift detection is enabled.
+     */
+    public boolean isDriftDetection() {
+        return driftDetection;
+    }
+
+    public void setDriftDetection(final boolean driftDetection) {
+        this.driftDetection = driftDetection;
+    }
+
+    /**
+     * Get the number of most recent rows to keep, which are logged
+     * if the transformation fails or the step is stopped.
+     *
+     * @return the number of rows, or 0 to disable the flight recorder.
+     */
+    public int getFlightRecorderSize() {
+        return flightRecorderSize;
+    }
+
+    public void setFlightRecorderSize(final int flightRecorderSize) {
+        this.flightRecorderSize = flightRecorderSize;
+    }
+
+    /**
+     * Determines whether the copies of the step are coordinated, so that the FIRST
+     * log modes apply across all copies, and the counters and summaries of all copies
+     * are merged and reported once at the end of the stream.
+     *
+     * @return true if the copies are coordinated.
+     */
+    public boolean isCoordinateCopies() {
+        return coordinateCopies;
+    }
+
+    public void setCoordinateCopies(final boolean coordinateCopies) {
+        this.coordinateCopies = coordinateCopies;
+    }
+
+    /**
+     * Determines whether an order-independent digest of the rows is computed,
+     * which is logged at the end of the stream, see {@link RowDigest}.
+     *
+     * @return true if the digest is enabled.
+     */
+    public boolean isDigestEnabled() {
+        return digestEnabled;
+    }
+
+    public void setDigestEnabled(final boolean digestEnabled) {
+        this.digestEnabled = digestEnabled;
+    }
+
+    /**
+     * Get the name of the output field into which the running digest is written,
+     * so that the value in the last row is the digest of all of the rows.
+     *
+     * @return the name of the field, or null if the digest is only logged.
+     */
+    public String getDigestField() {
+        return digestField;
+    }
+
+    public void setDigestField(final String digestField) {
+        this.digestField = digestField;
+    }
+
+    public LogOutputTarget getOutputTarget() {
+        return outputTarget;
+    }
+
+    public void setOutputTarget(final LogOutputTarget outputTarget) {
+        this.outputTarget = outputTarget;
+    }
+
+    /**
+     * Get the file that rows are written to when the output target is a file.
+     *
+     * @return the path of the file, which may contain variables.
+     */
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(final String outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Get the size at which a new output file is started.
+     *
+     * @return the size in megabytes, or 0 to always write to a single file.
+     */
+    public int getOutputFileMaxSize() {
+        return outputFileMaxSize;
+    }
+
+    public void setOutputFileMaxSize(final int outputFileMaxSize) {
+        this.outputFileMaxSize = outputFileMaxSize;
+    }
+
+    public boolean isOutputFileGzip() {
+        return outputFileGzip;
+    }
+
+    public void setOutputFileGzip(final boolean outputFileGzip) {
+        this.outputFileGzip = outputFileGzip;
+    }
+
+    public LogModeControl getLogModeControl() {
+        return logModeControl;
+    }
+
+    public void setLogModeControl(final LogModeControl logModeControl) {
+        this.logModeControl = logModeControl;
+    }
+
+    /**
+     * Get the name of the variable, or the path of the control file,
+     * from which the log mode is polled.
+     *
+     * @return the variable name or file path, which may contain variables.
+     */
+    public String getLogModeControlTarget() {
+        return logModeControlTarget;
+    }
+
+    public void setLogModeControlTarget(final String logModeControlTarget) {
+        this.logModeControlTarget = logModeControlTarget;
+    }
+
+    /**
+     * Get the interval between polls for the log mode.
+     *
+     * @return the interval in seconds.
+     */
+    public int getLogModeControlInterval() {
+        return logModeControlInterval;
+    }
+
+    public void setLogModeControlInterval(final int logModeControlInterval) {
+        this.logModeControlInterval = logModeControlInterval;
+    }
+
+    /**
+     * Get the name of the output field for the sequence number of the row within the step copy, starting at 1.
+     *
+     * @return the name of the field, or null if the field is not output.
+     */
+    public String getRowNumberField() {
+        return rowNumberField;
+    }
+
+    public void setRowNumberField(final String rowNumberField) {
+        this.rowNumberField = rowNumberField;
+    }
+
+    /**
+     * Get the name of the output field for the number of the step copy that processed the row.
+     *
+     * @return the name of the field, or null if the field is not output.
+     */
+    public String getCopyNumberField() {
+        return copyNumberField;
+    }
+
+    public void setCopyNumberField(final String copyNumberField) {
+        this.copyNumberField = copyNumberField;
+    }
+
+    /**
+     * Get the name of the output field for the value of {@link System#nanoTime()} when the row was output, for measuring latency between steps.
+     *
+     * @return the name of the field, or null if the field is not output.
+     */
+    public String getTimestampField() {
+        return timestampField;
+    }
+
+    public void setTimestampField(final String timestampField) {
+        this.timestampField = timestampField;
+    }
+
+    /**
+     * Get the name of the output field for true if the row has fewer values than its row metadata has fields.
+     *
+     * @return the name of the field, or null if the field is not output.
+     */
+    public String getFieldCountMismatchField() {
+        return fieldCountMismatchField;
+    }
+
+    public void setFieldCountMismatchField(final String fieldCountMismatchField) {
+        this.fieldCountMismatchField = fieldCountMismatchField;
+    }
+
+    /**
+     * Get the name of the output field for the 64 bit hash of the row, as used by the digest.
+     *
+     * @return the name of the field, or null if the field is not output.
+     */
+    public String getRowHashField() {
+        return rowHashField;
+    }
+
+    public void setRowHashField(final String rowHashField) {
+        this.rowHashField = rowHashField;
+    }
+
+    public TraceProbe getTraceProbe() {
+        return traceProbe;
+    }
+
+    public void setTraceProbe(final TraceProbe traceProbe) {
+        this.traceProbe = traceProbe;
+    }
+
+    /**
+     * Get the name of the field that carries the trace stamps
+     * from a START probe to an END probe.
+     *
+     * @return the name of the field.
+     */
+    public String getTraceField() {
+        return traceField;
+    }
+
+    public void setTraceField(final String traceField) {
+        this.traceField = traceField;
+    }
+
+    /**
+     * Get how often a START probe stamps a row.
+     *
+     * @return N, to stamp 1 in every N rows.
+     */
+    public int getTraceSampling() {
+        return traceSampling;
+    }
+
+    public void setTraceSampling(final int traceSampling) {
+        this.traceSampling = traceSampling;
+    }
+
+    /**
+     * Get the fields whose most frequent values are reported, to detect skew in the key values.
+     *
+     * @return the comma separated names of the fields, or null to not track the most frequent values.
+     */
+    public String getHeavyHitterFields() {
+        return heavyHitterFields;
+    }
+
+    public void setHeavyHitterFields(final String heavyHitterFields) {
+        this.heavyHitterFields = heavyHitterFields;
+    }
+
+    /**
+     * Get the number of most frequent values that are reported for each field.
+     *
+     * @return the number of values.
+     */
+    public int getHeavyHitterCount() {
+        return heavyHitterCount;
+    }
+
+    public void setHeavyHitterCount(final int heavyHitterCount) {
+        this.heavyHitterCount = heavyHitterCount;
+    }
+
+    /**
+     * Get the interval at which the most frequent values are reported.
+     *
+     * @return the interval in seconds, or 0 to only report them at the end of the stream.
+     */
+    public int getHeavyHitterInterval() {
+        return heavyHitterInterval;
+    }
+
+    public void setHeavyHitterInterval(final int heavyHitterInterval) {
+        this.heavyHitterInterval = heavyHitterInterval;
+    }
+
+    /**
+     * Get the fields whose values together form a key that is checked for duplicates.
+     *
+     * @return the comma separated names of the fields, or null to not check for duplicate keys.
+     */
+    public String getDuplicateKeyFields() {
+        return duplicateKeyFields;
+    }
+
+    public void setDuplicateKeyFields(final String duplicateKeyFields) {
+        this.duplicateKeyFields = duplicateKeyFields;
+    }
+
+    /**
+     * Get the number of distinct keys that the Bloom filter for detecting duplicates is sized for.
+     *
+     * @return the number of keys.
+     */
+    public int getDuplicateExpectedKeys() {
+        return duplicateExpectedKeys;
+    }
+
+    public void setDuplicateExpectedKeys(final int duplicateExpectedKeys) {
+        this.duplicateExpectedKeys = duplicateExpectedKeys;
+    }
+
+    /**
+     * Get the false positive rate of the Bloom filter for detecting duplicates,
+     * once it holds the expected number of keys.
+     *
+     * @return the rate, between 0 and 1.
+     */
+    public double getDuplicateFalsePositiveRate() {
+        return duplicateFalsePositiveRate;
+    }
+
+    public void setDuplicateFalsePositiveRate(final double duplicateFalsePositiveRate) {
+        this.duplicateFalsePositiveRate = duplicateFalsePositiveRate;
+    }
+
+    /**
+     * Get the maximum size of the set of keys that possible duplicates are confirmed against.
+     *
+     * @return the size in MB.
+     */
+    public int getDuplicateExactSetSize() {
+        return duplicateExactSetSize;
+    }
+
+    public void setDuplicateExactSetSize(final int duplicateExactSetSize) {
+        this.duplicateExactSetSize = duplicateExactSetSize;
+    }
+
+    public boolean isDuplicateOffHeap() {
+        return duplicateOffHeap;
+    }
+
+    public void setDuplicateOffHeap(final boolean duplicateOffHeap) {
+        this.duplicateOffHeap = duplicateOffHeap;
+    }
+
+    public boolean isLogDuplicates() {
+        return logDuplicates;
+    }
+
+    public void setLogDuplicates(final boolean logDuplicates) {
+        this.logDuplicates = logDuplicates;
+    }
+
+    /**
+     * Get the fields on which the rows are expected to be sorted.
+     *
+     * @return the comma separated names of the fields, or null to not verify the sort order.
+     */
+    public String getSortKeyFields() {
+        return sortKeyFields;
+    }
+
+    public void setSortKeyFields(final String sortKeyFields) {
+        this.sortKeyFields = sortKeyFields;
+    }
+
+    /**
+     * Get the maximum number of rows that are out of order to log.
+     *
+     * @return the maximum number of rows.
+     */
+    public int getMaxSortViolationsLogged() {
+        return maxSortViolationsLogged;
+    }
+
+    public void setMaxSortViolationsLogged(final int maxSortViolationsLogged) {
+        this.maxSortViolationsLogged = maxSortViolationsLogged;
+    }
+
+    /**
+     * Get the rules for redacting the values of fields when rows are logged
+     * or written to a JSON Lines file.
+     *
+     * @return the redaction rules.
+     */
+    public List<RedactionRule> getRedactionRules() {
+        return redactionRules;
+    }
+
+    public void setRedactionRules(final List<RedactionRule> redactionRules) {
+        this.redactionRules = redactionRules;
+    }
     // </editor-fold>
 }
@@ -22,13 +22,22 @@
  */
 package uk.gov.nationalarchives.pdi.step.debug;
 
+import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
-import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.*;
 
+import javax.management.JMException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 public class LogRowStep extends BaseStep implements StepInterface {
 
     private static final String EOL = System.getProperty("line.separator");
@@ -38,45 +47,436 @@ public class LogRowStep extends BaseStep implements StepInterface {
         super(stepMeta, stepDataInterface, copyNr, transMeta, trans);
     }
 
+    @Override
+    public boolean init(final StepMetaInterface smi, final StepDataInterface sdi) {
+        if (!super.init(smi, sdi)) {
+            return false;
+        }
+
+        final LogRowMeta meta = (LogRowMeta) smi;
+        final LogRowData data = (LogRowData) sdi;
+
+        data.logMode = new LogMode(meta.getErrorLogCase(), meta.getNonErrorLogDetail());
+        data.logSampling = meta.getLogSampling();
+        data.maxFieldLength = meta.getMaxFieldLength();
+        data.deltaKeyframeInterval = Math.max(0, meta.getDeltaKeyframeInterval());
+
+        final String logCondition = environmentSubstitute(meta.getLogCondition());
+        if (logCondition != null && !logCondition.trim().isEmpty()) {
+            try {
+                data.logCondition = RowCondition.parse(logCondition.trim());
+            } catch (final KettleException e) {
+                logError(e.getMessage());
+                return false;
+            }
+        }
+
+        data.firstRows = Math.max(0, meta.getFirstRows());
+        if (meta.getBatchSize() > 1) {
+            data.batch = new Object[meta.getBatchSize()][];
+            data.batchLog = new StringBuilder();
+            data.batchErrorLog = new StringBuilder();
+        }
+        data.redactionRules = meta.getRedactionRules();
+        data.metricsEnabled = meta.isMetricsEnabled();
+        data.metricsInterval = meta.getMetricsInterval();
+        data.profilingEnabled = meta.isProfilingEnabled();
+        data.driftDetection = meta.isDriftDetection();
+        data.flightRecorderSize = Math.max(0, meta.getFlightRecorderSize());
+        data.digestEnabled = meta.isDigestEnabled();
+        data.outputFields = meta.hasOutputFields();
+
+        data.traceProbe = meta.getTraceProbe();
+        if (TraceProbe.NONE != data.traceProbe) {
+            final String traceField = meta.getTraceField();
+            if (!LogRowMeta.isOutputField(traceField)) {
+                logError("A trace field must be specified when the trace probe is " + data.traceProbe);
+                return false;
+            }
+            data.traceField = traceField.trim();
+            data.tracer = new RowTracer(data.traceProbe, getTransMeta().getName() + "/" + getStepname(),
+                    meta.getTraceSampling());
+        }
+
+        data.heavyHitterFields = fieldNames(environmentSubstitute(meta.getHeavyHitterFields()));
+        if (data.heavyHitterFields != null) {
+            data.heavyHitterCount = Math.max(1, meta.getHeavyHitterCount());
+            data.heavyHitterInterval = meta.getHeavyHitterInterval();
+        }
+
+        data.duplicateKeyFields = fieldNames(environmentSubstitute(meta.getDuplicateKeyFields()));
+        if (data.duplicateKeyFields != null) {
+            final double falsePositiveRate = meta.getDuplicateFalsePositiveRate();
+            if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+                logError("The false positive rate for detecting duplicate keys must be between 0 and 1, but was " + falsePositiveRate);
+                return false;
+            }
+            data.duplicateExpectedKeys = Math.max(1, meta.getDuplicateExpectedKeys());
+            data.duplicateFalsePositiveRate = falsePositiveRate;
+            data.duplicateExactSetSize = Math.max(0, meta.getDuplicateExactSetSize()) * 1024L * 1024L;
+            data.duplicateOffHeap = meta.isDuplicateOffHeap();
+            data.logDuplicates = meta.isLogDuplicates();
+        }
+
+        data.sortKeyFields = fieldNames(environmentSubstitute(meta.getSortKeyFields()));
+        if (data.sortKeyFields != null) {
+            data.maxSortViolationsLogged = Math.max(0, meta.getMaxSortViolationsLogged());
+        }
+
+        data.outputTarget = meta.getOutputTarget();
+        if (LogOutputTarget.LOG != data.outputTarget) {
+            final String outputFile = environmentSubstitute(meta.getOutputFile());
+            if (outputFile == null || outputFile.trim().isEmpty()) {
+                logError("An output file must be specified when the output target is " + data.outputTarget);
+                return false;
+            }
+            data.outputFile = perCopyFile(outputFile.trim());
+            data.outputFileMaxSize = meta.getOutputFileMaxSize() * 1024L * 1024L;
+            data.outputFileGzip = meta.isOutputFileGzip();
+        }
+        if (LogSampling.NONE != data.logSampling) {
+            data.sampler = new RowSampler(data.logSampling, meta.getSamplingSize());
+        }
+
+        if (meta.isAsyncLogging()) {
+            data.asyncLogWriter = new AsyncLogWriter("LogRowStep-" + getStepname() + "." + getCopy(), getLogChannel(),
+                    meta.getAsyncBufferSize(), meta.getLogOverflowPolicy());
+            data.asyncLogWriter.start();
+        }
+
+        if (meta.isJmxEnabled()) {
+            final LogRowStepStats stats = new LogRowStepStats(getTransMeta().getName(), getStepname(), getCopy());
+            stats.setAsyncLogWriter(data.asyncLogWriter);
+            try {
+                stats.register(getTrans().getLogChannelId());
+                data.stats = stats;
+            } catch (final JMException e) {
+                logError("Unable to register JMX MBean for step statistics: " + e.getMessage(), e);
+            }
+        }
+
+        final LogModeControl logModeControl = meta.getLogModeControl();
+        if (LogModeControl.NONE != logModeControl) {
+            final String target = environmentSubstitute(meta.getLogModeControlTarget());
+            if (target == null || target.trim().isEmpty()) {
+                logError("A variable name or control file must be specified when the log mode control is " + logModeControl);
+                return false;
+            }
+            data.logModeController = new LogModeController("LogRowStep-" + getStepname() + "." + getCopy() + "-control",
+                    logModeControl, getTrans(), target.trim(), meta.getLogModeControlInterval() * 1000L, data.logMode,
+                    mode -> data.logMode = mode, getLogChannel());
+            data.logModeController.start();
+        }
+
+        if (meta.isCoordinateCopies()) {
+            data.coordinator = CopyCoordinator.acquire(getTrans().getLogChannelId(), getStepname(), data.firstRows);
+        }
+
+        data.currentMode = data.logMode;
+        data.firstRowsDone = isFirstRowsDone(data);
+        data.passThrough = isPassThrough(data, data.firstRowsDone);
+
+        return true;
+    }
+
+    /**
+     * Splits a comma separated list of field names.
+     *
+     * @param fieldNames the comma separated field names, or null.
+     *
+     * @return the field names, or null if there are none.
+     */
+    private static String[] fieldNames(final String fieldNames) {
+        if (fieldNames == null || fieldNames.trim().isEmpty()) {
+            return null;
+        }
+
+        final List<String> names = new ArrayList<>();
+        for (final String fieldName : fieldNames.split(",")) {
+            if (!fieldName.trim().isEmpty()) {
+                names.add(fieldName.trim());
+            }
+        }
+        return names.isEmpty() ? null : names.toArray(new String[0]);
+    }
+
+    /**
+     * Determines whether there is nothing to do for any row,
+     * so that rows can be passed through without calling into the logging code.
+     *
+     * @param data the step data.
+     * @param firstRowsDone true if all of the first rows have already been claimed,
+     *     after which the FIRST modes have nothing more to log.
+     *
+     * @return true if rows can be passed through.
+     */
+    private boolean isPassThrough(final LogRowData data, final boolean firstRowsDone) {
+        if (data.metricsEnabled || data.profilingEnabled || data.driftDetection || data.flightRecorderSize > 0
+                || data.digestEnabled || data.outputFields || data.tracer != null || data.heavyHitterFields != null
+                || data.duplicateKeyFields != null || data.sortKeyFields != null || data.stats != null) {
+            // these observe every row
+            return false;
+        }
+
+        final ErrorLogCase errorLogCase = data.currentMode.errorLogCase;
+        final boolean errorLogging = firstRowsDone
+                ? ErrorLogCase.ALL == errorLogCase || ErrorLogCase.ROW_UNDER_RUN == errorLogCase
+                : ErrorLogCase.NONE != errorLogCase;
+        if (errorLogging) {
+            return false;
+        }
+
+        final NonErrorLogDetail nonErrorLogDetail = data.currentMode.nonErrorLogDetail;
+        final boolean nonErrorLogging = firstRowsDone
+                ? NonErrorLogDetail.ALL_BASIC == nonErrorLogDetail || NonErrorLogDetail.ALL_DETAILED == nonErrorLogDetail
+                : NonErrorLogDetail.NONE != nonErrorLogDetail;
+        return !(nonErrorLogging && isNonErrorOutput(data));
+    }
+
+    /**
+     * Determines whether rows that are not errors may be output, which for the log channel
+     * depends on its log level, but for an output file does not.
+     *
+     * @param data the step data.
+     *
+     * @return true if rows that are not errors may be output.
+     */
+    private boolean isNonErrorOutput(final LogRowData data) {
+        return LogOutputTarget.LOG != data.outputTarget || isBasic();
+    }
+
+    /**
+     * Claims one of the first rows that are logged by the FIRST log modes,
+     * from this step copy, or from all copies if the copies are coordinated.
+     *
+     * @param data the step data.
+     *
+     * @return true if one of the first rows was claimed.
+     */
+    private static boolean claimFirstRow(final LogRowData data) {
+        if (data.coordinator != null) {
+            return data.coordinator.claimFirst();
+        }
+        return data.firstRowsClaimed++ < data.firstRows;
+    }
+
+    private static boolean isFirstRowsDone(final LogRowData data) {
+        if (data.coordinator != null) {
+            return data.coordinator.isFirstExhausted();
+        }
+        return data.firstRowsClaimed >= data.firstRows;
+    }
+
+    @Override
+    public void dispose(final StepMetaInterface smi, final StepDataInterface sdi) {
+        final LogRowData data = (LogRowData) sdi;
+
+        if (data.logModeController != null) {
+            data.logModeController.close();
+            data.logModeController = null;
+        }
+
+        if (data.flightRecorder != null) {
+            final String reason;
+            if (getErrors() > 0) {
+                reason = "an error in this step";
+            } else if (getTrans().isStopped()) {
+                // Trans.getErrors() logs that errors were detected as a side effect,
+                // so only whether the transformation stopped is checked
+                reason = "the transformation was stopped, by an error or by the user";
+            } else if (data.stopRequested) {
+                reason = "the step was stopped";
+            } else {
+                reason = null;
+            }
+            if (reason != null) {
+                dumpFlightRecorder(data, reason);
+            }
+            data.flightRecorder = null;
+        }
+
+        if (data.coordinator != null) {
+            // contributes on every path, so that the last copy to be disposed always reports across the copies
+            contributeAcrossCopies(data, data.streamEnded && getErrors() == 0 && !data.stopRequested);
+            data.coordinator.release();
+            data.coordinator = null;
+        }
+
+        if (data.metrics != null && data.metrics.getRows() > 0) {
+            emit(data, false, data.metrics.summary());
+        }
+
+        if (data.rowWriter != null) {
+            // the stream did not end normally
+            try {
+                data.rowWriter.close();
+            } catch (final KettleException e) {
+                logError(e.getMessage(), e);
+            }
+            data.rowWriter = null;
+        }
+
+        if (data.asyncLogWriter != null) {
+            data.asyncLogWriter.close();
+            final long dropped = data.asyncLogWriter.getDropped();
+            if (dropped > 0) {
+                logError(dropped + " log messages were dropped as the asynchronous log buffer was full");
+            }
+            data.asyncLogWriter = null;
+        }
+
+        if (data.stats != null) {
+            try {
+                data.stats.unregister();
+            } catch (final JMException e) {
+                logError("Unable to unregister JMX MBean for step statistics: " + e.getMessage(), e);
+            }
+            data.stats = null;
+        }
+
+        super.dispose(smi, sdi);
+    }
+
+    @Override
+    public void stopRunning(final StepMetaInterface smi, final StepDataInterface sdi) throws KettleException {
+        // called from another thread, so the flight recorder is dumped later by the step thread in dispose
+        ((LogRowData) sdi).stopRequested = true;
+        super.stopRunning(smi, sdi);
+    }
+
+    private void dumpFlightRecorder(final LogRowData data, final String reason) {
+        final RowFlightRecorder flightRecorder = data.flightRecorder;
+        final int size = flightRecorder.size();
+        emit(data, true, "Flight recorder: the last " + size + " of " + flightRecorder.getRecorded()
+                + " rows before " + reason + ":" + EOL + data.formatter.metaMessage());
+        for (int i = 0; i < size; i++) {
+            emit(data, true, "Row " + flightRecorder.getRowNr(i) + ": " + data.formatter.valuesMessage(flightRecorder.getRow(i)));
+        }
+    }
+
     @Override
     public boolean processRow(final StepMetaInterface smi, final StepDataInterface sdi) throws KettleException {
+        final LogRowData data = (LogRowData) sdi;
+
         final Object[] row = getRow();
         if (row == null) {
+            if (!first) {
+                endOfStream(data);
+            } else if (data.digestEnabled && data.coordinator == null) {
+                // the digest of no rows, so that it can still be compared
+                emit(data, false, RowDigest.summary(0, 0));
+            }
+            data.streamEnded = true;
             setOutputDone();
             return false;
         }
 
-        final LogRowMeta meta = (LogRowMeta)smi;
+        final LogMode mode = data.logMode;
+        if (mode != data.currentMode) {
+            // the log mode has been changed by the log mode controller
+            data.currentMode = mode;
+            data.passThrough = isPassThrough(data, data.firstRowsDone);
+        }
 
-        final RowMetaInterface inputRowMeta = getInputRowMeta();
-        final RowMetaInterface outputRowMeta = inputRowMeta.clone();
-        smi.getFields(outputRowMeta, getStepname(), null, null, this, repository, metaStore);
+        if (data.batch != null) {
+            return processBatch(smi, data, mode, row);
+        }
 
-        final ErrorLogCase errorLogCase = meta.getErrorLogCase();
+        if (data.passThrough) {
+            // the output row metadata is the same as the input row metadata
+            putRow(getInputRowMeta(), row);
+            return true;
+        }
 
-        if (ErrorLogCase.ALL == errorLogCase ||
-                (ErrorLogCase.FIRST == errorLogCase && first) ||
-                (ErrorLogCase.ROW_UNDER_RUN == errorLogCase && inputRowMeta.size() > row.length)) {
+        final long receivedNanos = data.metricsEnabled ? System.nanoTime() : 0;
 
-            logError(detailedMessage(inputRowMeta, row));
+        if (first) {
+            firstRow(smi, data);
+        }
 
-        } else {
+        putRow(data.outputRowMeta, handleRow(data, mode, row));
 
-            final NonErrorLogDetail nonErrorLogDetail = meta.getNonErrorLogDetail();
+        if (data.metrics != null && data.metrics.record(row, receivedNanos, System.nanoTime(), getInputRowSets())) {
+            emit(data, false, data.metrics.summary());
+        }
 
-            if (NonErrorLogDetail.ALL_BASIC == nonErrorLogDetail ||
-                    (NonErrorLogDetail.FIRST_BASIC == nonErrorLogDetail && first)) {
+        if (first) {
+            first = false;
+        }
 
-                logBasic(basicMessage(inputRowMeta, row));
+        updateFirstRowsDone(data);
 
-            } else if (NonErrorLogDetail.ALL_DETAILED == nonErrorLogDetail ||
-                    (NonErrorLogDetail.FIRST_DETAILED == nonErrorLogDetail && first)) {
+        return true;
+    }
 
-                logBasic(detailedMessage(inputRowMeta, row));
+    /**
+     * Processes the given row together with any further rows that are already waiting in the input row sets,
+     * up to the batch size. The logging decisions are made for all rows of the batch before the rows are
+     * passed on, and the rows that are logged are written as one message per batch, rather than one per row.
+     *
+     * Only rows which are already waiting are taken, so a batch never delays a row for longer
+     * than it takes to process the rows ahead of it.
+     */
+    private boolean processBatch(final StepMetaInterface smi, final LogRowData data, final LogMode mode,
+            final Object[] row) throws KettleException {
+        final Object[][] batch = data.batch;
+        batch[0] = row;
+        int batchRows = 1;
+        while (batchRows < batch.length && hasWaitingRows()) {
+            final Object[] nextRow = getRow();
+            if (nextRow == null) {
+                // the step was stopped
+                break;
             }
+            batch[batchRows++] = nextRow;
         }
 
-        putRow(outputRowMeta, row);
+        if (data.passThrough) {
+            // the output row metadata is the same as the input row metadata
+            final RowMetaInterface inputRowMeta = getInputRowMeta();
+            for (int i = 0; i < batchRows; i++) {
+                putRow(inputRowMeta, batch[i]);
+            }
+            Arrays.fill(batch, 0, batchRows, null);
+            return true;
+        }
+
+        final long receivedNanos = data.metricsEnabled ? System.nanoTime() : 0;
+
+        if (first) {
+            firstRow(smi, data);
+        }
+
+        data.batching = true;
+        try {
+            for (int i = 0; i < batchRows; i++) {
+                batch[i] = handleRow(data, mode, batch[i]);
+                updateFirstRowsDone(data);
+            }
+        } finally {
+            data.batching = false;
+            emitBatch(data);
+        }
+
+        final RowMetaInterface outputRowMeta = data.outputRowMeta;
+        for (int i = 0; i < batchRows; i++) {
+            putRow(outputRowMeta, batch[i]);
+        }
+
+        if (data.metrics != null) {
+            final long sentNanos = System.nanoTime();
+            final List<RowSet> inputRowSets = getInputRowSets();
+            boolean summaryDue = false;
+            for (int i = 0; i < batchRows; i++) {
+                summaryDue |= data.metrics.record(batch[i], receivedNanos, sentNanos, inputRowSets);
+            }
+            if (summaryDue) {
+                emit(data, false, data.metrics.summary());
+            }
+        }
+
+        // release the rows of the batch
+        Arrays.fill(batch, 0, batchRows, null);
 
         if (first) {
             first = false;
@@ -85,37 +485,509 @@ public class LogRowStep extends BaseStep implements StepInterface {
         return true;
     }
 
-    private String basicMessage(final RowMetaInterface inputRowMeta, final Object[] row) {
-        return messageHeader(new StringBuilder(), inputRowMeta, row).toString();
+    /**
+     * Determines whether there are rows waiting in any of the input row sets,
+     * so that the next call to {@code getRow()} does not have to wait for one.
+     */
+    private boolean hasWaitingRows() {
+        final List<RowSet> inputRowSets = getInputRowSets();
+        for (int i = 0; i < inputRowSets.size(); i++) {
+            if (inputRowSets.get(i).size() > 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private StringBuilder messageHeader(final StringBuilder buf, final RowMetaInterface inputRowMeta, final Object[] row) {
-        return buf.append("inputRowMeta.size()=").append(inputRowMeta.size()).append(inputRowMeta.size() > row.length ? " > " : ", ").append("r.length=").append(row.length);
+    private void updateFirstRowsDone(final LogRowData data) {
+        if (!data.firstRowsDone && isFirstRowsDone(data)) {
+            data.firstRowsDone = true;
+            data.passThrough = isPassThrough(data, true);
+        }
     }
 
-    private String detailedMessage(final RowMetaInterface inputRowMeta, final Object[] row) {
-        final StringBuilder buf = messageHeader(new StringBuilder(), inputRowMeta, row);
-        buf.append(EOL);
-        buf.append("META={");
-        for (int i = 0; i < inputRowMeta.size(); i++) {
-            if (i > 0) {
-                buf.append(", ");
+    /**
+     * Observes a row, and logs it if it is selected for logging.
+     *
+     * @param data the step data.
+     * @param mode the log mode.
+     * @param row the input row.
+     *
+     * @return the output row.
+     */
+    private Object[] handleRow(final LogRowData data, final LogMode mode, final Object[] row) throws KettleException {
+        data.rowCount++;
+
+        final RowMetaInterface inputRowMeta = getInputRowMeta();
+
+        if (TraceProbe.END == data.traceProbe) {
+            data.tracer.trace(data.traceFieldIdx < row.length ? row[data.traceFieldIdx] : null);
+        }
+
+        if (data.flightRecorder != null) {
+            data.flightRecorder.record(row);
+        }
+
+        final boolean underRun = inputRowMeta.size() > row.length;
+
+        final long rowHash = data.digest != null ? data.digest.add(row) : 0;
+
+        if (data.driftDetector != null) {
+            final String drift = data.driftDetector.check(data.rowCount, row);
+            if (drift != null) {
+                emitRow(data, true, "Schema drift at row " + data.rowCount + ": " + drift + EOL + data.formatter.detailedMessage(row));
             }
-            final ValueMetaInterface valueMeta = inputRowMeta.getValueMeta(i);
-            buf.append(valueMeta.getName());
         }
-        buf.append("}");
-        buf.append(EOL);
-        buf.append("ROW={");
-        for (int i = 0; i < row.length; i++) {
-            if (i > 0) {
-                buf.append(", ");
+
+        final ErrorLogCase errorLogCase = mode.errorLogCase;
+        final NonErrorLogDetail nonErrorLogDetail = mode.nonErrorLogDetail;
+
+        LogAction action = LogAction.NONE;
+        boolean sampled = false;
+        final boolean matched = data.logPredicate == null || data.logPredicate.test(row);
+
+        // only claim one of the first rows if a FIRST mode would log it
+        final boolean firstRow = matched && !data.firstRowsDone
+                && (ErrorLogCase.FIRST == errorLogCase
+                        || ((NonErrorLogDetail.FIRST_BASIC == nonErrorLogDetail || NonErrorLogDetail.FIRST_DETAILED == nonErrorLogDetail)
+                                && isNonErrorOutput(data)))
+                && claimFirstRow(data);
+
+        if (!matched) {
+            // the row does not match the log condition, so is not considered for logging
+
+        } else if (ErrorLogCase.ALL == errorLogCase ||
+                (ErrorLogCase.FIRST == errorLogCase && firstRow) ||
+                (ErrorLogCase.ROW_UNDER_RUN == errorLogCase && underRun)) {
+
+            action = LogAction.ERROR;
+            sampled = ErrorLogCase.FIRST != errorLogCase;
+
+        } else if (isNonErrorOutput(data)) {
+
+            if (NonErrorLogDetail.ALL_BASIC == nonErrorLogDetail ||
+                    (NonErrorLogDetail.FIRST_BASIC == nonErrorLogDetail && firstRow)) {
+
+                action = LogAction.BASIC;
+                sampled = NonErrorLogDetail.ALL_BASIC == nonErrorLogDetail;
+
+            } else if (NonErrorLogDetail.ALL_DETAILED == nonErrorLogDetail ||
+                    (NonErrorLogDetail.FIRST_DETAILED == nonErrorLogDetail && firstRow)) {
+
+                action = LogAction.DETAILED;
+                sampled = NonErrorLogDetail.ALL_DETAILED == nonErrorLogDetail;
+            }
+        }
+
+        if (data.profiler != null) {
+            // profiling replaces logging of the rows
+            if (matched) {
+                data.profiler.record(row);
+            }
+        } else if (LogAction.NONE != action
+                && (!sampled || data.sampler == null || data.sampler.sample(action, data.rowCount, row))) {
+            log(action, data, row);
+        }
+
+        if (data.duplicateDetector != null && matched
+                && DuplicateDetector.DUPLICATE == data.duplicateDetector.check(row) && data.logDuplicates) {
+            emitRow(data, true, "Duplicate key at row " + data.rowCount + ":" + EOL + data.formatter.detailedMessage(row));
+        }
+
+        // the order is a property of the whole stream, so every row is checked and not just those matched
+        if (data.sortOrderVerifier != null && data.sortOrderVerifier.check(data.rowCount, row)
+                && data.sortOrderVerifier.getViolations() <= data.maxSortViolationsLogged) {
+            emitRow(data, true, data.sortOrderVerifier.describeViolation() + ":" + EOL
+                    + data.formatter.detailedMessage(row));
+        }
+
+        if (data.heavyHitters != null && matched && data.heavyHitters.record(row)) {
+            emit(data, false, data.heavyHitters.report());
+        }
+
+        final LogRowStepStats stats = data.stats;
+        if (stats != null) {
+            stats.rowSeen();
+            if (underRun) {
+                stats.underRunRows.increment();
+            }
+        }
+
+        return data.outputFields ? outputFieldValues(data, row, underRun, rowHash) : row;
+    }
+
+    /**
+     * Appends the values of the debug output fields to a row,
+     * resizing the row only if it does not already have space for them.
+     */
+    private static Object[] outputFieldValues(final LogRowData data, final Object[] row, final boolean underRun,
+            final long rowHash) {
+        final Object[] outputRow = RowDataUtil.resizeArray(row, data.outputRowMeta.size());
+        if (data.digestFieldIdx >= 0) {
+            outputRow[data.digestFieldIdx] = data.digest.getDigest();
+        }
+        if (data.rowNumberFieldIdx >= 0) {
+            outputRow[data.rowNumberFieldIdx] = data.rowCount;
+        }
+        if (data.copyNumberFieldIdx >= 0) {
+            outputRow[data.copyNumberFieldIdx] = data.copyNr;
+        }
+        if (data.timestampFieldIdx >= 0) {
+            outputRow[data.timestampFieldIdx] = System.nanoTime();
+        }
+        if (data.fieldCountMismatchFieldIdx >= 0) {
+            outputRow[data.fieldCountMismatchFieldIdx] = underRun ? Boolean.TRUE : Boolean.FALSE;
+        }
+        if (data.rowHashFieldIdx >= 0) {
+            outputRow[data.rowHashFieldIdx] = rowHash;
+        }
+        if (TraceProbe.START == data.traceProbe) {
+            final Long stamp = data.tracer.stamp();
+            if (stamp != null || data.traceFieldAppended) {
+                // an unsampled row keeps any stamp from an earlier START probe
+                outputRow[data.traceFieldIdx] = stamp;
+            }
+        }
+        return outputRow;
+    }
+
+    private void log(final LogAction action, final LogRowData data, final Object[] row) throws KettleException {
+        if (data.rowWriter != null) {
+            if (LogAction.NONE != action) {
+                data.rowWriter.write(row);
+                data.rowsLogged++;
+                if (data.stats != null) {
+                    data.stats.rowsLogged.increment();
+                }
+            }
+            return;
+        }
+
+        switch (action) {
+            case ERROR:
+                emitRow(data, true, data.formatter.detailedMessage(row));
+                break;
+
+            case BASIC:
+                emitRow(data, false, data.formatter.basicMessage(row));
+                break;
+
+            case DETAILED:
+                // errors are always logged in full, so that they can be read on their own
+                emitRow(data, false, data.deltaKeyframeInterval > 0
+                        ? data.formatter.deltaMessage(row) : data.formatter.detailedMessage(row));
+                break;
+
+            default:
+                return;
+        }
+
+        data.rowsLogged++;
+        if (data.stats != null) {
+            data.stats.rowsLogged.increment();
+        }
+    }
+
+    /**
+     * Writes a message to the log, either directly or through the asynchronous log writer.
+     */
+    private void emit(final LogRowData data, final boolean error, final String message) {
+        if (data.asyncLogWriter != null) {
+            data.asyncLogWriter.write(error, message);
+        } else if (error) {
+            logError(message);
+        } else {
+            logBasic(message);
+        }
+    }
+
+    /**
+     * Writes a message about a row to the log, or while a batch of rows is being processed,
+     * adds it to the message for the batch.
+     */
+    private void emitRow(final LogRowData data, final boolean error, final String message) {
+        if (!data.batching) {
+            emit(data, error, message);
+            return;
+        }
+
+        final StringBuilder batchLog = error ? data.batchErrorLog : data.batchLog;
+        if (batchLog.length() > 0) {
+            batchLog.append(EOL);
+        }
+        batchLog.append(message);
+    }
+
+    /**
+     * Writes the messages collected for a batch of rows to the log.
+     */
+    private void emitBatch(final LogRowData data) {
+        if (data.batchErrorLog.length() > 0) {
+            emit(data, true, data.batchErrorLog.toString());
+            data.batchErrorLog.setLength(0);
+        }
+        if (data.batchLog.length() > 0) {
+            emit(data, false, data.batchLog.toString());
+            data.batchLog.setLength(0);
+        }
+    }
+
+    private void endOfStream(final LogRowData data) throws KettleException {
+        // when the copies are coordinated, the profile and drift are reported across copies instead
+        if (data.profiler != null && data.coordinator == null) {
+            emit(data, false, data.profiler.report());
+        }
+
+        if (data.driftDetector != null && data.driftDetector.getDriftedRows() > 0 && data.coordinator == null) {
+            emit(data, true, data.driftDetector.summary(data.rowCount));
+        }
+
+        if (data.digestEnabled && data.coordinator == null) {
+            emit(data, false, data.digest.summary());
+        }
+
+        if (data.duplicateDetector != null) {
+            // duplicates are only detected within each copy, so are reported per copy
+            final DuplicateDetector duplicateDetector = data.duplicateDetector;
+            emit(data, duplicateDetector.getDuplicates() > 0 || duplicateDetector.getPossibleDuplicates() > 0,
+                    duplicateDetector.summary());
+        }
+
+        if (data.sortOrderVerifier != null) {
+            // each copy only sees some of the rows, so the order is verified per copy
+            emit(data, data.sortOrderVerifier.getViolations() > 0, data.sortOrderVerifier.summary());
+        }
+
+        if (data.heavyHitters != null) {
+            // the most frequent values of each copy can not be merged exactly, so are reported per copy
+            emit(data, false, data.heavyHitters.report());
+        }
+
+        if (TraceProbe.END == data.traceProbe) {
+            final String report = data.tracer.report(getTransMeta().getName() + "/" + getStepname() + "." + getCopy());
+            if (report != null) {
+                emit(data, false, report);
+            }
+        }
+
+        final RowSampler sampler = data.sampler;
+        if (sampler != null) {
+            for (final int i : sampler.reservoirOrder()) {
+                if (data.rowWriter == null) {
+                    emit(data, false, "Reservoir sample of row " + sampler.getReservoirRowNr(i) + " of " + data.rowCount + ":");
+                }
+                log(sampler.getReservoirAction(i), data, sampler.getReservoirRow(i));
+            }
+
+            if (sampler.getSuppressed() > 0) {
+                emit(data, false, sampler.getSuppressed() + " of " + data.rowCount + " rows were selected for logging but were not logged due to " + data.logSampling + " sampling");
+            }
+        }
+
+        if (data.rowWriter != null) {
+            final RowWriter rowWriter = data.rowWriter;
+            data.rowWriter = null;
+            rowWriter.close();
+        }
+    }
+
+    /**
+     * Merges the counters and summaries of this step copy into those of the other copies,
+     * and if this is the last copy to be disposed, reports the merged results.
+     *
+     * @param data the step data.
+     * @param finished true if this step copy reached the end of its stream without error.
+     */
+    private void contributeAcrossCopies(final LogRowData data, final boolean finished) {
+        if (data.metrics != null) {
+            // the metrics are taken over by the coordinator, so report those of this copy now
+            if (data.metrics.getRows() > 0) {
+                emit(data, false, data.metrics.summary());
+            }
+        }
+
+        final CopyCoordinator coordinator = data.coordinator;
+        final boolean last = coordinator.contribute(getCopy(), finished, getLinesRead(), data.rowsLogged, data.metrics,
+                data.profiler, data.driftDetector, data.digest);
+        data.metrics = null;
+        data.profiler = null;
+        data.driftDetector = null;
+        data.digest = null;
+
+        if (!last) {
+            return;
+        }
+
+        emit(data, false, "Across " + coordinator.getContributed() + " copies: rows=" + coordinator.getRows()
+                + ", rows logged=" + coordinator.getRowsLogged());
+
+        final Set<Integer> unfinishedCopies = coordinator.getUnfinishedCopies();
+        if (!unfinishedCopies.isEmpty()) {
+            emit(data, true, "Across copies: the copies " + unfinishedCopies + " failed or were stopped before the end"
+                    + " of their streams, so only the rows they processed until then are included");
+        }
+
+        final RowMetrics metrics = coordinator.getMetrics();
+        if (metrics != null && metrics.getRows() > 0) {
+            emit(data, false, "Across copies: " + metrics.summary());
+        }
+
+        final RowProfiler profiler = coordinator.getProfiler();
+        if (profiler != null) {
+            emit(data, false, "Across copies: " + profiler.report());
+            if (coordinator.isProfilesMismatched()) {
+                emit(data, true, "The profiles of some copies were not merged, as they received rows with different metadata");
             }
-            final Object field = row[i];
-            buf.append(field == null ? "null" : field.toString());
         }
-        buf.append("}");
 
-        return buf.toString();
+        final RowDriftDetector driftDetector = coordinator.getDriftDetector();
+        if (driftDetector != null && driftDetector.getDriftedRows() > 0) {
+            emit(data, true, "Across copies: " + driftDetector.summary(coordinator.getRows()));
+        }
+
+        if (data.digestEnabled) {
+            final RowDigest digest = coordinator.getDigest();
+            emit(data, false, "Across copies: " + (digest != null ? digest.summary() : RowDigest.summary(0, 0)));
+        }
+    }
+
+    /**
+     * When there is more than one copy of the step, makes the file name unique to this copy
+     * by inserting the copy number before the extension, e.g. {@code rows.jsonl} becomes {@code rows-2.jsonl}.
+     */
+    private String perCopyFile(final String file) {
+        if (getStepMeta().getCopies() <= 1) {
+            return file;
+        }
+
+        final Path path = Paths.get(file);
+        final String fileName = path.getFileName().toString();
+        final int idxExtension = fileName.indexOf('.', 1);
+        final String copyFileName;
+        if (idxExtension > 0) {
+            copyFileName = fileName.substring(0, idxExtension) + "-" + getCopy() + fileName.substring(idxExtension);
+        } else {
+            copyFileName = fileName + "-" + getCopy();
+        }
+        return path.resolveSibling(copyFileName).toString();
+    }
+
+    /**
+     * Resolves everything that does not change from row to row,
+     * so that it is not recomputed for each subsequent row.
+     */
+    private void firstRow(final StepMetaInterface smi, final LogRowData data) throws KettleException {
+        final RowMetaInterface inputRowMeta = getInputRowMeta();
+
+        data.outputRowMeta = inputRowMeta.clone();
+        smi.getFields(data.outputRowMeta, getStepname(), null, null, this, repository, metaStore);
+
+        if (!data.redactionRules.isEmpty()) {
+            data.redactions = new Redactions(inputRowMeta, data.redactionRules);
+            if (!data.redactions.getUnknownFields().isEmpty()) {
+                // a renamed or misspelled field would otherwise be logged unredacted
+                throw new KettleException("The fields " + data.redactions.getUnknownFields()
+                        + " of the redaction rules were not found in the input rows");
+            }
+        }
+
+        data.formatter = new RowFormatter(inputRowMeta, data.maxFieldLength, data.redactions,
+                data.deltaKeyframeInterval);
+
+        if (data.logCondition != null) {
+            data.logPredicate = data.logCondition.bind(inputRowMeta);
+        }
+
+        if (LogOutputTarget.JSON_LINES_FILE == data.outputTarget) {
+            data.rowWriter = new JsonLinesRowWriter(inputRowMeta, Paths.get(data.outputFile), data.outputFileMaxSize,
+                    data.outputFileGzip, data.redactions);
+        } else if (LogOutputTarget.BINARY_CAPTURE_FILE == data.outputTarget) {
+            data.rowWriter = new RowCaptureWriter(inputRowMeta, Paths.get(data.outputFile), data.outputFileGzip);
+        }
+
+        if (data.metricsEnabled) {
+            data.metrics = new RowMetrics(inputRowMeta, data.metricsInterval);
+        }
+
+        if (data.profilingEnabled) {
+            data.profiler = new RowProfiler(inputRowMeta, data.redactions);
+        }
+
+        if (data.driftDetection) {
+            data.driftDetector = new RowDriftDetector(inputRowMeta, getCopy());
+        }
+
+        if (data.duplicateKeyFields != null) {
+            data.duplicateDetector = new DuplicateDetector(inputRowMeta, data.duplicateKeyFields,
+                    data.duplicateExpectedKeys, data.duplicateFalsePositiveRate, data.duplicateExactSetSize,
+                    data.duplicateOffHeap);
+            if (!data.duplicateDetector.getUnknownFields().isEmpty()) {
+                // checking a partial key would report false duplicates
+                throw new KettleException("The key fields " + data.duplicateDetector.getUnknownFields()
+                        + " for detecting duplicates were not found in the input rows");
+            }
+        }
+
+        if (data.sortKeyFields != null) {
+            data.sortOrderVerifier = new SortOrderVerifier(inputRowMeta, data.sortKeyFields, data.redactions);
+            if (!data.sortOrderVerifier.getUnknownFields().isEmpty()) {
+                // verifying a partial key would miss rows that are out of order
+                throw new KettleException("The key fields " + data.sortOrderVerifier.getUnknownFields()
+                        + " for verifying the sort order were not found in the input rows");
+            }
+        }
+
+        if (data.heavyHitterFields != null) {
+            data.heavyHitters = new HeavyHitters(inputRowMeta, data.heavyHitterFields, data.heavyHitterCount,
+                    data.heavyHitterInterval, data.redactions);
+            if (!data.heavyHitters.getUnknownFields().isEmpty()) {
+                // a report of only some of the fields would not show that the others are missing
+                throw new KettleException("The fields " + data.heavyHitters.getUnknownFields()
+                        + " whose most frequent values are tracked were not found in the input rows");
+            }
+        }
+
+        if (data.outputFields) {
+            // in the same order as the output fields are appended by getFields
+            final LogRowMeta meta = (LogRowMeta) smi;
+            int outputFieldIdx = inputRowMeta.size();
+            if (data.digestEnabled && LogRowMeta.isOutputField(meta.getDigestField())) {
+                data.digestFieldIdx = outputFieldIdx++;
+            }
+            if (LogRowMeta.isOutputField(meta.getRowNumberField())) {
+                data.rowNumberFieldIdx = outputFieldIdx++;
+            }
+            if (LogRowMeta.isOutputField(meta.getCopyNumberField())) {
+                data.copyNumberFieldIdx = outputFieldIdx++;
+                data.copyNr = (long) getCopy();
+            }
+            if (LogRowMeta.isOutputField(meta.getTimestampField())) {
+                data.timestampFieldIdx = outputFieldIdx++;
+            }
+            if (LogRowMeta.isOutputField(meta.getFieldCountMismatchField())) {
+                data.fieldCountMismatchFieldIdx = outputFieldIdx++;
+            }
+            if (LogRowMeta.isOutputField(meta.getRowHashField())) {
+                data.rowHashFieldIdx = outputFieldIdx;
+            }
+        }
+
+        if (TraceProbe.START == data.traceProbe) {
+            data.traceFieldIdx = data.outputRowMeta.indexOfValue(data.traceField);
+            data.traceFieldAppended = inputRowMeta.indexOfValue(data.traceField) < 0;
+        } else if (TraceProbe.END == data.traceProbe) {
+            data.traceFieldIdx = inputRowMeta.indexOfValue(data.traceField);
+            if (data.traceFieldIdx < 0) {
+                throw new KettleException("The trace field '" + data.traceField + "' was not found in the input rows");
+            }
+        }
+
+        if (data.digestEnabled || data.rowHashFieldIdx >= 0) {
+            data.digest = new RowDigest(inputRowMeta);
+        }
+
+        if (data.flightRecorderSize > 0) {
+            data.flightRecorder = new RowFlightRecorder(data.flightRecorderSize, inputRowMeta.size());
+        }
     }
 }
@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a copy of a Log Row step, exposed over JMX.
+ *
+ * The counters are updated by the step thread and read by JMX clients,
+ * and so use {@link LongAdder} to avoid contention.
+ *
+ * The current throughput is measured by the step thread over windows of about a second,
+ * checking the time only every {@code SAMPLE_ROWS} rows, and published as an immutable
+ * {@link ThroughputWindow}, so that reading it has no side effects and concurrent JMX clients
+ * do not affect each other.
+ */
+final class LogRowStepStats implements LogRowStepStatsMBean {
+
+    private static final String DOMAIN = "uk.gov.nationalarchives.pdi.step.debug";
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final int SAMPLE_ROWS = 256;
+
+    private final String transformationName;
+    private final String stepName;
+    private final int copyNr;
+
+    private final LongAdder rowsSeen = new LongAdder();
+    final LongAdder rowsLogged = new LongAdder();
+    final LongAdder underRunRows = new LongAdder();
+    private volatile AsyncLogWriter asyncLogWriter;
+
+    private final long startNanos = System.nanoTime();
+    private volatile ThroughputWindow throughputWindow = new ThroughputWindow(startNanos, 0, 0);
+
+    /**
+     * The number of rows since the time was last checked, only used by the step thread.
+     */
+    private int rowsSinceSample;
+
+    private ObjectName objectName;
+
+    LogRowStepStats(final String transformationName, final String stepName, final int copyNr) {
+        this.transformationName = transformationName;
+        this.stepName = stepName;
+        this.copyNr = copyNr;
+    }
+
+    /**
+     * Counts a row that has passed through the step copy. Must only be called from the step thread.
+     */
+    void rowSeen() {
+        rowsSeen.increment();
+        if (++rowsSinceSample < SAMPLE_ROWS) {
+            return;
+        }
+        rowsSinceSample = 0;
+
+        final long now = System.nanoTime();
+        final ThroughputWindow window = throughputWindow;
+        final long elapsedNanos = now - window.startNanos;
+        if (elapsedNanos >= WINDOW_NANOS) {
+            final long rows = rowsSeen.sum();
+            throughputWindow = new ThroughputWindow(now, rows, (rows - window.startRows) / (elapsedNanos / NANOS_PER_SECOND));
+        }
+    }
+
+    void setAsyncLogWriter(final AsyncLogWriter asyncLogWriter) {
+        this.asyncLogWriter = asyncLogWriter;
+    }
+
+    /**
+     * Registers this MBean with the platform MBean server.
+     *
+     * @param instanceId distinguishes this step copy from one with the same names
+     *     in another running instance of the same transformation.
+     *
+     * @throws JMException if the MBean cannot be registered.
+     */
+    void register(final String instanceId) throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        final Hashtable<String, String> properties = new Hashtable<>();
+        properties.put("type", "LogRowStep");
+        properties.put("transformation", ObjectName.quote(String.valueOf(transformationName)));
+        properties.put("step", ObjectName.quote(String.valueOf(stepName)));
+        properties.put("copy", Integer.toString(copyNr));
+
+        ObjectName name = new ObjectName(DOMAIN, properties);
+        try {
+            server.registerMBean(this, name);
+        } catch (final InstanceAlreadyExistsException e) {
+            properties.put("instance", ObjectName.quote(String.valueOf(instanceId)));
+            name = new ObjectName(DOMAIN, properties);
+            server.registerMBean(this, name);
+        }
+        this.objectName = name;
+    }
+
+    /**
+     * Unregisters this MBean from the platform MBean server, if it was registered.
+     *
+     * @throws JMException if the MBean cannot be unregistered.
+     */
+    void unregister() throws JMException {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } finally {
+                objectName = null;
+            }
+        }
+    }
+
+    @Override
+    public String getTransformationName() {
+        return transformationName;
+    }
+
+    @Override
+    public String getStepName() {
+        return stepName;
+    }
+
+    @Override
+    public int getCopyNr() {
+        return copyNr;
+    }
+
+    @Override
+    public long getRowsSeen() {
+        return rowsSeen.sum();
+    }
+
+    @Override
+    public long getRowsLogged() {
+        return rowsLogged.sum();
+    }
+
+    @Override
+    public long getUnderRunRows() {
+        return underRunRows.sum();
+    }
+
+    @Override
+    public long getDroppedLogMessages() {
+        final AsyncLogWriter writer = asyncLogWriter;
+        return writer == null ? 0 : writer.getDropped();
+    }
+
+    @Override
+    public double getThroughput() {
+        final ThroughputWindow window = throughputWindow;
+        final long elapsedNanos = System.nanoTime() - window.startNanos;
+        if (elapsedNanos < WINDOW_NANOS) {
+            return window.throughput;
+        }
+        // the current window is overdue, e.g. as the rows have slowed or stalled, so report the rate within it so far
+        return (rowsSeen.sum() - window.startRows) / (elapsedNanos / NANOS_PER_SECOND);
+    }
+
+    @Override
+    public double getAverageThroughput() {
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        return elapsedNanos <= 0 ? 0 : rowsSeen.sum() / (elapsedNanos / NANOS_PER_SECOND);
+    }
+
+    /**
+     * The start of the current throughput window, and the throughput measured over the previous window.
+     */
+    private static final class ThroughputWindow {
+        final long startNanos;
+        final long startRows;
+        final double throughput;
+
+        ThroughputWindow(final long startNanos, final long startRows, final double throughput) {
+            this.startNanos = startNanos;
+            this.startRows = startRows;
+            this.throughput = throughput;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+/**
+ * JMX management interface for the statistics of a copy of a Log Row step.
+ */
+public interface LogRowStepStatsMBean {
+
+    String getTransformationName();
+
+    String getStepName();
+
+    int getCopyNr();
+
+    /**
+     * Get the number of rows that have passed through the step copy.
+     *
+     * @return the number of rows.
+     */
+    long getRowsSeen();
+
+    /**
+     * Get the number of rows that have been logged by the step copy.
+     *
+     * @return the number of rows.
+     */
+    long getRowsLogged();
+
+    /**
+     * Get the number of rows that were shorter than their row metadata.
+     *
+     * @return the number of rows.
+     */
+    long getUnderRunRows();
+
+    /**
+     * Get the number of log messages dropped because the asynchronous log buffer was full.
+     *
+     * @return the number of messages.
+     */
+    long getDroppedLogMessages();
+
+    /**
+     * Get the current throughput of the step copy, over about the last second.
+     *
+     * @return the throughput in rows per second.
+     */
+    double getThroughput();
+
+    /**
+     * Get the average throughput of the step copy since it started.
+     *
+     * @return the throughput in rows per second.
+     */
+    double getAverageThroughput();
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+/**
+ * A rule for redacting the value of a field when a row is logged.
+ */
+public class RedactionRule {
+
+    private final String fieldName;
+    private final RedactionAction action;
+    private final int prefixLength;
+
+    /**
+     * @param fieldName the name of the field.
+     * @param action how the value is redacted.
+     * @param prefixLength the number of characters to keep, for {@link RedactionAction#PREFIX}.
+     */
+    public RedactionRule(final String fieldName, final RedactionAction action, final int prefixLength) {
+        this.fieldName = fieldName;
+        this.action = action;
+        this.prefixLength = prefixLength;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public RedactionAction getAction() {
+        return action;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+}
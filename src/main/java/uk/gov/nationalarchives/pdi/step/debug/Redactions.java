@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The redaction rules resolved to the indexes of the fields of the row metadata,
+ * so that formatting a row only needs an array lookup per field.
+ *
+ * Instances are immutable, and so may be shared by the formatter and the row writer.
+ */
+final class Redactions {
+
+    /**
+     * Replaces masked values, and the end of prefixed values.
+     */
+    static final String MASK = "***";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Salts the hashes, so that hashes of values from a small domain, e.g. dates
+     * of birth, can not be reversed by hashing every value of the domain.
+     * The salt is shared by the JVM so that hashes can be correlated between steps.
+     */
+    private static final long SALT = new SecureRandom().nextLong();
+
+    private final RedactionAction[] actions;
+    private final int[] prefixLengths;
+    private final List<String> unknownFields = new ArrayList<>();
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param rules the redaction rules.
+     */
+    Redactions(final RowMetaInterface rowMeta, final List<RedactionRule> rules) {
+        this.actions = new RedactionAction[rowMeta.size()];
+        this.prefixLengths = new int[rowMeta.size()];
+        for (final RedactionRule rule : rules) {
+            if (rule.getFieldName() == null || rule.getAction() == null) {
+                continue;
+            }
+            final int fieldIdx = rowMeta.indexOfValue(rule.getFieldName());
+            if (fieldIdx < 0) {
+                unknownFields.add(rule.getFieldName());
+                continue;
+            }
+            actions[fieldIdx] = rule.getAction();
+            prefixLengths[fieldIdx] = Math.max(0, rule.getPrefixLength());
+        }
+    }
+
+    /**
+     * Get the names of the fields of rules that are not in the row metadata.
+     *
+     * @return the names of the fields.
+     */
+    List<String> getUnknownFields() {
+        return unknownFields;
+    }
+
+    /**
+     * Get the redaction action for a field.
+     *
+     * @param fieldIdx the index of the field.
+     *
+     * @return the action, or null if the field is not redacted.
+     */
+    RedactionAction get(final int fieldIdx) {
+        return fieldIdx < actions.length ? actions[fieldIdx] : null;
+    }
+
+    boolean isDropped(final int fieldIdx) {
+        return fieldIdx < actions.length && RedactionAction.DROP == actions[fieldIdx];
+    }
+
+    int getPrefixLength(final int fieldIdx) {
+        return prefixLengths[fieldIdx];
+    }
+
+    /**
+     * Appends the salted hash of a value.
+     *
+     * @param buf the buffer to append to.
+     * @param value the native value, or the string of a lazily converted value.
+     *
+     * @return the buffer.
+     */
+    static StringBuilder appendHash(final StringBuilder buf, final Object value) {
+        final long salted = saltedHash(value);
+        buf.append('#');
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buf.append(HEX[(int) (salted >>> shift) & 0xf]);
+        }
+        return buf;
+    }
+
+    /**
+     * Computes the salted hash of the content of a value, as appended by {@link #appendHash(StringBuilder, Object)}.
+     *
+     * @param value the native value, or the string of a lazily converted value.
+     *
+     * @return the salted hash.
+     */
+    static long saltedHash(final Object value) {
+        final long hash;
+        if (value instanceof CharSequence) {
+            hash = Hashing.hash((CharSequence) value);
+        } else if (value instanceof byte[]) {
+            hash = Hashing.hash((byte[]) value);
+        } else if (value instanceof Long) {
+            hash = Hashing.mix64((Long) value);
+        } else {
+            hash = Hashing.hash(value.toString());
+        }
+        return Hashing.mix64(hash ^ SALT);
+    }
+}
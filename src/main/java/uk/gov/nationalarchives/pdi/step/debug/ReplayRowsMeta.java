@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.*;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+@Step(id = "ReplayRowsStep", image = "ReplayRowsStep.svg", name = "Debug - Replay Rows",
+        description = "Replays Rows captured by the Log Row step", categoryDescription = "Input")
+public class ReplayRowsMeta extends BaseStepMeta implements StepMetaInterface {
+
+    private static final String ELEM_NAME_STEP = "step";
+    private static final String ELEM_NAME_CAPTURE_FILE = "captureFile";
+
+    private String captureFile;
+
+    public ReplayRowsMeta() {
+        super();
+    }
+
+    @Override
+    public void setDefault() {
+        this.captureFile = null;
+    }
+
+    @Override
+    public String getXML() {
+        return XMLHandler.addTagValue(ELEM_NAME_CAPTURE_FILE, captureFile);
+    }
+
+    @Override
+    public void loadXML(final Node stepnode, final List<DatabaseMeta> databases, final IMetaStore metaStore) throws KettleXMLException {
+        final String xCaptureFile = XMLHandler.getTagValue(stepnode, ELEM_NAME_CAPTURE_FILE);
+        if (xCaptureFile != null && !xCaptureFile.isEmpty()) {
+            this.captureFile = xCaptureFile;
+        }
+    }
+
+    @Override
+    public void saveRep(final Repository repo, final IMetaStore metaStore, final ObjectId id_transformation, final ObjectId id_step)
+            throws KettleException {
+
+        // wrap the settings in a single root element so that they can be parsed as a document by readRep
+        final String rep = XMLHandler.openTag(ELEM_NAME_STEP) + getXML() + XMLHandler.closeTag(ELEM_NAME_STEP);
+        repo.saveStepAttribute(id_transformation, id_step, "step-xml", rep);
+    }
+
+    @Override
+    public void readRep(final Repository repo, final IMetaStore metaStore, final ObjectId id_step, final List<DatabaseMeta> databases) throws KettleException {
+        final String rep = repo.getStepAttributeString(id_step, "step-xml");
+        if (rep == null || rep.isEmpty()) {
+            setDefault();
+            return;
+        }
+
+        final Node stepnode = XMLHandler.getSubNode(XMLHandler.loadXMLString(rep), ELEM_NAME_STEP);
+        loadXML(stepnode, (List<DatabaseMeta>)null, (IMetaStore)null);
+    }
+
+    /**
+     * The output fields are those recorded in the header of the capture file,
+     * if the capture file does not (yet) exist then no fields are added.
+     */
+    @Override
+    public void getFields(final RowMetaInterface inputRowMeta, final String name, final RowMetaInterface[] info,
+            final StepMeta nextStep, final VariableSpace space, final Repository repository, final IMetaStore metaStore)
+            throws KettleStepException {
+        if (captureFile == null || captureFile.trim().isEmpty()) {
+            return;
+        }
+
+        final Path path = Paths.get(space != null ? space.environmentSubstitute(captureFile).trim() : captureFile.trim());
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+
+        try (final RowCaptureReader reader = new RowCaptureReader(path)) {
+            for (final ValueMetaInterface valueMeta : reader.getRowMeta().getValueMetaList()) {
+                final ValueMetaInterface outputValueMeta = valueMeta.clone();
+                outputValueMeta.setOrigin(name);
+                inputRowMeta.addValueMeta(outputValueMeta);
+            }
+        } catch (final KettleException | IOException e) {
+            throw new KettleStepException("Unable to read the fields from capture file: " + path, e);
+        }
+    }
+
+    @Override
+    public StepInterface getStep(final StepMeta stepMeta, final StepDataInterface stepDataInterface, final int copyNr, final TransMeta transMeta, final Trans trans) {
+        return new ReplayRowsStep(stepMeta, stepDataInterface, copyNr, transMeta, trans);
+    }
+
+    @Override
+    public StepDataInterface getStepData() {
+        return new ReplayRowsData();
+    }
+
+    @Override
+    public String getDialogClassName() {
+        return "uk.gov.nationalarchives.pdi.step.debug.ReplayRowsDialog";
+    }
+
+    // <editor-fold desc="settings getters and setters">
+
+    /**
+     * Get the path of the capture file to replay,
+     * may contain variables.
+     *
+     * @return the path of the capture file
+     */
+    public String getCaptureFile() {
+        return captureFile;
+    }
+
+    public void setCaptureFile(final String captureFile) {
+        this.captureFile = captureFile;
+    }
+    // </editor-fold>
+}
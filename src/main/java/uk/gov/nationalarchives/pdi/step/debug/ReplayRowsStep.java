@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Replays the rows from a file captured by the Log Row step
+ * with the {@link LogOutputTarget#BINARY_CAPTURE_FILE} output target.
+ */
+public class ReplayRowsStep extends BaseStep implements StepInterface {
+
+    public ReplayRowsStep(final StepMeta stepMeta, final StepDataInterface stepDataInterface, final int copyNr,
+                          final TransMeta transMeta, final Trans trans) {
+        super(stepMeta, stepDataInterface, copyNr, transMeta, trans);
+    }
+
+    @Override
+    public boolean init(final StepMetaInterface smi, final StepDataInterface sdi) {
+        if (!super.init(smi, sdi)) {
+            return false;
+        }
+
+        final ReplayRowsMeta meta = (ReplayRowsMeta) smi;
+        final ReplayRowsData data = (ReplayRowsData) sdi;
+
+        final String captureFile = environmentSubstitute(meta.getCaptureFile());
+        if (captureFile == null || captureFile.trim().isEmpty()) {
+            logError("A capture file must be specified");
+            return false;
+        }
+
+        try {
+            data.reader = new RowCaptureReader(Paths.get(captureFile.trim()));
+        } catch (final KettleException e) {
+            logError(e.getMessage(), e);
+            return false;
+        }
+
+        // the rows are replayed with exactly the row meta they were captured with
+        data.outputRowMeta = data.reader.getRowMeta();
+
+        return true;
+    }
+
+    @Override
+    public boolean processRow(final StepMetaInterface smi, final StepDataInterface sdi) throws KettleException {
+        final ReplayRowsData data = (ReplayRowsData) sdi;
+
+        final Object[] row = data.reader.readRow();
+        if (row == null) {
+            setOutputDone();
+            return false;
+        }
+
+        incrementLinesInput();
+        putRow(data.outputRowMeta, row);
+
+        return true;
+    }
+
+    @Override
+    public void dispose(final StepMetaInterface smi, final StepDataInterface sdi) {
+        final ReplayRowsData data = (ReplayRowsData) sdi;
+
+        if (data.reader != null) {
+            try {
+                data.reader.close();
+            } catch (final IOException e) {
+                logError("Unable to close capture file: " + e.getMessage(), e);
+            }
+            data.reader = null;
+        }
+
+        super.dispose(smi, sdi);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the rows from a file written by {@link RowCaptureWriter}.
+ * The file may be gzip compressed.
+ */
+final class RowCaptureReader implements Closeable {
+
+    private final Path path;
+    private final DataInputStream is;
+    private final RowMetaInterface rowMeta;
+
+    /**
+     * Opens a row capture file, checks its header, and reads its row metadata.
+     *
+     * @param path the row capture file.
+     *
+     * @throws KettleException if the file cannot be opened, or is not a row capture file.
+     */
+    RowCaptureReader(final Path path) throws KettleException {
+        this.path = path;
+
+        InputStream fileIs = null;
+        try {
+            fileIs = new BufferedInputStream(Files.newInputStream(path), RowCaptureWriter.BUFFER_SIZE);
+
+            // detect gzip compression from the gzip magic number
+            fileIs.mark(2);
+            final int b1 = fileIs.read();
+            final int b2 = fileIs.read();
+            fileIs.reset();
+            if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+                fileIs = new BufferedInputStream(new GZIPInputStream(fileIs, RowCaptureWriter.BUFFER_SIZE),
+                        RowCaptureWriter.BUFFER_SIZE);
+            }
+
+            this.is = new DataInputStream(fileIs);
+
+            final byte[] magic = new byte[RowCaptureWriter.MAGIC.length];
+            is.readFully(magic);
+            if (!Arrays.equals(RowCaptureWriter.MAGIC, magic)) {
+                throw new KettleFileException("Not a row capture file: " + path);
+            }
+            final int version = is.readInt();
+            if (version != RowCaptureWriter.VERSION) {
+                throw new KettleFileException("Unsupported row capture file version " + version + ": " + path);
+            }
+
+            this.rowMeta = new RowMeta(is);
+
+        } catch (final IOException | KettleException e) {
+            if (fileIs != null) {
+                try {
+                    fileIs.close();
+                } catch (final IOException ioe) {
+                    e.addSuppressed(ioe);
+                }
+            }
+            if (e instanceof KettleException) {
+                throw (KettleException) e;
+            }
+            throw new KettleFileException("Unable to read row capture file: " + path + ". " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the metadata of the captured rows.
+     *
+     * @return the row metadata.
+     */
+    RowMetaInterface getRowMeta() {
+        return rowMeta;
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return the row, or null if there are no more rows.
+     *
+     * @throws KettleException if the row cannot be read.
+     */
+    Object[] readRow() throws KettleException {
+        try {
+            return rowMeta.readData(is);
+        } catch (final KettleEOFException e) {
+            return null;
+        } catch (final SocketTimeoutException e) {
+            throw new KettleFileException("Unable to read row capture file: " + path + ". " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Captures rows to a file in Kettle's binary row serialization format,
+ * so that they can be replayed exactly by the {@link ReplayRowsStep}.
+ *
+ * The file starts with {@link #MAGIC} and a format version,
+ * followed by the row metadata written by {@link RowMetaInterface#writeMeta(DataOutputStream)},
+ * followed by each row written by {@link RowMetaInterface#writeData(DataOutputStream, Object[])}.
+ */
+final class RowCaptureWriter implements RowWriter {
+
+    static final byte[] MAGIC = { 'K', 'D', 'P', 'R', 'O', 'W', 'S' };
+    static final int VERSION = 1;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RowMetaInterface rowMeta;
+    private final int rowMetaSize;
+    private final Path path;
+    private final DataOutputStream os;
+
+    /**
+     * @param rowMeta the metadata of the rows to capture.
+     * @param path the file to write to.
+     * @param gzip true to gzip compress the file.
+     *
+     * @throws KettleException if the file cannot be opened, or the row metadata cannot be written.
+     */
+    RowCaptureWriter(final RowMetaInterface rowMeta, final Path path, final boolean gzip) throws KettleException {
+        this.rowMeta = rowMeta;
+        this.rowMetaSize = rowMeta.size();
+        this.path = path;
+
+        OutputStream fileOs = null;
+        try {
+            final Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            fileOs = Files.newOutputStream(path);
+            if (gzip) {
+                fileOs = new GZIPOutputStream(fileOs, BUFFER_SIZE);
+            }
+            this.os = new DataOutputStream(new BufferedOutputStream(fileOs, BUFFER_SIZE));
+
+            os.write(MAGIC);
+            os.writeInt(VERSION);
+
+            rowMeta.writeMeta(os);
+
+        } catch (final IOException | KettleException e) {
+            if (fileOs != null) {
+                try {
+                    fileOs.close();
+                } catch (final IOException ioe) {
+                    e.addSuppressed(ioe);
+                }
+            }
+            if (e instanceof KettleException) {
+                throw (KettleException) e;
+            }
+            throw new KettleException("Unable to open row capture file: " + path + ". " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(final Object[] row) throws KettleException {
+        // writeData expects a value for every field
+        final Object[] data = row.length < rowMetaSize ? RowDataUtil.resizeArray(row, rowMetaSize) : row;
+        rowMeta.writeData(os, data);
+    }
+
+    @Override
+    public void close() throws KettleException {
+        try {
+            os.close();
+        } catch (final IOException e) {
+            throw new KettleException("Unable to close row capture file: " + path + ". " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A condition on the values of a row, for example:
+ * {@code status = 'FAILED' AND (size > 1GB OR "error code" IS NOT NULL)}.
+ *
+ * The grammar is:
+ * <pre>
+ *   condition  := and ( OR and )*
+ *   and        := not ( AND not )*
+ *   not        := NOT not | primary
+ *   primary    := '(' condition ')' | field IS [ NOT ] NULL | field op literal
+ *   field      := identifier | '"' name '"'
+ *   op         := '=' | '!=' | '&lt;&gt;' | '&lt;' | '&lt;=' | '&gt;' | '&gt;='
+ *   literal    := '\'' string '\'' | number [ KB | MB | GB | TB ] | TRUE | FALSE
+ * </pre>
+ * Keywords are case-insensitive, and a quote within a string literal is escaped by doubling it.
+ *
+ * The condition is parsed once by {@link #parse(String)}, and then bound once to the row metadata
+ * by {@link #bind(RowMetaInterface)} which resolves field names to indexes and converts literals
+ * to the type of the field, so that testing a row does no parsing, lookups by name, or conversion
+ * of literals. A comparison with a null value is never true.
+ */
+final class RowCondition {
+
+    private static final String[] DATE_FORMATS = {
+            "yyyy-MM-dd'T'HH:mm:ss.SSS",
+            "yyyy-MM-dd HH:mm:ss.SSS",
+            "yyyy-MM-dd'T'HH:mm:ss",
+            "yyyy-MM-dd HH:mm:ss",
+            "yyyy-MM-dd",
+            "yyyy/MM/dd HH:mm:ss.SSS",
+            "yyyy/MM/dd HH:mm:ss",
+            "yyyy/MM/dd"
+    };
+
+    private static final Pattern NUMBER = Pattern.compile("-?(\\d+(\\.\\d*)?|\\.\\d+)");
+
+    // comparison operators, as a mask of the allowed results of comparing the value to the literal
+    private static final int CMP_LT = 1;
+    private static final int CMP_EQ = 2;
+    private static final int CMP_GT = 4;
+
+    private final String expression;
+    private final Node root;
+
+    private RowCondition(final String expression, final Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * Parses a condition.
+     *
+     * @param expression the condition expression.
+     *
+     * @return the condition.
+     *
+     * @throws KettleException if the expression is not a valid condition.
+     */
+    static RowCondition parse(final String expression) throws KettleException {
+        final Parser parser = new Parser(expression);
+        final Node root = parser.parseCondition();
+        if (parser.peek().type != TokenType.END) {
+            throw parser.error("Unexpected '" + parser.peek().text + "'");
+        }
+        return new RowCondition(expression, root);
+    }
+
+    /**
+     * Binds the condition to the row metadata of the rows that it will test.
+     *
+     * @param rowMeta the row metadata.
+     *
+     * @return the predicate for testing rows.
+     *
+     * @throws KettleException if a field does not exist, or a literal cannot be converted to the type of its field.
+     */
+    RowPredicate bind(final RowMetaInterface rowMeta) throws KettleException {
+        return root.bind(rowMeta);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // <editor-fold desc="abstract syntax tree">
+
+    private interface Node {
+        RowPredicate bind(RowMetaInterface rowMeta) throws KettleException;
+    }
+
+    private static final class And implements Node {
+        private final Node left;
+        private final Node right;
+
+        And(final Node left, final Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public RowPredicate bind(final RowMetaInterface rowMeta) throws KettleException {
+            final RowPredicate l = left.bind(rowMeta);
+            final RowPredicate r = right.bind(rowMeta);
+            return row -> l.test(row) && r.test(row);
+        }
+    }
+
+    private static final class Or implements Node {
+        private final Node left;
+        private final Node right;
+
+        Or(final Node left, final Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public RowPredicate bind(final RowMetaInterface rowMeta) throws KettleException {
+            final RowPredicate l = left.bind(rowMeta);
+            final RowPredicate r = right.bind(rowMeta);
+            return row -> l.test(row) || r.test(row);
+        }
+    }
+
+    private static final class Not implements Node {
+        private final Node operand;
+
+        Not(final Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public RowPredicate bind(final RowMetaInterface rowMeta) throws KettleException {
+            final RowPredicate p = operand.bind(rowMeta);
+            return row -> !p.test(row);
+        }
+    }
+
+    private static final class IsNull implements Node {
+        private final String field;
+        private final boolean negated;
+
+        IsNull(final String field, final boolean negated) {
+            this.field = field;
+            this.negated = negated;
+        }
+
+        @Override
+        public RowPredicate bind(final RowMetaInterface rowMeta) throws KettleException {
+            final int idx = fieldIndex(rowMeta, field);
+            final ValueMetaInterface valueMeta = rowMeta.getValueMeta(idx);
+            return row -> negated != valueMeta.isNull(idx < row.length ? row[idx] : null);
+        }
+    }
+
+    private static final class Comparison implements Node {
+        private final String field;
+        private final int mask;
+        private final Token literal;
+
+        Comparison(final String field, final int mask, final Token literal) {
+            this.field = field;
+            this.mask = mask;
+            this.literal = literal;
+        }
+
+        @Override
+        public RowPredicate bind(final RowMetaInterface rowMeta) throws KettleException {
+            final int idx = fieldIndex(rowMeta, field);
+            final ValueMetaInterface valueMeta = rowMeta.getValueMeta(idx);
+            final boolean normalStorage = valueMeta.isStorageNormal();
+            final int mask = this.mask;
+
+            switch (valueMeta.getType()) {
+                case ValueMetaInterface.TYPE_INTEGER:
+                    final long longLiteral = toLong(valueMeta);
+                    return row -> {
+                        final Object value = value(row, idx, valueMeta, normalStorage);
+                        return value != null && matches(mask, Long.compare((Long) value, longLiteral));
+                    };
+
+                case ValueMetaInterface.TYPE_NUMBER:
+                    final double doubleLiteral = toBigDecimal(valueMeta).doubleValue();
+                    return row -> {
+                        final Object value = value(row, idx, valueMeta, normalStorage);
+                        return value != null && matches(mask, Double.compare((Double) value, doubleLiteral));
+                    };
+
+                case ValueMetaInterface.TYPE_BIGNUMBER:
+                    final BigDecimal bigDecimalLiteral = toBigDecimal(valueMeta);
+                    return row -> {
+                        final Object value = value(row, idx, valueMeta, normalStorage);
+                        return value != null && matches(mask, ((BigDecimal) value).compareTo(bigDecimalLiteral));
+                    };
+
+                case ValueMetaInterface.TYPE_STRING:
+                    final String stringLiteral = literal.text;
+                    return row -> {
+                        final Object value = value(row, idx, valueMeta, normalStorage);
+                        return value != null && matches(mask, ((String) value).compareTo(stringLiteral));
+                    };
+
+                case ValueMetaInterface.TYPE_BOOLEAN:
+                    final boolean booleanLiteral = toBoolean(valueMeta);
+                    return row -> {
+                        final Object value = value(row, idx, valueMeta, normalStorage);
+                        return value != null && matches(mask, Boolean.compare((Boolean) value, booleanLiteral));
+                    };
+
+                case ValueMetaInterface.TYPE_DATE:
+                case ValueMetaInterface.TYPE_TIMESTAMP:
+                    final long timeLiteral = toDate(valueMeta).getTime();
+                    return row -> {
+                        final Object value = value(row, idx, valueMeta, normalStorage);
+                        return value != null && matches(mask, Long.compare(((Date) value).getTime(), timeLiteral));
+                    };
+
+                default:
+                    throw new KettleException("Field '" + field + "' of type " + valueMeta.getTypeDesc()
+                            + " cannot be compared, only tested with IS NULL");
+            }
+        }
+
+        private long toLong(final ValueMetaInterface valueMeta) throws KettleException {
+            try {
+                return toBigDecimal(valueMeta).longValueExact();
+            } catch (final ArithmeticException e) {
+                throw new KettleException("Literal " + literal.text + " is not an Integer, as required by field '" + field + "'");
+            }
+        }
+
+        private BigDecimal toBigDecimal(final ValueMetaInterface valueMeta) throws KettleException {
+            if (literal.type != TokenType.NUMBER) {
+                throw new KettleException("Field '" + field + "' of type " + valueMeta.getTypeDesc()
+                        + " must be compared with a number, not: " + literal.text);
+            }
+            final String text = literal.text.toUpperCase(Locale.ROOT);
+            long multiplier = 1;
+            int len = text.length();
+            if (text.endsWith("KB")) {
+                multiplier = 1L << 10;
+            } else if (text.endsWith("MB")) {
+                multiplier = 1L << 20;
+            } else if (text.endsWith("GB")) {
+                multiplier = 1L << 30;
+            } else if (text.endsWith("TB")) {
+                multiplier = 1L << 40;
+            }
+            if (multiplier > 1) {
+                len -= 2;
+            }
+            try {
+                return new BigDecimal(text.substring(0, len)).multiply(BigDecimal.valueOf(multiplier));
+            } catch (final NumberFormatException e) {
+                throw new KettleException("Invalid number literal " + literal.text + " for field '" + field + "'");
+            }
+        }
+
+        private boolean toBoolean(final ValueMetaInterface valueMeta) throws KettleException {
+            if (literal.type == TokenType.TRUE || "Y".equalsIgnoreCase(literal.text) || "true".equalsIgnoreCase(literal.text)) {
+                return true;
+            } else if (literal.type == TokenType.FALSE || "N".equalsIgnoreCase(literal.text) || "false".equalsIgnoreCase(literal.text)) {
+                return false;
+            }
+            throw new KettleException("Field '" + field + "' of type " + valueMeta.getTypeDesc()
+                    + " must be compared with TRUE or FALSE, not: " + literal.text);
+        }
+
+        private Date toDate(final ValueMetaInterface valueMeta) throws KettleException {
+            if (literal.type == TokenType.STRING) {
+                for (final String format : DATE_FORMATS) {
+                    final SimpleDateFormat dateFormat = new SimpleDateFormat(format);
+                    dateFormat.setLenient(false);
+                    try {
+                        return dateFormat.parse(literal.text);
+                    } catch (final ParseException e) {
+                        // try the next format
+                    }
+                }
+            }
+            throw new KettleException("Field '" + field + "' of type " + valueMeta.getTypeDesc()
+                    + " must be compared with a date such as '2021-12-31 23:59:59', not: " + literal.text);
+        }
+    }
+
+    private static int fieldIndex(final RowMetaInterface rowMeta, final String field) throws KettleException {
+        final int idx = rowMeta.indexOfValue(field);
+        if (idx < 0) {
+            throw new KettleException("The condition refers to the field '" + field + "' which is not present in the input row");
+        }
+        return idx;
+    }
+
+    /**
+     * Get the value of a field of a row in its native type.
+     */
+    private static Object value(final Object[] row, final int idx, final ValueMetaInterface valueMeta,
+            final boolean normalStorage) throws KettleValueException {
+        if (idx >= row.length || row[idx] == null) {
+            return null;
+        }
+        return normalStorage ? row[idx] : valueMeta.convertToNormalStorageType(row[idx]);
+    }
+
+    private static boolean matches(final int mask, final int cmp) {
+        return (mask & (cmp < 0 ? CMP_LT : cmp == 0 ? CMP_EQ : CMP_GT)) != 0;
+    }
+
+    // </editor-fold>
+
+    // <editor-fold desc="parser">
+
+    private enum TokenType {
+        IDENTIFIER, STRING, NUMBER, OPERATOR, LPAREN, RPAREN, AND, OR, NOT, IS, NULL, TRUE, FALSE, END
+    }
+
+    private static final class Token {
+        final TokenType type;
+        final String text;
+        final int position;
+
+        Token(final TokenType type, final String text, final int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+    }
+
+    private static final class Parser {
+        private final String expression;
+        private int pos;
+        private Token next;
+
+        Parser(final String expression) {
+            this.expression = expression;
+        }
+
+        Node parseCondition() throws KettleException {
+            Node node = parseAnd();
+            while (peek().type == TokenType.OR) {
+                consume();
+                node = new Or(node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() throws KettleException {
+            Node node = parseNot();
+            while (peek().type == TokenType.AND) {
+                consume();
+                node = new And(node, parseNot());
+            }
+            return node;
+        }
+
+        private Node parseNot() throws KettleException {
+            if (peek().type == TokenType.NOT) {
+                consume();
+                return new Not(parseNot());
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() throws KettleException {
+            final Token token = consume();
+            if (token.type == TokenType.LPAREN) {
+                final Node node = parseCondition();
+                expect(TokenType.RPAREN, "')'");
+                return node;
+            }
+
+            if (token.type != TokenType.IDENTIFIER) {
+                throw error("Expected a field name or '(' but found '" + token.text + "'", token);
+            }
+
+            if (peek().type == TokenType.IS) {
+                consume();
+                boolean negated = false;
+                if (peek().type == TokenType.NOT) {
+                    consume();
+                    negated = true;
+                }
+                expect(TokenType.NULL, "NULL");
+                return new IsNull(token.text, negated);
+            }
+
+            final Token op = expect(TokenType.OPERATOR, "a comparison operator");
+            final int mask;
+            switch (op.text) {
+                case "=":
+                    mask = CMP_EQ;
+                    break;
+                case "!=":
+                case "<>":
+                    mask = CMP_LT | CMP_GT;
+                    break;
+                case "<":
+                    mask = CMP_LT;
+                    break;
+                case "<=":
+                    mask = CMP_LT | CMP_EQ;
+                    break;
+                case ">":
+                    mask = CMP_GT;
+                    break;
+                default:  // ">="
+                    mask = CMP_GT | CMP_EQ;
+                    break;
+            }
+
+            final Token literal = consume();
+            if (literal.type != TokenType.STRING && literal.type != TokenType.NUMBER
+                    && literal.type != TokenType.TRUE && literal.type != TokenType.FALSE) {
+                throw error("Expected a literal value but found '" + literal.text + "'", literal);
+            }
+            return new Comparison(token.text, mask, literal);
+        }
+
+        private Token expect(final TokenType type, final String description) throws KettleException {
+            final Token token = consume();
+            if (token.type != type) {
+                throw error("Expected " + description + " but found '" + token.text + "'", token);
+            }
+            return token;
+        }
+
+        Token peek() throws KettleException {
+            if (next == null) {
+                next = lex();
+            }
+            return next;
+        }
+
+        private Token consume() throws KettleException {
+            final Token token = peek();
+            next = null;
+            return token;
+        }
+
+        KettleException error(final String message) throws KettleException {
+            return error(message, peek());
+        }
+
+        private KettleException error(final String message, final Token token) {
+            return new KettleException(message + " at position " + (token.position + 1) + " of condition: " + expression);
+        }
+
+        private Token lex() throws KettleException {
+            final int len = expression.length();
+            while (pos < len && Character.isWhitespace(expression.charAt(pos))) {
+                pos++;
+            }
+            final int start = pos;
+            if (pos >= len) {
+                return new Token(TokenType.END, "end of condition", start);
+            }
+
+            final char c = expression.charAt(pos);
+            switch (c) {
+                case '(':
+                    pos++;
+                    return new Token(TokenType.LPAREN, "(", start);
+
+                case ')':
+                    pos++;
+                    return new Token(TokenType.RPAREN, ")", start);
+
+                case '=':
+                    pos++;
+                    return new Token(TokenType.OPERATOR, "=", start);
+
+                case '!':
+                case '<':
+                case '>':
+                    pos++;
+                    if (pos < len && (expression.charAt(pos) == '=' || (c == '<' && expression.charAt(pos) == '>'))) {
+                        pos++;
+                    } else if (c == '!') {
+                        throw new KettleException("Expected '!=' at position " + (start + 1) + " of condition: " + expression);
+                    }
+                    return new Token(TokenType.OPERATOR, expression.substring(start, pos), start);
+
+                case '\'':
+                case '"':
+                    return new Token(c == '\'' ? TokenType.STRING : TokenType.IDENTIFIER, quoted(c), start);
+
+                default:
+                    break;
+            }
+
+            if (Character.isDigit(c) || ((c == '-' || c == '.') && pos + 1 < len && Character.isDigit(expression.charAt(pos + 1)))) {
+                pos++;
+                while (pos < len && (Character.isDigit(expression.charAt(pos)) || expression.charAt(pos) == '.')) {
+                    pos++;
+                }
+                final String number = expression.substring(start, pos);
+                if (!NUMBER.matcher(number).matches()) {
+                    throw new KettleException("Invalid number literal '" + number + "' at position " + (start + 1)
+                            + " of condition: " + expression);
+                }
+                // optional size suffix, e.g. 1GB
+                if (pos + 1 < len && "KMGT".indexOf(Character.toUpperCase(expression.charAt(pos))) >= 0
+                        && Character.toUpperCase(expression.charAt(pos + 1)) == 'B') {
+                    pos += 2;
+                }
+                return new Token(TokenType.NUMBER, expression.substring(start, pos), start);
+            }
+
+            if (Character.isJavaIdentifierStart(c)) {
+                pos++;
+                while (pos < len && (Character.isJavaIdentifierPart(expression.charAt(pos)) || expression.charAt(pos) == '.')) {
+                    pos++;
+                }
+                final String word = expression.substring(start, pos);
+                switch (word.toUpperCase(Locale.ROOT)) {
+                    case "AND":
+                        return new Token(TokenType.AND, word, start);
+                    case "OR":
+                        return new Token(TokenType.OR, word, start);
+                    case "NOT":
+                        return new Token(TokenType.NOT, word, start);
+                    case "IS":
+                        return new Token(TokenType.IS, word, start);
+                    case "NULL":
+                        return new Token(TokenType.NULL, word, start);
+                    case "TRUE":
+                        return new Token(TokenType.TRUE, word, start);
+                    case "FALSE":
+                        return new Token(TokenType.FALSE, word, start);
+                    default:
+                        return new Token(TokenType.IDENTIFIER, word, start);
+                }
+            }
+
+            throw new KettleException("Unexpected character '" + c + "' at position " + (start + 1) + " of condition: " + expression);
+        }
+
+        /**
+         * Reads a quoted string, where the quote character is escaped by doubling it.
+         */
+        private String quoted(final char quote) throws KettleException {
+            final int start = pos;
+            final StringBuilder builder = new StringBuilder();
+            pos++;
+            while (pos < expression.length()) {
+                final char c = expression.charAt(pos++);
+                if (c == quote) {
+                    if (pos < expression.length() && expression.charAt(pos) == quote) {
+                        builder.append(quote);
+                        pos++;
+                    } else {
+                        return builder.toString();
+                    }
+                } else {
+                    builder.append(c);
+                }
+            }
+            throw new KettleException("Unterminated quote starting at position " + (start + 1) + " of condition: " + expression);
+        }
+    }
+
+    // </editor-fold>
+}
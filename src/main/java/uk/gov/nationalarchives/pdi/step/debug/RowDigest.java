@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.util.Locale;
+
+/**
+ * Computes an order-independent digest of a stream of rows.
+ *
+ * Each row is encoded into a reused buffer by a {@link RowEncoder}, e.g. strings are
+ * encoded as UTF-8 directly from their characters. The buffer is hashed with XXH64, and the
+ * row hashes are summed. As addition is commutative, the digest does not depend on
+ * the order of the rows, or on how the rows are divided between copies of a step,
+ * but unlike XOR it does not cancel out duplicate rows.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowDigest {
+
+    private final RowEncoder encoder;
+
+    private long rows;
+    private long digest;
+
+    RowDigest(final RowMetaInterface rowMeta) {
+        final int[] fieldIdxs = new int[rowMeta.size()];
+        for (int i = 0; i < fieldIdxs.length; i++) {
+            fieldIdxs[i] = i;
+        }
+        this.encoder = new RowEncoder(rowMeta, fieldIdxs);
+    }
+
+    /**
+     * Adds a row to the digest.
+     *
+     * @param row the row.
+     *
+     * @return the hash of the row.
+     *
+     * @throws KettleValueException if a lazily converted value cannot be converted to its native type.
+     */
+    long add(final Object[] row) throws KettleValueException {
+        final int length = encoder.encode(row);
+        final long hash = Hashing.xxHash64(encoder.getBuffer(), 0, length, 0);
+        rows++;
+        digest += hash;
+        return hash;
+    }
+
+    /**
+     * Merges the digest of another copy of the step into this digest.
+     *
+     * @param other the digest to merge.
+     */
+    void merge(final RowDigest other) {
+        rows += other.rows;
+        digest += other.digest;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the digest of the rows so far.
+     *
+     * @return the sum of the hashes of the rows.
+     */
+    long getDigest() {
+        return digest;
+    }
+
+    String summary() {
+        return summary(rows, digest);
+    }
+
+    /**
+     * Formats a digest so that it can be compared with the digest from another step.
+     *
+     * @param rows the number of rows.
+     * @param digest the digest.
+     *
+     * @return the summary.
+     */
+    static String summary(final long rows, final long digest) {
+        return String.format(Locale.ROOT, "Digest of %d rows: %016x", rows, digest);
+    }
+}
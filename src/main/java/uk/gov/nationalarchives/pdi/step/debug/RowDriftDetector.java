@@ -0,0 +1,291 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Detects schema drift, i.e. rows whose shape differs from that of the first row.
+ *
+ * The runtime class of each value is learnt from the first row in which it is not null.
+ * Each row is then checked with a single scan of its values, comparing their classes
+ * and looking for values beyond the end of the row metadata.
+ * The row metadata itself is not checked, as the step is given the same
+ * row metadata for every row.
+ *
+ * A drift pattern is the expected and actual classes of the values that drifted, and the number of extra values.
+ * Drifted rows are matched to their pattern without allocating, and a description
+ * is only built the first time that a pattern is found; each distinct
+ * drift pattern is reported once, and then counted.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowDriftDetector {
+
+    private static final String EOL = System.getProperty("line.separator");
+
+    /**
+     * The maximum number of distinct drift patterns to keep, further patterns are only counted.
+     */
+    private static final int MAX_PATTERNS = 1000;
+
+    private final RowMetaInterface rowMeta;
+    private final int fields;
+    private final Class<?>[] classes;
+
+    /**
+     * Reused to look up the pattern of each drifted row.
+     */
+    private final PatternKey probe;
+
+    private final Map<PatternKey, Pattern> patterns = new LinkedHashMap<>();
+    private long driftedRows;
+    private long otherPatternRows;
+
+    private static final class PatternKey {
+        /**
+         * The expected and actual class of each value that drifted,
+         * or a pair of nulls for each value that did not.
+         */
+        final Class<?>[] driftedClasses;
+        int extra;
+        int hash;
+
+        PatternKey(final Class<?>[] driftedClasses, final int extra) {
+            this.driftedClasses = driftedClasses;
+            this.extra = extra;
+            rehash();
+        }
+
+        void rehash() {
+            hash = 31 * Arrays.hashCode(driftedClasses) + extra;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PatternKey)) {
+                return false;
+            }
+            final PatternKey other = (PatternKey) obj;
+            return extra == other.extra && Arrays.equals(driftedClasses, other.driftedClasses);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Pattern {
+        final String description;
+        final long firstRowNr;
+        final int copyNr;
+        long count;
+
+        Pattern(final String description, final long firstRowNr, final int copyNr) {
+            this.description = description;
+            this.firstRowNr = firstRowNr;
+            this.copyNr = copyNr;
+        }
+    }
+
+    private final int copyNr;
+    private boolean merged;
+
+    /**
+     * @param rowMeta the metadata of the first row.
+     * @param copyNr the number of the step copy.
+     */
+    RowDriftDetector(final RowMetaInterface rowMeta, final int copyNr) {
+        this.copyNr = copyNr;
+        this.rowMeta = rowMeta;
+        this.fields = rowMeta.size();
+        this.classes = new Class<?>[fields];
+        this.probe = new PatternKey(new Class<?>[fields * 2], 0);
+    }
+
+    /**
+     * Checks a row for drift.
+     *
+     * @param rowNr the number of the row.
+     * @param row the row.
+     *
+     * @return a description of the drift if this is the first row with this drift pattern, otherwise null.
+     */
+    String check(final long rowNr, final Object[] row) {
+        boolean drifted = false;
+        final int len = Math.min(row.length, fields);
+        for (int i = 0; i < len; i++) {
+            final Object value = row[i];
+            if (value != null) {
+                final Class<?> expected = classes[i];
+                if (expected == null) {
+                    classes[i] = value.getClass();
+                } else if (value.getClass() != expected) {
+                    drifted = true;
+                }
+            }
+        }
+        for (int i = fields; i < row.length; i++) {
+            if (row[i] != null) {
+                drifted = true;
+                break;
+            }
+        }
+
+        if (!drifted) {
+            return null;
+        }
+        return record(rowNr, row);
+    }
+
+    private String record(final long rowNr, final Object[] row) {
+        driftedRows++;
+
+        final Class<?>[] driftedClasses = probe.driftedClasses;
+        final int len = Math.min(row.length, fields);
+        for (int i = 0; i < len; i++) {
+            final Object value = row[i];
+            final boolean valueDrifted = value != null && value.getClass() != classes[i];
+            driftedClasses[i * 2] = valueDrifted ? classes[i] : null;
+            driftedClasses[i * 2 + 1] = valueDrifted ? value.getClass() : null;
+        }
+        Arrays.fill(driftedClasses, len * 2, fields * 2, null);
+        int extra = 0;
+        for (int i = fields; i < row.length; i++) {
+            if (row[i] != null) {
+                extra++;
+            }
+        }
+        probe.extra = extra;
+        probe.rehash();
+
+        final Pattern pattern = patterns.get(probe);
+        if (pattern != null) {
+            pattern.count++;
+            return null;
+        }
+
+        if (patterns.size() >= MAX_PATTERNS) {
+            otherPatternRows++;
+            return null;
+        }
+
+        final String description = describe(driftedClasses, extra);
+        final Pattern newPattern = new Pattern(description, rowNr, copyNr);
+        newPattern.count = 1;
+        patterns.put(new PatternKey(driftedClasses.clone(), extra), newPattern);
+        return description;
+    }
+
+    private String describe(final Class<?>[] driftedClasses, final int extra) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < fields; i++) {
+            if (driftedClasses[i * 2] != null) {
+                if (builder.length() > 0) {
+                    builder.append("; ");
+                }
+                final ValueMetaInterface valueMeta = rowMeta.getValueMeta(i);
+                builder.append("field '").append(valueMeta.getName()).append("' (").append(valueMeta.getTypeDesc())
+                        .append(") expected ").append(driftedClasses[i * 2].getSimpleName())
+                        .append(" but was ").append(driftedClasses[i * 2 + 1].getSimpleName());
+            }
+        }
+
+        if (extra > 0) {
+            if (builder.length() > 0) {
+                builder.append("; ");
+            }
+            builder.append(extra).append(" extra value(s) beyond the ").append(fields).append(" fields of the row metadata");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get the number of rows that have drifted.
+     *
+     * @return the number of rows.
+     */
+    long getDriftedRows() {
+        return driftedRows;
+    }
+
+    /**
+     * Merges the drift patterns found by the drift detector of another copy of the step into this drift detector.
+     *
+     * @param other the drift detector to merge.
+     */
+    void merge(final RowDriftDetector other) {
+        merged = true;
+        driftedRows += other.driftedRows;
+        otherPatternRows += other.otherPatternRows;
+        for (final Map.Entry<PatternKey, Pattern> entry : other.patterns.entrySet()) {
+            final Pattern pattern = patterns.get(entry.getKey());
+            if (pattern != null) {
+                pattern.count += entry.getValue().count;
+            } else if (patterns.size() < MAX_PATTERNS) {
+                final Pattern newPattern = new Pattern(entry.getValue().description, entry.getValue().firstRowNr,
+                        entry.getValue().copyNr);
+                newPattern.count = entry.getValue().count;
+                patterns.put(entry.getKey(), newPattern);
+            } else {
+                otherPatternRows += entry.getValue().count;
+            }
+        }
+    }
+
+    /**
+     * Formats a summary of each drift pattern and the number of rows that had it.
+     *
+     * @param rowCount the total number of rows.
+     *
+     * @return the summary.
+     */
+    String summary(final long rowCount) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Schema drift in ").append(driftedRows).append(" of ").append(rowCount).append(" rows, ")
+                .append(patterns.size()).append(" distinct pattern(s):");
+        for (final Pattern pattern : patterns.values()) {
+            builder.append(EOL).append("  ").append(pattern.count).append(" row(s), first at row ")
+                    .append(pattern.firstRowNr);
+            if (merged) {
+                builder.append(" of copy ").append(pattern.copyNr);
+            }
+            builder.append(": ").append(pattern.description);
+        }
+        if (otherPatternRows > 0) {
+            builder.append(EOL).append("  ").append(otherPatternRows).append(" row(s) with further patterns that were not kept");
+        }
+        return builder.toString();
+    }
+}
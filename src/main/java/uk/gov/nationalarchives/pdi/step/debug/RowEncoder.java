@@ -0,0 +1,267 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Encodes the values of fields of a row into a reused buffer, so that they can be
+ * hashed or compared as bytes without creating a String or other objects for each row.
+ *
+ * Each value is encoded as a tag for its type followed by a normalised binary form of
+ * the value, e.g. strings are encoded as UTF-8 directly from their characters, so that
+ * equal values have equal encodings, and values of different types never do.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowEncoder {
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INTEGER = 1;
+    private static final byte TAG_NUMBER = 2;
+    private static final byte TAG_BIG_NUMBER = 3;
+    private static final byte TAG_BOOLEAN = 4;
+    private static final byte TAG_DATE = 5;
+    private static final byte TAG_TIMESTAMP = 6;
+    private static final byte TAG_STRING = 7;
+    private static final byte TAG_BINARY = 8;
+    private static final byte TAG_OTHER = 9;
+
+    private final int[] fieldIdxs;
+    private final ValueMetaInterface[] valueMetas;
+
+    /**
+     * For each field, whether lazily converted values can be encoded from their bytes,
+     * as the bytes are already the UTF-8 encoding of the value.
+     */
+    private final boolean[] utf8BinaryStrings;
+
+    private byte[] buffer = new byte[256];
+    private int position;
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param fieldIdxs the indexes of the fields to encode.
+     */
+    RowEncoder(final RowMetaInterface rowMeta, final int[] fieldIdxs) {
+        this.fieldIdxs = fieldIdxs;
+        this.valueMetas = new ValueMetaInterface[fieldIdxs.length];
+        this.utf8BinaryStrings = new boolean[fieldIdxs.length];
+        for (int i = 0; i < fieldIdxs.length; i++) {
+            final ValueMetaInterface valueMeta = rowMeta.getValueMeta(fieldIdxs[i]);
+            valueMetas[i] = valueMeta;
+            utf8BinaryStrings[i] = valueMeta.isStorageBinaryString()
+                    && ValueMetaInterface.TYPE_STRING == valueMeta.getType()
+                    && ValueMetaInterface.TRIM_TYPE_NONE == valueMeta.getTrimType()
+                    && isUtf8(valueMeta.getStringEncoding());
+        }
+    }
+
+    private static boolean isUtf8(final String encoding) {
+        if (encoding == null || encoding.isEmpty()) {
+            return StandardCharsets.UTF_8.equals(Charset.defaultCharset());
+        }
+        return "UTF-8".equalsIgnoreCase(encoding) || "UTF8".equalsIgnoreCase(encoding);
+    }
+
+    /**
+     * Encodes the values of the fields of a row into the buffer.
+     *
+     * @param row the row.
+     *
+     * @return the length of the encoding at the start of the buffer.
+     *
+     * @throws KettleValueException if a lazily converted value cannot be converted to its native type.
+     */
+    int encode(final Object[] row) throws KettleValueException {
+        position = 0;
+        for (int i = 0; i < fieldIdxs.length; i++) {
+            final int fieldIdx = fieldIdxs[i];
+            // values missing from the end of an under-run row are encoded as nulls
+            Object value = fieldIdx < row.length ? row[fieldIdx] : null;
+
+            if (value != null) {
+                final ValueMetaInterface valueMeta = valueMetas[i];
+                if (valueMeta.isStorageIndexed() && value instanceof Integer) {
+                    final Object[] index = valueMeta.getIndex();
+                    final int idx = (Integer) value;
+                    value = index != null && idx >= 0 && idx < index.length ? index[idx] : null;
+
+                } else if (valueMeta.isStorageBinaryString() && value instanceof byte[]) {
+                    if (utf8BinaryStrings[i]) {
+                        final byte[] bytes = (byte[]) value;
+                        ensureCapacity(5 + bytes.length);
+                        buffer[position++] = TAG_STRING;
+                        putInt(bytes.length);
+                        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                        position += bytes.length;
+                        continue;
+                    }
+                    value = valueMeta.convertBinaryStringToNativeType((byte[]) value);
+                }
+            }
+
+            putValue(value);
+        }
+        return position;
+    }
+
+    /**
+     * Get the buffer holding the encoding of the last row.
+     *
+     * @return the buffer, which is only valid until the next row is encoded.
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    private void putValue(final Object value) {
+        if (value == null) {
+            ensureCapacity(1);
+            buffer[position++] = TAG_NULL;
+
+        } else if (value instanceof String) {
+            putString(TAG_STRING, (String) value);
+
+        } else if (value instanceof Long) {
+            ensureCapacity(9);
+            buffer[position++] = TAG_INTEGER;
+            putLong((Long) value);
+
+        } else if (value instanceof Double) {
+            final double d = (Double) value;
+            ensureCapacity(9);
+            buffer[position++] = TAG_NUMBER;
+            // -0.0 and 0.0 are equal, and doubleToLongBits collapses all NaNs to one value
+            putLong(d == 0.0 ? 0L : Double.doubleToLongBits(d));
+
+        } else if (value instanceof Timestamp) {
+            ensureCapacity(13);
+            buffer[position++] = TAG_TIMESTAMP;
+            putLong(((Timestamp) value).getTime());
+            putInt(((Timestamp) value).getNanos());
+
+        } else if (value instanceof Date) {
+            ensureCapacity(9);
+            buffer[position++] = TAG_DATE;
+            putLong(((Date) value).getTime());
+
+        } else if (value instanceof Boolean) {
+            ensureCapacity(2);
+            buffer[position++] = TAG_BOOLEAN;
+            buffer[position++] = (byte) ((Boolean) value ? 1 : 0);
+
+        } else if (value instanceof BigDecimal) {
+            // normalised so that equal values with different scales, e.g. 1.0 and 1.00, are encoded the same
+            final BigDecimal normalised = ((BigDecimal) value).stripTrailingZeros();
+            final byte[] unscaled = normalised.unscaledValue().toByteArray();
+            ensureCapacity(9 + unscaled.length);
+            buffer[position++] = TAG_BIG_NUMBER;
+            putInt(normalised.scale());
+            putInt(unscaled.length);
+            System.arraycopy(unscaled, 0, buffer, position, unscaled.length);
+            position += unscaled.length;
+
+        } else if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            ensureCapacity(5 + bytes.length);
+            buffer[position++] = TAG_BINARY;
+            putInt(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+
+        } else {
+            // e.g. Internet Address or Serializable, which are rare enough to not be worth encoding specially
+            putString(TAG_OTHER, value.toString());
+        }
+    }
+
+    /**
+     * Encodes a string as a tag, the length of its UTF-8 encoding, and its UTF-8 encoding.
+     */
+    private void putString(final byte tag, final String str) {
+        final int len = str.length();
+        ensureCapacity(5 + (len * 3));
+        buffer[position++] = tag;
+        final int lengthPosition = position;
+        position += 4;
+
+        for (int i = 0; i < len; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate, which is replaced in the same way as by String#getBytes
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        final int byteLength = position - lengthPosition - 4;
+        buffer[lengthPosition] = (byte) byteLength;
+        buffer[lengthPosition + 1] = (byte) (byteLength >>> 8);
+        buffer[lengthPosition + 2] = (byte) (byteLength >>> 16);
+        buffer[lengthPosition + 3] = (byte) (byteLength >>> 24);
+    }
+
+    private void putInt(final int value) {
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    private void putLong(final long value) {
+        putInt((int) value);
+        putInt((int) (value >>> 32));
+    }
+
+    private void ensureCapacity(final int additional) {
+        final int required = position + additional;
+        if (required > buffer.length) {
+            final byte[] newBuffer = new byte[Math.max(required, buffer.length * 2)];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+}
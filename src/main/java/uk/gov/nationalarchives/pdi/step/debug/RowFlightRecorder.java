@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last N rows seen by a step copy in a circular buffer,
+ * so that they can be logged if something goes wrong.
+ *
+ * The values of each row are copied into a preallocated slot, rather than
+ * the row being referenced, as downstream steps may modify or reuse row arrays.
+ * Nothing is formatted until the rows are dumped.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowFlightRecorder {
+
+    private final Object[][] slots;
+    private final int[] lengths;
+    private int next;
+    private long recorded;
+
+    /**
+     * @param capacity the number of rows to keep.
+     * @param width the expected length of the row arrays, used to preallocate the slots.
+     */
+    RowFlightRecorder(final int capacity, final int width) {
+        this.slots = new Object[capacity][width];
+        this.lengths = new int[capacity];
+    }
+
+    /**
+     * Records a row, replacing the oldest row once the buffer is full.
+     *
+     * @param row the row.
+     */
+    void record(final Object[] row) {
+        Object[] slot = slots[next];
+        if (slot.length < row.length) {
+            slot = new Object[row.length];
+            slots[next] = slot;
+        }
+        System.arraycopy(row, 0, slot, 0, row.length);
+        lengths[next] = row.length;
+
+        next++;
+        if (next == slots.length) {
+            next = 0;
+        }
+        recorded++;
+    }
+
+    /**
+     * Get the number of rows that have been recorded.
+     *
+     * @return the number of rows.
+     */
+    long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Get the number of rows currently held.
+     *
+     * @return the number of rows.
+     */
+    int size() {
+        return (int) Math.min(recorded, slots.length);
+    }
+
+    /**
+     * Get a held row.
+     *
+     * @param i the index of the row, where 0 is the oldest held row.
+     *
+     * @return a copy of the row.
+     */
+    Object[] getRow(final int i) {
+        final int idx = slotIndex(i);
+        return Arrays.copyOf(slots[idx], lengths[idx]);
+    }
+
+    /**
+     * Get the number of a held row within the stream.
+     *
+     * @param i the index of the row, where 0 is the oldest held row.
+     *
+     * @return the row number, starting from 1.
+     */
+    long getRowNr(final int i) {
+        return recorded - size() + i + 1;
+    }
+
+    private int slotIndex(final int i) {
+        final int oldest = recorded > slots.length ? next : 0;
+        return (oldest + i) % slots.length;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Formats rows as log messages.
+ *
+ * Everything that depends only on the row metadata is rendered once
+ * when the formatter is created, and a single buffer is reused for each message.
+ * Values are formatted according to their {@link ValueMetaInterface}, and
+ * lazy-conversion (binary string) values are rendered from their bytes
+ * rather than being converted to their native type.
+ *
+ * Redacted fields are dropped, masked, hashed or prefixed as the values are
+ * appended to the buffer, so the row itself is never copied or modified.
+ *
+ * When delta logging is enabled, {@link #deltaMessage(Object[])} formats a full
+ * keyframe every so many rows, and in between only the values that changed since
+ * the previous row it formatted, so that each row can still be reconstructed from the log.
+ * Redacted fields are only formatted in keyframes, as a delta would reveal whenever
+ * their values change, even where the values themselves are masked.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowFormatter {
+
+    private static final String EOL = System.getProperty("line.separator");
+    private static final String TRUNCATED = "...";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final RowMetaInterface rowMeta;
+    private final int rowMetaSize;
+    private final int maxFieldLength;
+    private final Redactions redactions;
+    private final int deltaKeyframeInterval;
+
+    private final String basicHeader;
+    private final String metaHeader;
+    private final Charset[] charsets;
+
+    private final StringBuilder buf = new StringBuilder(256);
+
+    /**
+     * The values of the previous row formatted by {@link #deltaMessage(Object[])},
+     * copied so that a later step modifying the row can not affect the comparison.
+     * Mutable values are also copied, see {@link #copyOf(Object)}.
+     */
+    private Object[] previousRow;
+    private int previousRowLength = -1;
+    private int rowsSinceKeyframe;
+
+    /**
+     * @param rowMeta the metadata of the rows to format.
+     * @param maxFieldLength the maximum number of characters to output for each value, or 0 for no limit.
+     * @param redactions the redactions to apply to the values, or null if no fields are redacted.
+     * @param deltaKeyframeInterval the number of rows formatted by {@link #deltaMessage(Object[])}
+     *     between each full keyframe, or 0 if delta logging is not enabled.
+     */
+    RowFormatter(final RowMetaInterface rowMeta, final int maxFieldLength, final Redactions redactions,
+            final int deltaKeyframeInterval) {
+        this.rowMeta = rowMeta;
+        this.rowMetaSize = rowMeta.size();
+        this.maxFieldLength = maxFieldLength > 0 ? maxFieldLength : Integer.MAX_VALUE;
+        this.redactions = redactions;
+        this.deltaKeyframeInterval = deltaKeyframeInterval;
+
+        this.basicHeader = "inputRowMeta.size()=" + rowMetaSize;
+
+        final StringBuilder metaBuf = new StringBuilder("META={");
+        this.charsets = new Charset[rowMetaSize];
+        boolean firstField = true;
+        for (int i = 0; i < rowMetaSize; i++) {
+            final ValueMetaInterface valueMeta = rowMeta.getValueMeta(i);
+            charsets[i] = charset(valueMeta);
+            if (redactions != null && redactions.isDropped(i)) {
+                continue;
+            }
+            if (!firstField) {
+                metaBuf.append(", ");
+            }
+            metaBuf.append(valueMeta.getName());
+            firstField = false;
+        }
+        metaBuf.append("}");
+        this.metaHeader = metaBuf.toString();
+    }
+
+    private static Charset charset(final ValueMetaInterface valueMeta) {
+        final String encoding = valueMeta.getStringEncoding();
+        if (encoding != null && !encoding.isEmpty()) {
+            try {
+                return Charset.forName(encoding);
+            } catch (final IllegalCharsetNameException | UnsupportedCharsetException e) {
+                // fall through to the default
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * Formats a summary of the shape of a row.
+     *
+     * @param row the row.
+     *
+     * @return the message.
+     */
+    String basicMessage(final Object[] row) {
+        buf.setLength(0);
+        appendBasic(row);
+        return buf.toString();
+    }
+
+    /**
+     * Formats the shape, field names and values of a row.
+     *
+     * @param row the row.
+     *
+     * @return the message.
+     */
+    String detailedMessage(final Object[] row) {
+        buf.setLength(0);
+        appendBasic(row);
+        buf.append(EOL);
+        buf.append(metaHeader);
+        buf.append(EOL);
+        appendValues("ROW={", row);
+        return buf.toString();
+    }
+
+    /**
+     * Formats either a keyframe, with the shape, field names and values of a row,
+     * or a delta, with only the values that changed since the previous row formatted by this method.
+     *
+     * A keyframe lists its values as {@code KEYFRAME={...}}, and a delta as {@code DELTA={i=value, ...}},
+     * where {@code i} is the position of the value in the keyframe. A keyframe is formatted
+     * for the first row, every {@code deltaKeyframeInterval} rows, and whenever the length of the row changes.
+     *
+     * @param row the row.
+     *
+     * @return the message.
+     */
+    String deltaMessage(final Object[] row) {
+        buf.setLength(0);
+
+        if (row.length != previousRowLength || ++rowsSinceKeyframe >= deltaKeyframeInterval) {
+            if (previousRow == null || previousRow.length < row.length) {
+                previousRow = new Object[row.length];
+            }
+            for (int i = 0; i < row.length; i++) {
+                previousRow[i] = copyOf(row[i]);
+            }
+            previousRowLength = row.length;
+            rowsSinceKeyframe = 0;
+
+            appendBasic(row);
+            buf.append(EOL);
+            buf.append(metaHeader);
+            buf.append(EOL);
+            appendValues("KEYFRAME={", row);
+            return buf.toString();
+        }
+
+        buf.append("DELTA={");
+        boolean firstValue = true;
+        int position = 0;
+        for (int i = 0; i < row.length; i++) {
+            if (redactions != null && redactions.get(i) != null) {
+                if (!redactions.isDropped(i)) {
+                    // masked, hashed and prefixed values are only formatted in keyframes
+                    position++;
+                }
+                continue;
+            }
+            final Object value = row[i];
+            if (!isUnchanged(previousRow[i], value)) {
+                if (!firstValue) {
+                    buf.append(", ");
+                }
+                buf.append(position).append('=');
+                appendValue(i, value);
+                previousRow[i] = copyOf(value);
+                firstValue = false;
+            }
+            position++;
+        }
+        buf.append("}");
+        return buf.toString();
+    }
+
+    /**
+     * Determines whether a value is unchanged from the previous value of the field.
+     *
+     * Values are compared exactly rather than by {@link ValueMetaInterface#compare(Object, Object)},
+     * which may ignore the case of strings, or the scale of numbers,
+     * and so would lose changes that are needed to reconstruct the row.
+     */
+    private static boolean isUnchanged(final Object previousValue, final Object value) {
+        if (previousValue == value) {
+            return true;
+        }
+        if (previousValue == null || value == null) {
+            return false;
+        }
+        if (previousValue instanceof byte[] && value instanceof byte[]) {
+            // lazy-conversion and binary values
+            return Arrays.equals((byte[]) previousValue, (byte[]) value);
+        }
+        return previousValue.equals(value);
+    }
+
+    /**
+     * Copies a value which may be modified in place by a later step,
+     * so that the modification is detected as a change by {@link #isUnchanged(Object, Object)}.
+     *
+     * Only binary values and dates are copied, as the other types of value are immutable.
+     */
+    private static Object copyOf(final Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+        return value;
+    }
+
+    /**
+     * Formats the field names of the rows.
+     *
+     * @return the message.
+     */
+    String metaMessage() {
+        return metaHeader;
+    }
+
+    /**
+     * Formats only the values of a row,
+     * for when the field names have already been logged by {@link #metaMessage()}.
+     *
+     * @param row the row.
+     *
+     * @return the message.
+     */
+    String valuesMessage(final Object[] row) {
+        buf.setLength(0);
+        appendValues("ROW={", row);
+        return buf.toString();
+    }
+
+    private void appendValues(final String prefix, final Object[] row) {
+        buf.append(prefix);
+        boolean firstValue = true;
+        for (int i = 0; i < row.length; i++) {
+            if (redactions != null && redactions.isDropped(i)) {
+                continue;
+            }
+            if (!firstValue) {
+                buf.append(", ");
+            }
+            appendValue(i, row[i]);
+            firstValue = false;
+        }
+        buf.append("}");
+    }
+
+    private void appendBasic(final Object[] row) {
+        buf.append(basicHeader).append(rowMetaSize > row.length ? " > " : ", ").append("r.length=").append(row.length);
+    }
+
+    private void appendValue(final int fieldIdx, final Object value) {
+        if (value == null) {
+            buf.append("null");
+            return;
+        }
+
+        if (fieldIdx >= rowMetaSize) {
+            // a value beyond the end of the row metadata
+            appendTruncated(value.toString());
+            return;
+        }
+
+        final ValueMetaInterface valueMeta = rowMeta.getValueMeta(fieldIdx);
+        if (redactions != null) {
+            final RedactionAction action = redactions.get(fieldIdx);
+            if (action != null) {
+                appendRedacted(fieldIdx, valueMeta, value, action);
+                return;
+            }
+        }
+
+        Object nativeValue = value;
+        if (valueMeta.isStorageBinaryString() && value instanceof byte[]) {
+            // lazy-conversion, render the bytes without converting them to the native type
+            final byte[] bytes = (byte[]) value;
+            final int len = Math.min(bytes.length, maxFieldLength);
+            buf.append(new String(bytes, 0, len, charsets[fieldIdx]));
+            if (len < bytes.length) {
+                buf.append(TRUNCATED);
+            }
+            return;
+
+        } else if (valueMeta.isStorageIndexed() && value instanceof Integer) {
+            final Object[] index = valueMeta.getIndex();
+            final int i = (Integer) value;
+            if (index != null && i >= 0 && i < index.length) {
+                nativeValue = index[i];
+                if (nativeValue == null) {
+                    buf.append("null");
+                    return;
+                }
+            }
+        }
+
+        if (nativeValue instanceof String) {
+            appendTruncated((String) nativeValue);
+        } else if (nativeValue instanceof Long) {
+            buf.append(((Long) nativeValue).longValue());
+        } else if (nativeValue instanceof Boolean) {
+            buf.append(((Boolean) nativeValue).booleanValue());
+        } else if (nativeValue instanceof byte[]) {
+            appendHex((byte[]) nativeValue);
+        } else {
+            appendTruncated(nativeValue.toString());
+        }
+    }
+
+    private void appendRedacted(final int fieldIdx, final ValueMetaInterface valueMeta, final Object value,
+            final RedactionAction action) {
+        if (RedactionAction.MASK == action) {
+            buf.append(Redactions.MASK);
+            return;
+        }
+
+        Object nativeValue = value;
+        if (valueMeta.isStorageBinaryString() && value instanceof byte[]) {
+            nativeValue = new String((byte[]) value, charsets[fieldIdx]);
+        } else if (valueMeta.isStorageIndexed() && value instanceof Integer) {
+            final Object[] index = valueMeta.getIndex();
+            final int i = (Integer) value;
+            if (index != null && i >= 0 && i < index.length && index[i] != null) {
+                nativeValue = index[i];
+            }
+        }
+
+        if (RedactionAction.HASH == action) {
+            Redactions.appendHash(buf, nativeValue);
+        } else if (nativeValue instanceof byte[]) {
+            // binary values have no meaningful prefix
+            buf.append(Redactions.MASK);
+        } else {
+            // the mask is always appended, so as not to reveal whether the value was longer than the prefix
+            final String str = nativeValue.toString();
+            final int len = Math.min(Math.min(str.length(), redactions.getPrefixLength(fieldIdx)), maxFieldLength);
+            buf.append(str, 0, len).append(Redactions.MASK);
+        }
+    }
+
+    private void appendTruncated(final String str) {
+        if (str.length() <= maxFieldLength) {
+            buf.append(str);
+        } else {
+            buf.append(str, 0, maxFieldLength).append(TRUNCATED);
+        }
+    }
+
+    private void appendHex(final byte[] bytes) {
+        final int len = Math.min(bytes.length, maxFieldLength / 2);
+        buf.append("0x");
+        for (int i = 0; i < len; i++) {
+            final int b = bytes[i] & 0xff;
+            buf.append(HEX[b >>> 4]).append(HEX[b & 0xf]);
+        }
+        if (len < bytes.length) {
+            buf.append(TRUNCATED);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Low-overhead throughput and latency metrics for the rows passing through a step copy.
+ *
+ * Per row, only counters and a {@link LatencyHistogram} are updated;
+ * strings are only built when a summary is requested.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowMetrics {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    /**
+     * The input buffer fill level is sampled once every this many rows.
+     */
+    private static final int INPUT_BUFFER_SAMPLE_INTERVAL = 1024;
+
+    // estimated sizes in bytes of the values of fixed width types
+    private static final int SIZE_OF_NUMERIC = 8;
+    private static final int SIZE_OF_BIG_NUMBER = 16;
+    private static final int SIZE_OF_TIMESTAMP = 12;
+    private static final int SIZE_OF_BOOLEAN = 1;
+    private static final int SIZE_OF_OTHER = 16;
+
+    private long startNanos;
+    private final long intervalNanos;
+
+    /**
+     * The estimated size of the fixed width values of a row.
+     */
+    private final long fixedRowBytes;
+
+    /**
+     * The indexes of the fields whose size varies from row to row.
+     */
+    private final int[] variableFieldIdxs;
+
+    private long rows;
+    private long bytes;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private long inputBufferSamples;
+    private long inputBufferSum;
+    private int inputBufferMax;
+
+    private long nextReportNanos;
+    private long lastReportNanos;
+    private long lastReportRows;
+    private long lastReportBytes;
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param intervalSeconds the interval between summaries, or 0 for no periodic summaries.
+     */
+    RowMetrics(final RowMetaInterface rowMeta, final int intervalSeconds) {
+        this.startNanos = System.nanoTime();
+        this.intervalNanos = intervalSeconds > 0 ? intervalSeconds * 1_000_000_000L : Long.MAX_VALUE;
+        this.nextReportNanos = intervalSeconds > 0 ? startNanos + intervalNanos : Long.MAX_VALUE;
+        this.lastReportNanos = startNanos;
+
+        long fixedRowBytes = 0;
+        final int[] variableFieldIdxs = new int[rowMeta.size()];
+        int variableFields = 0;
+        for (int i = 0; i < rowMeta.size(); i++) {
+            final ValueMetaInterface valueMeta = rowMeta.getValueMeta(i);
+            if (valueMeta.isStorageBinaryString()) {
+                variableFieldIdxs[variableFields++] = i;
+                continue;
+            }
+
+            switch (valueMeta.getType()) {
+                case ValueMetaInterface.TYPE_STRING:
+                case ValueMetaInterface.TYPE_BINARY:
+                    variableFieldIdxs[variableFields++] = i;
+                    break;
+
+                case ValueMetaInterface.TYPE_INTEGER:
+                case ValueMetaInterface.TYPE_NUMBER:
+                case ValueMetaInterface.TYPE_DATE:
+                    fixedRowBytes += SIZE_OF_NUMERIC;
+                    break;
+
+                case ValueMetaInterface.TYPE_BIGNUMBER:
+                    fixedRowBytes += SIZE_OF_BIG_NUMBER;
+                    break;
+
+                case ValueMetaInterface.TYPE_TIMESTAMP:
+                    fixedRowBytes += SIZE_OF_TIMESTAMP;
+                    break;
+
+                case ValueMetaInterface.TYPE_BOOLEAN:
+                    fixedRowBytes += SIZE_OF_BOOLEAN;
+                    break;
+
+                default:
+                    fixedRowBytes += SIZE_OF_OTHER;
+                    break;
+            }
+        }
+        this.fixedRowBytes = fixedRowBytes;
+        this.variableFieldIdxs = new int[variableFields];
+        System.arraycopy(variableFieldIdxs, 0, this.variableFieldIdxs, 0, variableFields);
+    }
+
+    /**
+     * Records a row that has passed through the step.
+     *
+     * @param row the row.
+     * @param receivedNanos the time at which the row was received from {@code getRow()}.
+     * @param sentNanos the time at which {@code putRow()} returned.
+     * @param inputRowSets the input row sets of the step.
+     *
+     * @return true if a periodic summary is due.
+     */
+    boolean record(final Object[] row, final long receivedNanos, final long sentNanos, final List<RowSet> inputRowSets) {
+        rows++;
+        bytes += estimateBytes(row);
+        latency.record(sentNanos - receivedNanos);
+
+        if (rows % INPUT_BUFFER_SAMPLE_INTERVAL == 0) {
+            int fill = 0;
+            for (int i = 0; i < inputRowSets.size(); i++) {
+                fill += inputRowSets.get(i).size();
+            }
+            inputBufferSamples++;
+            inputBufferSum += fill;
+            if (fill > inputBufferMax) {
+                inputBufferMax = fill;
+            }
+        }
+
+        return sentNanos >= nextReportNanos;
+    }
+
+    private long estimateBytes(final Object[] row) {
+        long rowBytes = fixedRowBytes;
+        for (final int idx : variableFieldIdxs) {
+            if (idx >= row.length) {
+                break;
+            }
+            final Object value = row[idx];
+            if (value instanceof String) {
+                rowBytes += ((String) value).length();
+            } else if (value instanceof byte[]) {
+                rowBytes += ((byte[]) value).length;
+            }
+        }
+        return rowBytes;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Merges the metrics of another copy of the step into these metrics,
+     * after which the summary is of the combined rows since the earliest start.
+     *
+     * @param other the metrics to merge.
+     */
+    void merge(final RowMetrics other) {
+        startNanos = Math.min(startNanos, other.startNanos);
+        rows += other.rows;
+        bytes += other.bytes;
+        latency.add(other.latency);
+        inputBufferSamples += other.inputBufferSamples;
+        inputBufferSum += other.inputBufferSum;
+        inputBufferMax = Math.max(inputBufferMax, other.inputBufferMax);
+
+        lastReportNanos = startNanos;
+        lastReportRows = 0;
+        lastReportBytes = 0;
+    }
+
+    /**
+     * Formats a summary of the metrics since the last summary, and overall.
+     *
+     * @return the summary.
+     */
+    String summary() {
+        final long now = System.nanoTime();
+
+        final StringBuilder buf = new StringBuilder(256);
+        buf.append("Metrics: rows=").append(rows)
+                .append(", rows/s=").append(rate(rows - lastReportRows, now - lastReportNanos))
+                .append(" (overall ").append(rate(rows, now - startNanos)).append(")")
+                .append(", estimated bytes=").append(bytes)
+                .append(", estimated MB/s=").append(rate((bytes - lastReportBytes) / (1024d * 1024d), now - lastReportNanos))
+                .append(", getRow()->putRow() latency {");
+        latency.appendSummary(buf).append("}");
+        buf.append(", input buffer rows {mean=")
+                .append(inputBufferSamples == 0 ? 0 : inputBufferSum / inputBufferSamples)
+                .append(", max=").append(inputBufferMax)
+                .append("}");
+
+        lastReportNanos = now;
+        lastReportRows = rows;
+        lastReportBytes = bytes;
+        nextReportNanos = intervalNanos == Long.MAX_VALUE ? Long.MAX_VALUE : now + intervalNanos;
+
+        return buf.toString();
+    }
+
+    private static String rate(final double amount, final long nanos) {
+        if (nanos <= 0) {
+            return "0.0";
+        }
+        return String.format(Locale.ROOT, "%.1f", amount / (nanos / NANOS_PER_SECOND));
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Keeps running statistics about the values of each field of a stream of rows.
+ *
+ * For each field: the number of nulls, the minimum, maximum and mean of
+ * numeric and date values, the distribution of the lengths of string and
+ * binary values, and an estimate of the number of distinct values.
+ *
+ * All statistics are held in primitive arrays indexed by field (or by
+ * field and bucket), so recording a row does not allocate and memory use is
+ * fixed by the number of fields, regardless of the number of rows.
+ *
+ * For redacted fields only the number of nulls and distinct values are
+ * reported, as the minimum and maximum could reveal the values.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowProfiler {
+
+    private static final String EOL = System.getProperty("line.separator");
+
+    private static final byte KIND_NUMERIC = 0;
+    private static final byte KIND_DATE = 1;
+    private static final byte KIND_STRING = 2;
+    private static final byte KIND_BINARY = 3;
+    private static final byte KIND_OTHER = 4;
+
+    /**
+     * Lengths are counted in power of two buckets: 0, 1, 2-3, 4-7, ..., and a final bucket for everything longer.
+     */
+    private static final int LENGTH_BUCKETS = 18;
+
+    private final ValueMetaInterface[] valueMetas;
+    private final int fields;
+    private final byte[] kinds;
+
+    private long rows;
+    private final long[] nullCounts;
+    private final double[] mins;
+    private final double[] maxs;
+    private final double[] sums;
+    private final long[] lengthCounts;
+    private final HyperLogLog[] distinct;
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param redactions the redactions of the fields, or null if no fields are redacted.
+     */
+    RowProfiler(final RowMetaInterface rowMeta, final Redactions redactions) {
+        this.fields = rowMeta.size();
+        this.valueMetas = new ValueMetaInterface[fields];
+        this.kinds = new byte[fields];
+        for (int i = 0; i < fields; i++) {
+            valueMetas[i] = rowMeta.getValueMeta(i);
+            kinds[i] = redactions != null && redactions.get(i) != null ? KIND_OTHER : kind(valueMetas[i]);
+        }
+
+        this.nullCounts = new long[fields];
+        this.mins = new double[fields];
+        this.maxs = new double[fields];
+        this.sums = new double[fields];
+        this.lengthCounts = new long[fields * LENGTH_BUCKETS];
+        this.distinct = new HyperLogLog[fields];
+        for (int i = 0; i < fields; i++) {
+            mins[i] = Double.POSITIVE_INFINITY;
+            maxs[i] = Double.NEGATIVE_INFINITY;
+            distinct[i] = new HyperLogLog();
+        }
+    }
+
+    private static byte kind(final ValueMetaInterface valueMeta) {
+        switch (valueMeta.getType()) {
+            case ValueMetaInterface.TYPE_INTEGER:
+            case ValueMetaInterface.TYPE_NUMBER:
+            case ValueMetaInterface.TYPE_BIGNUMBER:
+            case ValueMetaInterface.TYPE_BOOLEAN:
+                return KIND_NUMERIC;
+
+            case ValueMetaInterface.TYPE_DATE:
+            case ValueMetaInterface.TYPE_TIMESTAMP:
+                return KIND_DATE;
+
+            case ValueMetaInterface.TYPE_STRING:
+                return KIND_STRING;
+
+            case ValueMetaInterface.TYPE_BINARY:
+                return KIND_BINARY;
+
+            default:
+                return KIND_OTHER;
+        }
+    }
+
+    /**
+     * Updates the statistics with the values of a row.
+     *
+     * @param row the row.
+     *
+     * @throws KettleValueException if a lazily converted value cannot be converted to its native type.
+     */
+    void record(final Object[] row) throws KettleValueException {
+        rows++;
+
+        for (int i = 0; i < fields; i++) {
+            // values missing from the end of an under-run row are counted as nulls
+            Object value = i < row.length ? row[i] : null;
+            if (value == null) {
+                nullCounts[i]++;
+                continue;
+            }
+
+            final ValueMetaInterface valueMeta = valueMetas[i];
+            if (valueMeta.isStorageIndexed() && value instanceof Integer) {
+                final Object[] index = valueMeta.getIndex();
+                final int idx = (Integer) value;
+                value = index != null && idx >= 0 && idx < index.length ? index[idx] : null;
+                if (value == null) {
+                    nullCounts[i]++;
+                    continue;
+                }
+
+            } else if (valueMeta.isStorageBinaryString() && value instanceof byte[]) {
+                if (KIND_STRING == kinds[i]) {
+                    // lazy-conversion, profile the bytes without converting them to a string
+                    final byte[] bytes = (byte[]) value;
+                    recordLength(i, bytes.length);
+                    distinct[i].add(Hashing.hash(bytes));
+                    continue;
+                }
+                value = valueMeta.convertBinaryStringToNativeType((byte[]) value);
+                if (value == null) {
+                    nullCounts[i]++;
+                    continue;
+                }
+            }
+
+            switch (kinds[i]) {
+                case KIND_NUMERIC:
+                    final double d = toDouble(value);
+                    recordValue(i, d);
+                    distinct[i].add(value instanceof Long
+                            ? Hashing.mix64((Long) value) : Hashing.mix64(Double.doubleToLongBits(d)));
+                    break;
+
+                case KIND_DATE:
+                    final long time = ((Date) value).getTime();
+                    recordValue(i, time);
+                    distinct[i].add(Hashing.mix64(value instanceof Timestamp
+                            ? time ^ ((Timestamp) value).getNanos() : time));
+                    break;
+
+                case KIND_STRING:
+                    final String str = value.toString();
+                    recordLength(i, str.length());
+                    distinct[i].add(Hashing.hash(str));
+                    break;
+
+                case KIND_BINARY:
+                    final byte[] bytes = (byte[]) value;
+                    recordLength(i, bytes.length);
+                    distinct[i].add(Hashing.hash(bytes));
+                    break;
+
+                default:
+                    // by content, as e.g. binary values have identity hash codes, and their buffers may be reused
+                    distinct[i].add(Redactions.saltedHash(value));
+                    break;
+            }
+        }
+    }
+
+    private static double toDouble(final Object value) {
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Double) {
+            return (Double) value;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1 : 0;
+        } else {
+            return ((Number) value).doubleValue();
+        }
+    }
+
+    private void recordValue(final int fieldIdx, final double value) {
+        if (value < mins[fieldIdx]) {
+            mins[fieldIdx] = value;
+        }
+        if (value > maxs[fieldIdx]) {
+            maxs[fieldIdx] = value;
+        }
+        sums[fieldIdx] += value;
+    }
+
+    private void recordLength(final int fieldIdx, final int length) {
+        recordValue(fieldIdx, length);
+        final int bucket = Math.min(32 - Integer.numberOfLeadingZeros(length), LENGTH_BUCKETS - 1);
+        lengthCounts[(fieldIdx * LENGTH_BUCKETS) + bucket]++;
+    }
+
+    /**
+     * Get the number of rows that have been profiled.
+     *
+     * @return the number of rows.
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Merges the statistics of another profiler of rows with the same metadata into this profiler.
+     *
+     * @param other the profiler to merge.
+     */
+    void merge(final RowProfiler other) {
+        rows += other.rows;
+        for (int i = 0; i < fields; i++) {
+            nullCounts[i] += other.nullCounts[i];
+            mins[i] = Math.min(mins[i], other.mins[i]);
+            maxs[i] = Math.max(maxs[i], other.maxs[i]);
+            sums[i] += other.sums[i];
+            distinct[i].merge(other.distinct[i]);
+        }
+        for (int i = 0; i < lengthCounts.length; i++) {
+            lengthCounts[i] += other.lengthCounts[i];
+        }
+    }
+
+    /**
+     * Determines whether another profiler can be merged into this profiler.
+     *
+     * @param other the other profiler.
+     *
+     * @return true if the profilers have the same fields, of the same types.
+     */
+    boolean isMergeable(final RowProfiler other) {
+        if (other.fields != fields) {
+            return false;
+        }
+        for (int i = 0; i < fields; i++) {
+            if (other.kinds[i] != kinds[i] || !valueMetas[i].getName().equals(other.valueMetas[i].getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Formats a report of the statistics for each field.
+     *
+     * For string and binary fields the minimum, maximum and mean are of the length of the values,
+     * and for lazily converted string fields the length is measured in bytes.
+     *
+     * @return the report.
+     */
+    String report() {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSS");
+        final StringBuilder builder = new StringBuilder(128 * (fields + 1));
+        builder.append("Profile of ").append(rows).append(" rows:");
+
+        for (int i = 0; i < fields; i++) {
+            final ValueMetaInterface valueMeta = valueMetas[i];
+            final long values = rows - nullCounts[i];
+
+            builder.append(EOL).append("  ").append(valueMeta.getName())
+                    .append(" (").append(valueMeta.getTypeDesc()).append("): ")
+                    .append("nulls=").append(nullCounts[i])
+                    .append(", distinct~=").append(distinct[i].estimate());
+
+            if (values == 0 || KIND_OTHER == kinds[i]) {
+                continue;
+            }
+
+            final String prefix = KIND_STRING == kinds[i] || KIND_BINARY == kinds[i] ? "length " : "";
+            builder.append(", ").append(prefix).append("min=");
+            appendValue(builder, i, mins[i], dateFormat);
+            builder.append(", ").append(prefix).append("max=");
+            appendValue(builder, i, maxs[i], dateFormat);
+            builder.append(", ").append(prefix).append("mean=");
+            appendValue(builder, i, sums[i] / values, dateFormat);
+
+            if (KIND_STRING == kinds[i] || KIND_BINARY == kinds[i]) {
+                builder.append(", lengths={");
+                boolean firstBucket = true;
+                for (int bucket = 0; bucket < LENGTH_BUCKETS; bucket++) {
+                    final long count = lengthCounts[(i * LENGTH_BUCKETS) + bucket];
+                    if (count == 0) {
+                        continue;
+                    }
+                    if (!firstBucket) {
+                        builder.append(", ");
+                    }
+                    appendLengthBucket(builder, bucket);
+                    builder.append(": ").append(count);
+                    firstBucket = false;
+                }
+                builder.append('}');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private void appendValue(final StringBuilder builder, final int fieldIdx, final double value,
+            final SimpleDateFormat dateFormat) {
+        if (KIND_DATE == kinds[fieldIdx]) {
+            builder.append(dateFormat.format(new Date((long) value)));
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            builder.append((long) value);
+        } else {
+            builder.append(String.format(Locale.ROOT, "%.4f", value));
+        }
+    }
+
+    private static void appendLengthBucket(final StringBuilder builder, final int bucket) {
+        if (bucket <= 1) {
+            builder.append(bucket);
+        } else if (bucket == LENGTH_BUCKETS - 1) {
+            builder.append(1 << (bucket - 1)).append('+');
+        } else {
+            builder.append(1 << (bucket - 1)).append('-').append((1 << bucket) - 1);
+        }
+    }
+}
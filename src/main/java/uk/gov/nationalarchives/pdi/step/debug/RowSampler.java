@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which of the rows selected for logging are actually logged,
+ * according to a {@link LogSampling} mode.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowSampler {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final LogSampling sampling;
+    private final int size;
+
+    private long offered;
+    private long suppressed;
+
+    // RATE_LIMIT, a token bucket holding at most `size` tokens
+    private double tokens;
+    private long lastRefillNanos;
+
+    // RESERVOIR
+    private final Object[][] reservoirRows;
+    private final LogAction[] reservoirActions;
+    private final long[] reservoirRowNrs;
+    private int reservoirCount;
+
+    RowSampler(final LogSampling sampling, final int size) {
+        this.sampling = sampling;
+        this.size = Math.max(1, size);
+
+        if (LogSampling.RATE_LIMIT == sampling) {
+            this.tokens = this.size;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        if (LogSampling.RESERVOIR == sampling) {
+            this.reservoirRows = new Object[this.size][];
+            this.reservoirActions = new LogAction[this.size];
+            this.reservoirRowNrs = new long[this.size];
+        } else {
+            this.reservoirRows = null;
+            this.reservoirActions = null;
+            this.reservoirRowNrs = null;
+        }
+    }
+
+    /**
+     * Offers a row that was selected for logging to the sampler.
+     *
+     * @param action how the row would be logged.
+     * @param rowNr the position of the row in the stream.
+     * @param row the row.
+     *
+     * @return true if the row should be logged now, false otherwise.
+     */
+    boolean sample(final LogAction action, final long rowNr, final Object[] row) {
+        offered++;
+
+        switch (sampling) {
+            case EVERY_NTH:
+                if (offered % size == 0) {
+                    return true;
+                }
+                break;
+
+            case RATE_LIMIT:
+                final long now = System.nanoTime();
+                tokens = Math.min(size, tokens + ((now - lastRefillNanos) * size) / NANOS_PER_SECOND);
+                lastRefillNanos = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return true;
+                }
+                break;
+
+            case RESERVOIR:
+                final int slot;
+                if (reservoirCount < size) {
+                    slot = reservoirCount++;
+                } else {
+                    final long candidate = ThreadLocalRandom.current().nextLong(offered);
+                    if (candidate >= size) {
+                        suppressed++;
+                        return false;
+                    }
+                    slot = (int) candidate;
+                    suppressed++;  // the row being replaced will now never be logged
+                }
+                // the row array may be reused upstream, so keep a copy of it
+                reservoirRows[slot] = row.clone();
+                reservoirActions[slot] = action;
+                reservoirRowNrs[slot] = rowNr;
+                return false;
+
+            default:
+                return true;
+        }
+
+        suppressed++;
+        return false;
+    }
+
+    /**
+     * Get the number of rows that were selected for logging
+     * but were not, and will not be, logged.
+     *
+     * @return the number of suppressed rows.
+     */
+    long getSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * Get the number of rows held in the reservoir.
+     *
+     * @return the number of rows in the reservoir.
+     */
+    int getReservoirCount() {
+        return reservoirCount;
+    }
+
+    /**
+     * Get the indexes of the rows held in the reservoir,
+     * ordered by the position of each row in the stream.
+     *
+     * @return the ordered indexes of the reservoir.
+     */
+    int[] reservoirOrder() {
+        final Integer[] order = new Integer[reservoirCount];
+        for (int i = 0; i < reservoirCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(reservoirRowNrs[a], reservoirRowNrs[b]));
+
+        final int[] result = new int[reservoirCount];
+        for (int i = 0; i < reservoirCount; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    Object[] getReservoirRow(final int i) {
+        return reservoirRows[i];
+    }
+
+    LogAction getReservoirAction(final int i) {
+        return reservoirActions[i];
+    }
+
+    long getReservoirRowNr(final int i) {
+        return reservoirRowNrs[i];
+    }
+}
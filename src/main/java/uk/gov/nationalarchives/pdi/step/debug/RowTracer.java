@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Traces the latency of rows between a START probe and an END probe.
+ *
+ * A START probe stamps every Nth row with a single {@code long}: its trace id in the
+ * top 16 bits, and the time in nanoseconds since an origin shared by the JVM in the
+ * remaining 48 bits (about 78 hours, after which the time wraps around, which
+ * is harmless as only differences of the times are used). An END probe decodes
+ * the stamps of the rows that reach it, and records the elapsed time in a latency
+ * histogram for each START probe, so a single END probe can measure the latency
+ * from several START probes, e.g. on branches that are merged.
+ *
+ * As {@link System#nanoTime()} is only comparable within a JVM, the probes must be
+ * in the same JVM, i.e. not on different slave servers of a clustered transformation.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class RowTracer {
+
+    private static final String EOL = System.getProperty("line.separator");
+
+    private static final int TIME_BITS = 48;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final int MAX_TRACE_ID = (1 << (Long.SIZE - TIME_BITS)) - 1;
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private static final ConcurrentMap<String, Integer> TRACE_IDS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, String> TRACE_NAMES = new ConcurrentHashMap<>();
+    private static final AtomicInteger LAST_TRACE_ID = new AtomicInteger();
+
+    private final int sampling;
+    private final long traceIdBits;
+    private int countdown;
+
+    private LatencyHistogram[] latencies;
+    private long untraceable;
+
+    /**
+     * @param probe the role of the probe, either START or END.
+     * @param name the name of the probe, which identifies the START probe in the reports of END probes.
+     * @param sampling for a START probe, stamp 1 in every {@code sampling} rows.
+     */
+    RowTracer(final TraceProbe probe, final String name, final int sampling) {
+        this.sampling = Math.max(1, sampling);
+        this.countdown = 1;  // always stamp the first row
+        if (TraceProbe.START == probe) {
+            this.traceIdBits = (long) traceId(name) << TIME_BITS;
+        } else {
+            this.traceIdBits = 0;
+            this.latencies = new LatencyHistogram[8];
+        }
+    }
+
+    /**
+     * Gets the trace id of a START probe, assigning one if it does not yet have one.
+     * Trace ids are never reused, so that the stamps of different probes can not be confused;
+     * if they run out then 0 is used, which is reported as an unknown probe.
+     */
+    private static int traceId(final String name) {
+        return TRACE_IDS.computeIfAbsent(name, key -> {
+            final int traceId = LAST_TRACE_ID.incrementAndGet();
+            if (traceId > MAX_TRACE_ID) {
+                return 0;
+            }
+            TRACE_NAMES.put(traceId, key);
+            return traceId;
+        });
+    }
+
+    /**
+     * Stamps a row, if it is sampled.
+     *
+     * @return the stamp for the trace field, or null if the row is not sampled.
+     */
+    Long stamp() {
+        if (--countdown > 0) {
+            return null;
+        }
+        countdown = sampling;
+        return traceIdBits | ((System.nanoTime() - ORIGIN_NANOS) & TIME_MASK);
+    }
+
+    /**
+     * Records the latency of a row from the START probe that stamped it.
+     *
+     * @param stamp the value of the trace field, which is null if the row was not sampled.
+     */
+    void trace(final Object stamp) {
+        if (stamp == null) {
+            return;
+        }
+        if (!(stamp instanceof Long)) {
+            // the trace field has been overwritten by another step
+            untraceable++;
+            return;
+        }
+
+        final long value = (Long) stamp;
+        final int traceId = (int) (value >>> TIME_BITS);
+        final long elapsed = ((System.nanoTime() - ORIGIN_NANOS) - value) & TIME_MASK;
+
+        if (traceId >= latencies.length) {
+            final LatencyHistogram[] newLatencies = new LatencyHistogram[Math.max(traceId + 1, latencies.length * 2)];
+            System.arraycopy(latencies, 0, newLatencies, 0, latencies.length);
+            latencies = newLatencies;
+        }
+        LatencyHistogram histogram = latencies[traceId];
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            latencies[traceId] = histogram;
+        }
+        histogram.record(elapsed);
+    }
+
+    /**
+     * Formats a report of the latencies from each START probe, for an END probe.
+     *
+     * @param name the name of the END probe.
+     *
+     * @return the report, or null if no stamped rows were seen.
+     */
+    String report(final String name) {
+        final StringBuilder buf = new StringBuilder();
+        for (int traceId = 0; traceId < latencies.length; traceId++) {
+            final LatencyHistogram histogram = latencies[traceId];
+            if (histogram == null) {
+                continue;
+            }
+            if (buf.length() > 0) {
+                buf.append(EOL);
+            }
+            final String startName = traceId == 0 ? null : TRACE_NAMES.get(traceId);
+            buf.append("Latency from ").append(startName != null ? startName : "an unknown probe")
+                    .append(" to ").append(name).append(" {");
+            histogram.appendSummary(buf).append('}');
+        }
+        if (untraceable > 0) {
+            if (buf.length() > 0) {
+                buf.append(EOL);
+            }
+            buf.append(untraceable).append(" rows had a value in the trace field that was not a trace stamp");
+        }
+        return buf.length() > 0 ? buf.toString() : null;
+    }
+}
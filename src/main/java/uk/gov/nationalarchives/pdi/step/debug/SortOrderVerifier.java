@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verifies that a stream of rows is ordered on key fields, as steps like Merge Join,
+ * Group By and Sorted Merge assume, by comparing each row with the previous one.
+ *
+ * Rows are compared with {@link RowMetaInterface#compare(Object[], Object[], int[])}, so the
+ * direction and case sensitivity of each field are those of its metadata, e.g. as set by a
+ * Sort Rows step. Only the key values of the previous row are retained, copied into one of
+ * two reused arrays, so that a later step modifying a row can not affect the comparison.
+ *
+ * Instances are confined to a single step copy, and so are not thread-safe.
+ */
+final class SortOrderVerifier {
+
+    private final RowMetaInterface rowMeta;
+    private final String[] fieldNames;
+    private final int[] keyIdxs;
+    private final boolean[] redacted;
+    private final List<String> unknownFields = new ArrayList<>();
+
+    private Object[] previousKey;
+    private Object[] currentKey;
+    private boolean hasPrevious;
+    private long previousRowNr;
+
+    private long rows;
+    private long violations;
+    private long firstViolationRowNr;
+    private long lastViolationRowNr;
+    private long lastViolationPreviousRowNr;
+
+    /**
+     * @param rowMeta the metadata of the rows.
+     * @param fieldNames the names of the key fields.
+     * @param redactions the redactions of the fields, or null if no fields are redacted.
+     */
+    SortOrderVerifier(final RowMetaInterface rowMeta, final String[] fieldNames, final Redactions redactions) {
+        this.rowMeta = rowMeta;
+        final List<String> knownFields = new ArrayList<>(fieldNames.length);
+        final int[] keyIdxs = new int[fieldNames.length];
+        for (final String fieldName : fieldNames) {
+            final int fieldIdx = rowMeta.indexOfValue(fieldName);
+            if (fieldIdx < 0) {
+                unknownFields.add(fieldName);
+            } else {
+                keyIdxs[knownFields.size()] = fieldIdx;
+                knownFields.add(fieldName);
+            }
+        }
+
+        this.fieldNames = knownFields.toArray(new String[0]);
+        this.keyIdxs = new int[knownFields.size()];
+        this.redacted = new boolean[knownFields.size()];
+        for (int i = 0; i < this.keyIdxs.length; i++) {
+            this.keyIdxs[i] = keyIdxs[i];
+            redacted[i] = redactions != null && redactions.get(keyIdxs[i]) != null;
+        }
+        this.previousKey = new Object[rowMeta.size()];
+        this.currentKey = new Object[rowMeta.size()];
+    }
+
+    /**
+     * Get the names of the key fields that are not in the row metadata.
+     *
+     * @return the names of the fields.
+     */
+    List<String> getUnknownFields() {
+        return unknownFields;
+    }
+
+    /**
+     * Checks that a row is not ordered before the previous row.
+     *
+     * @param rowNr the number of the row in the stream.
+     * @param row the row.
+     *
+     * @return true if the row is out of order.
+     *
+     * @throws KettleValueException if the key values can not be compared.
+     */
+    boolean check(final long rowNr, final Object[] row) throws KettleValueException {
+        rows++;
+
+        final Object[] key = currentKey;
+        for (final int keyIdx : keyIdxs) {
+            // values missing from the end of an under-run row are compared as nulls
+            key[keyIdx] = keyIdx < row.length ? row[keyIdx] : null;
+        }
+
+        final boolean outOfOrder = hasPrevious && rowMeta.compare(previousKey, key, keyIdxs) > 0;
+        if (outOfOrder) {
+            violations++;
+            if (violations == 1) {
+                firstViolationRowNr = rowNr;
+            }
+            lastViolationRowNr = rowNr;
+            lastViolationPreviousRowNr = previousRowNr;
+        }
+
+        // the current key becomes the previous key, and the previous key array is reused for the next row
+        currentKey = previousKey;
+        previousKey = key;
+        previousRowNr = rowNr;
+        hasPrevious = true;
+
+        return outOfOrder;
+    }
+
+    /**
+     * Describes the last violation of the order, by the keys of the row that was out of order
+     * and of the row before it. Only valid directly after {@link #check(long, Object[])} returned true.
+     *
+     * @return the description.
+     */
+    String describeViolation() {
+        // the arrays were swapped by check, so the key of the row before is now the current key
+        final StringBuilder buf = new StringBuilder(128);
+        buf.append("Row ").append(lastViolationRowNr).append(" is out of order on (")
+                .append(String.join(", ", fieldNames)).append("): ");
+        appendKey(buf, currentKey);
+        buf.append(" at row ").append(lastViolationPreviousRowNr).append(" is followed by ");
+        appendKey(buf, previousKey);
+        return buf.toString();
+    }
+
+    private void appendKey(final StringBuilder buf, final Object[] key) {
+        buf.append('(');
+        for (int i = 0; i < keyIdxs.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            final Object value = key[keyIdxs[i]];
+            if (redacted[i]) {
+                buf.append(Redactions.MASK);
+            } else {
+                final ValueMetaInterface valueMeta = rowMeta.getValueMeta(keyIdxs[i]);
+                try {
+                    buf.append(valueMeta.getString(value));
+                } catch (final KettleValueException e) {
+                    buf.append(value);
+                }
+            }
+        }
+        buf.append(')');
+    }
+
+    long getViolations() {
+        return violations;
+    }
+
+    /**
+     * Summarises the violations of the order.
+     *
+     * @return the summary.
+     */
+    String summary() {
+        final StringBuilder buf = new StringBuilder(128);
+        buf.append("Sort order on (").append(String.join(", ", fieldNames)).append("): ");
+        if (violations == 0) {
+            buf.append("all ").append(rows).append(" rows are in order");
+        } else {
+            buf.append(violations).append(" of ").append(rows).append(" rows are out of order, the first at row ")
+                    .append(firstViolationRowNr);
+        }
+        return buf.toString();
+    }
+}
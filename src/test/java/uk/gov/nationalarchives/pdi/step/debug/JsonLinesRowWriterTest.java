@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.junit.jupiter.api.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JsonLinesRowWriterTest {
+
+    @Test
+    public void writesJdbcDates() throws IOException, KettleException {
+        final RowMetaInterface rowMeta = new RowMeta();
+        rowMeta.addValueMeta(new ValueMetaDate("date"));
+        rowMeta.addValueMeta(new ValueMetaDate("time"));
+        rowMeta.addValueMeta(new ValueMetaTimestamp("timestamp"));
+
+        final Timestamp timestamp = new Timestamp(1_000L);
+        timestamp.setNanos(123_456_789);
+        final Timestamp beforeEpoch = new Timestamp(-1_000L);
+        beforeEpoch.setNanos(5);
+
+        final Path file = Files.createTempFile("rows", ".jsonl");
+        try {
+            final JsonLinesRowWriter writer = new JsonLinesRowWriter(rowMeta, file, 0, false, null);
+            writer.write(new Object[] { new java.sql.Date(86_400_000L), new Time(1_234L), timestamp });
+            writer.write(new Object[] { null, null, beforeEpoch });
+            writer.close();
+
+            final String expected = "{\"date\":\"1970-01-02T00:00:00Z\",\"time\":\"1970-01-01T00:00:01.234Z\","
+                    + "\"timestamp\":\"1970-01-01T00:00:01.123456789Z\"}\n"
+                    + "{\"date\":null,\"time\":null,\"timestamp\":\"1969-12-31T23:59:59.000000005Z\"}\n";
+            assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowCaptureRoundTripTest {
+
+    @BeforeAll
+    public static void initKettle() throws KettleException {
+        // the row metadata is read back through the value meta plugins
+        KettleClientEnvironment.init();
+    }
+
+    @Test
+    public void roundTripsPlainFile() throws IOException, KettleException {
+        assertRoundTrip(false);
+    }
+
+    @Test
+    public void roundTripsGzipFile() throws IOException, KettleException {
+        assertRoundTrip(true);
+    }
+
+    private static void assertRoundTrip(final boolean gzip) throws IOException, KettleException {
+        final RowMetaInterface rowMeta = new RowMeta();
+        rowMeta.addValueMeta(new ValueMetaString("string"));
+        rowMeta.addValueMeta(new ValueMetaInteger("integer"));
+        rowMeta.addValueMeta(new ValueMetaNumber("number"));
+        rowMeta.addValueMeta(new ValueMetaBigNumber("bigNumber"));
+        rowMeta.addValueMeta(new ValueMetaBoolean("boolean"));
+        rowMeta.addValueMeta(new ValueMetaDate("date"));
+        rowMeta.addValueMeta(new ValueMetaBinary("binary"));
+
+        final Object[] row = { "abc", 1L, 1.5d, new BigDecimal("12.345"), true, new Date(86_400_000L),
+                new byte[] { 1, 2, 3 } };
+        final Object[] nulls = new Object[rowMeta.size()];
+        final Object[] shortRow = { "short", 2L };
+
+        final Path file = Files.createTempFile("rows", ".kdprows");
+        try {
+            final RowCaptureWriter writer = new RowCaptureWriter(rowMeta, file, gzip);
+            writer.write(row);
+            writer.write(nulls);
+            writer.write(shortRow);
+            writer.close();
+
+            final byte[] bytes = Files.readAllBytes(file);
+            assertEquals(gzip, (bytes[0] & 0xff) == 0x1f && (bytes[1] & 0xff) == 0x8b);
+
+            try (final RowCaptureReader reader = new RowCaptureReader(file)) {
+                final RowMetaInterface readRowMeta = reader.getRowMeta();
+                assertEquals(rowMeta.size(), readRowMeta.size());
+                for (int i = 0; i < rowMeta.size(); i++) {
+                    assertEquals(rowMeta.getValueMeta(i).getName(), readRowMeta.getValueMeta(i).getName());
+                    assertEquals(rowMeta.getValueMeta(i).getType(), readRowMeta.getValueMeta(i).getType());
+                }
+
+                assertRow(row, reader.readRow());
+                assertRow(nulls, reader.readRow());
+                // short rows are padded with nulls
+                assertRow(Arrays.copyOf(shortRow, rowMeta.size()), reader.readRow());
+                assertNull(reader.readRow());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void roundTripsLazyConversionValues() throws IOException, KettleException {
+        final RowMetaInterface rowMeta = new RowMeta();
+        rowMeta.addValueMeta(lazy(new ValueMetaString("string"), new ValueMetaString("string")));
+        rowMeta.addValueMeta(lazy(new ValueMetaInteger("integer"), new ValueMetaString("integer")));
+
+        final byte[] string = "abc".getBytes(StandardCharsets.UTF_8);
+        final byte[] integer = "42".getBytes(StandardCharsets.UTF_8);
+
+        final Path file = Files.createTempFile("rows", ".kdprows");
+        try {
+            final RowCaptureWriter writer = new RowCaptureWriter(rowMeta, file, false);
+            writer.write(new Object[] { string, integer });
+            writer.close();
+
+            try (final RowCaptureReader reader = new RowCaptureReader(file)) {
+                final RowMetaInterface readRowMeta = reader.getRowMeta();
+                assertTrue(readRowMeta.getValueMeta(0).isStorageBinaryString());
+                assertTrue(readRowMeta.getValueMeta(1).isStorageBinaryString());
+
+                final Object[] readRow = reader.readRow();
+                assertArrayEquals(string, (byte[]) readRow[0]);
+                assertArrayEquals(integer, (byte[]) readRow[1]);
+                assertNull(reader.readRow());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ValueMetaInterface lazy(final ValueMetaInterface valueMeta, final ValueMetaInterface storageMeta) {
+        valueMeta.setStorageType(ValueMetaInterface.STORAGE_TYPE_BINARY_STRING);
+        valueMeta.setStorageMetadata(storageMeta);
+        return valueMeta;
+    }
+
+    @Test
+    public void rejectsFileWithoutMagic() throws IOException {
+        final KettleFileException e = assertReaderThrows("not a row capture file".getBytes(StandardCharsets.UTF_8));
+        assertTrue(e.getMessage().contains("Not a row capture file"));
+    }
+
+    @Test
+    public void rejectsUnsupportedVersion() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream os = new DataOutputStream(bytes)) {
+            os.write(RowCaptureWriter.MAGIC);
+            os.writeInt(RowCaptureWriter.VERSION + 1);
+        }
+        final KettleFileException e = assertReaderThrows(bytes.toByteArray());
+        assertTrue(e.getMessage().contains("Unsupported row capture file version " + (RowCaptureWriter.VERSION + 1)));
+    }
+
+    private static KettleFileException assertReaderThrows(final byte[] content) throws IOException {
+        final Path file = Files.createTempFile("rows", ".kdprows");
+        try {
+            Files.write(file, content);
+            return assertThrows(KettleFileException.class, () -> new RowCaptureReader(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void assertRow(final Object[] expected, final Object[] actual) {
+        assertArrayEquals(expected, Arrays.copyOf(actual, expected.length));
+    }
+}
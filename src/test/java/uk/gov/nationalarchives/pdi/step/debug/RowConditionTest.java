@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ * Copyright © 2021 The National Archives
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package uk.gov.nationalarchives.pdi.step.debug;
+
+import org.junit.jupiter.api.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowConditionTest {
+
+    private static RowMetaInterface rowMeta() {
+        final RowMetaInterface rowMeta = new RowMeta();
+        rowMeta.addValueMeta(new ValueMetaInteger("a"));
+        rowMeta.addValueMeta(new ValueMetaInteger("b"));
+        rowMeta.addValueMeta(new ValueMetaInteger("c"));
+        rowMeta.addValueMeta(new ValueMetaString("status"));
+        rowMeta.addValueMeta(new ValueMetaInteger("size"));
+        return rowMeta;
+    }
+
+    private static boolean test(final String expression, final Object... row) throws KettleException {
+        return RowCondition.parse(expression).bind(rowMeta()).test(row);
+    }
+
+    private static Object[] row(final Long a, final Long b, final Long c, final String status, final Long size) {
+        return new Object[] { a, b, c, status, size };
+    }
+
+    @Test
+    public void andBindsTighterThanOr() throws KettleException {
+        final String expression = "a = 1 OR b = 2 AND c = 3";
+        assertTrue(test(expression, row(1L, 0L, 0L, null, null)));
+        assertFalse(test(expression, row(0L, 2L, 0L, null, null)));
+        assertTrue(test(expression, row(0L, 2L, 3L, null, null)));
+    }
+
+    @Test
+    public void parenthesesOverridePrecedence() throws KettleException {
+        final String expression = "(a = 1 OR b = 2) AND c = 3";
+        assertFalse(test(expression, row(1L, 0L, 0L, null, null)));
+        assertTrue(test(expression, row(1L, 0L, 3L, null, null)));
+    }
+
+    @Test
+    public void notBindsTighterThanAnd() throws KettleException {
+        final String expression = "NOT a = 1 AND b = 2";
+        assertTrue(test(expression, row(0L, 2L, 0L, null, null)));
+        assertFalse(test(expression, row(1L, 2L, 0L, null, null)));
+        assertFalse(test(expression, row(0L, 0L, 0L, null, null)));
+        assertTrue(test("not not a = 1", row(1L, 0L, 0L, null, null)));
+    }
+
+    @Test
+    public void isNull() throws KettleException {
+        assertTrue(test("status IS NULL", row(0L, 0L, 0L, null, null)));
+        assertFalse(test("status is null", row(0L, 0L, 0L, "OK", null)));
+        assertTrue(test("status IS NOT NULL", row(0L, 0L, 0L, "OK", null)));
+        assertFalse(test("NOT status IS NOT NULL", row(0L, 0L, 0L, "OK", null)));
+
+        // a value missing from the end of an under-run row is null
+        assertTrue(test("size IS NULL", 0L, 0L, 0L, "OK"));
+    }
+
+    @Test
+    public void comparisonWithNullIsNeverTrue() throws KettleException {
+        assertFalse(test("status = 'OK'", row(0L, 0L, 0L, null, null)));
+        assertFalse(test("status != 'OK'", row(0L, 0L, 0L, null, null)));
+        assertTrue(test("status <> 'OK'", row(0L, 0L, 0L, "FAILED", null)));
+    }
+
+    @Test
+    public void stringLiterals() throws KettleException {
+        assertTrue(test("status = 'it''s'", row(0L, 0L, 0L, "it's", null)));
+        assertTrue(test("\"status\" = 'OK'", row(0L, 0L, 0L, "OK", null)));
+    }
+
+    @Test
+    public void unitSuffixes() throws KettleException {
+        assertTrue(test("size = 1KB", row(0L, 0L, 0L, null, 1024L)));
+        assertTrue(test("size = 1.5kb", row(0L, 0L, 0L, null, 1536L)));
+        assertTrue(test("size = 2MB", row(0L, 0L, 0L, null, 2L << 20)));
+        assertTrue(test("size > 1GB", row(0L, 0L, 0L, null, (1L << 30) + 1)));
+        assertFalse(test("size > 1GB", row(0L, 0L, 0L, null, 1L << 30)));
+        assertTrue(test("size >= 1TB", row(0L, 0L, 0L, null, 1L << 40)));
+        assertTrue(test("a < -1", row(-2L, 0L, 0L, null, null)));
+    }
+
+    @Test
+    public void rejectsMalformedNumberLiterals() {
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 1.2.3"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 1..5"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = .5."));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 5XB"));
+    }
+
+    @Test
+    public void rejectsMalformedConditions() {
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = "));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 1 AND"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("(a = 1"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 1)"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a ! 1"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("status = 'OK"));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a IS 1"));
+    }
+
+    @Test
+    public void rejectsLiteralsThatDoNotMatchTheField() throws KettleException {
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 1.5").bind(rowMeta()));
+        assertThrows(KettleException.class, () -> RowCondition.parse("a = 'x'").bind(rowMeta()));
+        assertThrows(KettleException.class, () -> RowCondition.parse("missing = 1").bind(rowMeta()));
+    }
+
+    @Test
+    public void toStringIsTheExpression() throws KettleException {
+        assertEquals("a = 1", RowCondition.parse("a = 1").toString());
+    }
+}